@@ -9,11 +9,42 @@ repositories {
     mavenCentral()
 }
 
+sourceSets {
+    create("jmh") {
+        compileClasspath += sourceSets.main.get().output
+        runtimeClasspath += sourceSets.main.get().output
+    }
+}
+
+val jmhImplementation by configurations.getting
+val jmhAnnotationProcessor by configurations.getting
+
 dependencies {
     testImplementation("org.junit.jupiter:junit-jupiter-params:5.8.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.8.1")
+    jmhImplementation("org.openjdk.jmh:jmh-core:1.37")
+    jmhAnnotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.37")
 }
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+// Runs the benchmarks in src/jmh, writing the results as JSON so runs can be
+// compared between commits. A subset can be run with -Pjmh=<regex>, such as
+// ./gradlew jmh -Pjmh=LexerBenchmark, which can be followed by other options
+// such as -Pjmh="ArithmeticBenchmark -prof gc".
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    val results = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+    doFirst {
+        results.parentFile.mkdirs()
+    }
+    args("-rf", "json", "-rff", results.absolutePath)
+    if (project.hasProperty("jmh")) {
+        args(project.property("jmh").toString().trim().split(Regex("\\s+")))
+    }
+}
@@ -0,0 +1,31 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class AnalyzerBenchmark {
+
+    @Benchmark
+    public Void analyze(ProgramState state) {
+        return new Analyzer(new Scope(null)).visit(state.source);
+    }
+
+    @Benchmark
+    public Void analyzeParallel(ProgramState state) {
+        return new Analyzer(new Scope(null), ForkJoinPool.commonPool()).visit(state.source);
+    }
+
+}
@@ -0,0 +1,48 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Integer arithmetic on longs against BigIntegers in a tight
+ * {@code WHILE} loop. Run with the GC profiler to see the allocation per
+ * operation, ./gradlew jmh -Pjmh="ArithmeticBenchmark -prof gc".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    @Param({"true", "false"})
+    public boolean smallIntegers;
+
+    private Ast.Source source;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = new Parser(new Lexer(Programs.longLoop(10000)).lex()).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(source);
+        new Resolver().visit(source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject loop() {
+        return new Interpreter(new plc.project.Scope(null), smallIntegers).visit(source);
+    }
+
+}
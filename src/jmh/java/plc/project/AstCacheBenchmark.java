@@ -0,0 +1,89 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading a corpus of sources at startup from a populated
+ * {@link AstCache}, against lexing, parsing and analyzing each source. Single
+ * shot iterations in separate forks approximate a cold start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SingleShotTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class AstCacheBenchmark {
+
+    private static final String[] SHAPES = {"expression", "methods", "loop", "recursion", "string"};
+    private static final int SIZES = 40;
+
+    private List<String> corpus;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        corpus = new ArrayList<>();
+        for (String shape : SHAPES) {
+            for (int size = 1; size <= SIZES; size++) {
+                corpus.add(Programs.generate(shape, size));
+            }
+        }
+        directory = Files.createTempDirectory("ast-cache");
+        AstCache cache = new AstCache(directory);
+        for (String input : corpus) {
+            cache.load(input);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<Ast.Source> loadCached() {
+        AstCache cache = new AstCache(directory);
+        List<Ast.Source> sources = new ArrayList<>(corpus.size());
+        for (String input : corpus) {
+            sources.add(cache.load(input));
+        }
+        return sources;
+    }
+
+    @Benchmark
+    public List<Ast.Source> lexParseAnalyze() {
+        List<Ast.Source> sources = new ArrayList<>(corpus.size());
+        for (String input : corpus) {
+            Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(ast);
+            sources.add(ast);
+        }
+        return sources;
+    }
+
+}
@@ -0,0 +1,203 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of dispatching a visitor over a large AST, with
+ * {@link Ast#accept(Ast.Visitor)} against the chain of instanceof checks
+ * {@link Ast.Visitor#visit(Ast)} used before. The visitor only counts nodes,
+ * so the dispatch is most of the work. The number of nodes is printed during
+ * setup to give the cost per node.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class DispatchBenchmark {
+
+    @Param({"methods", "expression"})
+    public String shape;
+
+    @Param({"1000"})
+    public int size;
+
+    private Ast.Source source;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = new Parser(new Lexer(Programs.generate(shape, size)).lex()).parseSource();
+        System.out.println(shape + " " + size + ": " + new Counter().visit(source) + " nodes");
+    }
+
+    @Benchmark
+    public int accept() {
+        return new Counter().visit(source);
+    }
+
+    @Benchmark
+    public int instanceofChain() {
+        return new InstanceofCounter().visit(source);
+    }
+
+    /**
+     * Counts the nodes in the AST.
+     */
+    private static class Counter implements Ast.Visitor<Integer> {
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            int count = 1;
+            for (Ast.Field field : ast.getFields()) {
+                count += visit(field);
+            }
+            for (Ast.Method method : ast.getMethods()) {
+                count += visit(method);
+            }
+            return count;
+        }
+
+        @Override
+        public Integer visit(Ast.Field ast) {
+            return 1 + (ast.getValue().isPresent() ? visit(ast.getValue().get()) : 0);
+        }
+
+        @Override
+        public Integer visit(Ast.Method ast) {
+            return 1 + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Expression ast) {
+            return 1 + visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Declaration ast) {
+            return 1 + (ast.getValue().isPresent() ? visit(ast.getValue().get()) : 0);
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Assignment ast) {
+            return 1 + visit(ast.getReceiver()) + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.If ast) {
+            return 1 + visit(ast.getCondition()) + visitAll(ast.getThenStatements()) + visitAll(ast.getElseStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.For ast) {
+            return 1 + visit(ast.getValue()) + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.While ast) {
+            return 1 + visit(ast.getCondition()) + visitAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Return ast) {
+            return 1 + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Literal ast) {
+            return 1;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Group ast) {
+            return 1 + visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Binary ast) {
+            return 1 + visit(ast.getLeft()) + visit(ast.getRight());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Access ast) {
+            return 1 + (ast.getReceiver().isPresent() ? visit(ast.getReceiver().get()) : 0);
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Function ast) {
+            int count = 1 + (ast.getReceiver().isPresent() ? visit(ast.getReceiver().get()) : 0);
+            for (Ast.Expr argument : ast.getArguments()) {
+                count += visit(argument);
+            }
+            return count;
+        }
+
+        private int visitAll(java.util.List<Ast.Stmt> statements) {
+            int count = 0;
+            for (Ast.Stmt stmt : statements) {
+                count += visit(stmt);
+            }
+            return count;
+        }
+
+    }
+
+    /**
+     * Counts the nodes, dispatching with the previous chain of instanceof
+     * checks instead of accept.
+     */
+    private static final class InstanceofCounter extends Counter {
+
+        @Override
+        public Integer visit(Ast ast) {
+            if (ast instanceof Ast.Source) {
+                return visit((Ast.Source) ast);
+            } else if (ast instanceof Ast.Field) {
+                return visit((Ast.Field) ast);
+            } else if (ast instanceof Ast.Method) {
+                return visit((Ast.Method) ast);
+            } else if (ast instanceof Ast.Stmt.Expression) {
+                return visit((Ast.Stmt.Expression) ast);
+            } else if (ast instanceof Ast.Stmt.Declaration) {
+                return visit((Ast.Stmt.Declaration) ast);
+            } else if (ast instanceof Ast.Stmt.Assignment) {
+                return visit((Ast.Stmt.Assignment) ast);
+            } else if (ast instanceof Ast.Stmt.If) {
+                return visit((Ast.Stmt.If) ast);
+            } else if (ast instanceof Ast.Stmt.For) {
+                return visit((Ast.Stmt.For) ast);
+            } else if (ast instanceof Ast.Stmt.While) {
+                return visit((Ast.Stmt.While) ast);
+            } else if (ast instanceof Ast.Stmt.Return) {
+                return visit((Ast.Stmt.Return) ast);
+            } else if (ast instanceof Ast.Expr.Literal) {
+                return visit((Ast.Expr.Literal) ast);
+            } else if (ast instanceof Ast.Expr.Group) {
+                return visit((Ast.Expr.Group) ast);
+            } else if (ast instanceof Ast.Expr.Binary) {
+                return visit((Ast.Expr.Binary) ast);
+            } else if (ast instanceof Ast.Expr.Access) {
+                return visit((Ast.Expr.Access) ast);
+            } else if (ast instanceof Ast.Expr.Function) {
+                return visit((Ast.Expr.Function) ast);
+            } else {
+                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
+            }
+        }
+
+    }
+
+}
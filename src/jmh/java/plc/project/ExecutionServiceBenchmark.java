@@ -0,0 +1,70 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time per execution when running many small programs through
+ * the {@link ExecutionService}, against running them one after another on
+ * the calling thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class ExecutionServiceBenchmark {
+
+    private static final int EXECUTIONS = 1000;
+
+    private Ast.Source source;
+    private ExecutionService service;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = new Parser(new Lexer(Programs.generate("loop", 100)).lex()).parseSource();
+        service = new ExecutionService(new plc.project.Scope(null));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(service.getMetrics());
+        service.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXECUTIONS)
+    public Object concurrent() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[EXECUTIONS];
+        for (int i = 0; i < EXECUTIONS; i++) {
+            futures[i] = service.submit(source);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXECUTIONS)
+    public Object sequential() {
+        Object result = null;
+        for (int i = 0; i < EXECUTIONS; i++) {
+            result = new Interpreter(new plc.project.Scope(null)).visit(source);
+        }
+        return result;
+    }
+
+}
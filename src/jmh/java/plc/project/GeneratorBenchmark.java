@@ -0,0 +1,44 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class GeneratorBenchmark {
+
+    @Benchmark
+    public String generate(ProgramState state) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(state.source);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public String generateParallel(ProgramState state) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer), ForkJoinPool.commonPool()).visit(state.source);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public byte[] generateBytecode(ProgramState state) {
+        BytecodeGenerator generator = new BytecodeGenerator("Main");
+        generator.visit(state.source);
+        return generator.toByteArray();
+    }
+
+}
@@ -0,0 +1,58 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compiling a program through javac with the
+ * {@link InMemoryCompiler}, against compiling it again once it is cached.
+ * The {@code string} shape is left out since its literal is too long for
+ * javac.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class InMemoryCompilerBenchmark {
+
+    @Param({"expression", "methods", "loop", "recursion"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private String input;
+    private InMemoryCompiler cached;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = Programs.generate(shape, size);
+        cached = new InMemoryCompiler();
+        cached.compile(input);
+    }
+
+    @Benchmark
+    public Class<?> compile() {
+        return new InMemoryCompiler().compile(input);
+    }
+
+    @Benchmark
+    public Class<?> compileCached() {
+        return cached.compile(input);
+    }
+
+}
@@ -0,0 +1,68 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a one character edit in the middle method of a
+ * program of many methods, parsed by the {@link IncrementalParser} against
+ * lexing and parsing the whole edited source.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class IncrementalParserBenchmark {
+
+    @State(Scope.Thread)
+    public static class EditState {
+
+        @Param({"10", "100", "1000"})
+        public int size;
+
+        public IncrementalParser parser;
+        public String[] inputs;
+        public int offset;
+        public int edits;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            String input = Programs.manyMethods(size);
+            offset = input.indexOf("x * 2", input.indexOf("DEF method" + size / 2 + "(")) + 4;
+            inputs = new String[] {input.substring(0, offset) + "3" + input.substring(offset + 1), input};
+            parser = new IncrementalParser(input);
+        }
+
+        /**
+         * Returns the next digit, alternating the edit between two values.
+         */
+        public String next() {
+            return (edits++ & 1) == 0 ? "3" : "2";
+        }
+
+    }
+
+    @Benchmark
+    public Ast.Source reparseEdit(EditState state) {
+        return state.parser.edit(state.offset, 1, state.next());
+    }
+
+    @Benchmark
+    public Ast.Source parseEdited(EditState state) {
+        return new Parser(new Lexer(state.inputs[state.edits++ & 1]).lex()).parseSource();
+    }
+
+}
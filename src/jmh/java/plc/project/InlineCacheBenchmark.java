@@ -0,0 +1,59 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures interpreting the recursive Fibonacci method, which is mostly
+ * calls, with and without looking functions up through inline caches, both
+ * unresolved and resolved.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class InlineCacheBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FibonacciState {
+
+        @Param({"false", "true"})
+        public boolean resolved;
+
+        public Ast.Source source;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            source = new Parser(new Lexer(Programs.fibonacci(20)).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(source);
+            if (resolved) {
+                new Resolver().visit(source);
+            }
+        }
+
+    }
+
+    @Benchmark
+    public Environment.PlcObject lookup(FibonacciState state) {
+        return new Interpreter(new plc.project.Scope(null), true, 0, false).visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject inlineCache(FibonacciState state) {
+        return new Interpreter(new plc.project.Scope(null), true, 0, true).visit(state.source);
+    }
+
+}
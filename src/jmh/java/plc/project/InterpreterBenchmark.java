@@ -0,0 +1,40 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class InterpreterBenchmark {
+
+    @Benchmark
+    public Environment.PlcObject interpret(ProgramState state) {
+        return new Interpreter(new Scope(null)).visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretResolved(ProgramState state) {
+        return new Interpreter(new Scope(null)).visit(state.resolved);
+    }
+
+    @Benchmark
+    public Environment.PlcObject runCompiled(ProgramState state) {
+        return state.program.run(new Scope(null));
+    }
+
+    @Benchmark
+    public int runBytecode(ProgramState state) {
+        return BytecodeGenerator.run(state.main);
+    }
+
+}
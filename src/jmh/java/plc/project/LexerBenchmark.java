@@ -0,0 +1,66 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of each lexer, in programs lexed per microsecond
+ * and, as the {@code bytes} counter, in bytes lexed per microsecond, which is
+ * MB/s since the programs are ASCII.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class LexerBenchmark {
+
+    /**
+     * Counts the bytes of input lexed, which JMH reports as a rate alongside
+     * each benchmark's own.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    @Benchmark
+    public List<Token> lexer(ProgramState state, Bytes bytes) {
+        bytes.bytes += state.input.length();
+        return new Lexer(state.input).lex();
+    }
+
+    @Benchmark
+    public List<Token> tableLexer(ProgramState state, Bytes bytes) {
+        bytes.bytes += state.input.length();
+        return new TableLexer(state.input).lex();
+    }
+
+    @Benchmark
+    public TokenBuffer tokenBuffer(ProgramState state, Bytes bytes) {
+        bytes.bytes += state.input.length();
+        return TokenBuffer.lex(state.input);
+    }
+
+}
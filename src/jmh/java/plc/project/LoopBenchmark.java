@@ -0,0 +1,59 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures interpreting an unresolved loop of 10M iterations, whose blocks
+ * don't declare anything so don't get a scope, with and without its
+ * invariant expressions hoisted by the {@link Optimizer}. Run with
+ * {@code -prof gc} for the allocation per iteration.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class LoopBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoopState {
+
+        @Param({"10000000"})
+        public int iterations;
+
+        public Ast.Source source;
+        public Ast.Source hoisted;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            source = new Parser(new Lexer(Programs.invariantLoop(iterations)).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(source);
+            hoisted = new Optimizer(true).visit(source);
+        }
+
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpret(LoopState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretHoisted(LoopState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.hoisted);
+    }
+
+}
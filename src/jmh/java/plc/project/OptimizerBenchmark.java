@@ -0,0 +1,98 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures interpreting a loop of constant expressions, and a loop of
+ * templated blocks with dead code, before and after the {@link Optimizer},
+ * and the cost of optimizing them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class OptimizerBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoopState {
+
+        @Param({"100", "10000"})
+        public int iterations;
+
+        public Ast.Source source;
+        public Ast.Source optimized;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            source = new Parser(new Lexer(Programs.constantLoop(iterations)).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(source);
+            optimized = new Optimizer().visit(source);
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class TemplateState {
+
+        @Param({"10", "100"})
+        public int blocks;
+
+        public Ast.Source source;
+        public Ast.Source optimized;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            source = new Parser(new Lexer(Programs.templated(blocks)).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(source);
+            Optimizer optimizer = new Optimizer();
+            optimized = optimizer.visit(source);
+            System.out.println("Eliminated " + optimizer.getEliminated() + " nodes.");
+        }
+
+    }
+
+    @Benchmark
+    public Ast.Source optimize(LoopState state) {
+        return new Optimizer().visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpret(LoopState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretOptimized(LoopState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.optimized);
+    }
+
+    @Benchmark
+    public Ast.Source optimizeTemplate(TemplateState state) {
+        return new Optimizer().visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretTemplate(TemplateState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.source);
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretTemplateOptimized(TemplateState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.optimized);
+    }
+
+}
@@ -0,0 +1,40 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing, and lexing then parsing with a token list against a
+ * {@link TokenBuffer}. Run with {@code -Pjmh="ParserBenchmark -prof gc"} to
+ * compare the bytes allocated and garbage collections of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class ParserBenchmark {
+
+    @Benchmark
+    public Ast.Source parseSource(ProgramState state) {
+        return new Parser(state.tokens).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source lexAndParseTokenList(ProgramState state) {
+        return new Parser(new TableLexer(state.input).lex()).parseSource();
+    }
+
+    @Benchmark
+    public Ast.Source lexAndParseTokenBuffer(ProgramState state) {
+        return new Parser(TokenBuffer.lex(state.input)).parseSource();
+    }
+
+}
@@ -0,0 +1,49 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * The benchmark input, a program from {@link Programs} along with its tokens
+ * and AST so each benchmark only measures its own stage of the pipeline. The
+ * {@code resolved} AST has also been through the {@link Resolver}, and the
+ * {@code program} is the same AST compiled by the {@link ClosureCompiler}.
+ * The {@code main} class is the source compiled by the
+ * {@link BytecodeGenerator}.
+ */
+@State(Scope.Benchmark)
+public class ProgramState {
+
+    @Param({"expression", "methods", "loop", "recursion", "string"})
+    public String shape;
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    public String input;
+    public List<Token> tokens;
+    public Ast.Source source;
+    public Ast.Source resolved;
+    public ClosureCompiler.Program program;
+    public Class<?> main;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        input = Programs.generate(shape, size);
+        tokens = new Lexer(input).lex();
+        source = new Parser(tokens).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(source);
+        // Resolving annotates the AST, so it is kept separate from the source
+        resolved = new Parser(tokens).parseSource();
+        new Analyzer(new plc.project.Scope(null)).visit(resolved);
+        new Resolver().visit(resolved);
+        program = new ClosureCompiler().compile(resolved);
+        main = BytecodeGenerator.compile(source);
+    }
+
+}
@@ -0,0 +1,225 @@
+package plc.project;
+
+/**
+ * Generates synthetic PLC programs for the benchmarks. Every program passes
+ * the {@link Analyzer}, returns an Integer from {@code main}, and does not
+ * print, so it can be run through every stage of the pipeline.
+ */
+public final class Programs {
+
+    private Programs() {}
+
+    /**
+     * Returns the program of the given shape and size, where the shape is one
+     * of {@code expression}, {@code methods}, {@code loop}, {@code recursion}
+     * or {@code string}.
+     */
+    public static String generate(String shape, int size) {
+        switch (shape) {
+            case "expression":
+                return deepExpression(size);
+            case "methods":
+                return manyMethods(size);
+            case "loop":
+                return longLoop(size);
+            case "recursion":
+                return recursion(size);
+            case "string":
+                return bigString(size);
+            default:
+                throw new IllegalArgumentException("Unknown program shape " + shape + ".");
+        }
+    }
+
+    /**
+     * An expression of {@code depth} nested groups, {@code (x + (x - (...)))}.
+     */
+    public static String deepExpression(int depth) {
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            expression.append("(x ").append(i % 2 == 0 ? "+" : "-").append(" ");
+        }
+        expression.append("x");
+        for (int i = 0; i < depth; i++) {
+            expression.append(")");
+        }
+        return "DEF main(): Integer DO\n" +
+                "    LET x: Integer = 1;\n" +
+                "    RETURN " + expression + ";\n" +
+                "END";
+    }
+
+    /**
+     * {@code count} methods, each called once from {@code main}.
+     */
+    public static String manyMethods(int count) {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            source.append("DEF method").append(i).append("(x: Integer): Integer DO\n")
+                    .append("    LET y: Integer = x * 2;\n")
+                    .append("    IF y > 1000 DO\n")
+                    .append("        y = y / 3;\n")
+                    .append("    END\n")
+                    .append("    RETURN y + ").append(i).append(";\n")
+                    .append("END\n\n");
+        }
+        source.append("DEF main(): Integer DO\n");
+        source.append("    LET total: Integer = 0;\n");
+        for (int i = 0; i < count; i++) {
+            source.append("    total = method").append(i).append("(total);\n");
+        }
+        source.append("    RETURN total;\n");
+        source.append("END");
+        return source.toString();
+    }
+
+    /**
+     * A {@code WHILE} loop running for {@code iterations} iterations.
+     */
+    public static String longLoop(int iterations) {
+        return "DEF main(): Integer DO\n" +
+                "    LET i: Integer = 0;\n" +
+                "    LET sum: Integer = 0;\n" +
+                "    WHILE i < " + iterations + " DO\n" +
+                "        sum = sum + i * 2 - i;\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END";
+    }
+
+    /**
+     * A {@code WHILE} loop running for {@code iterations} iterations, whose
+     * body computes constant expressions, for the {@link Optimizer} to fold.
+     */
+    public static String constantLoop(int iterations) {
+        return "DEF main(): Integer DO\n" +
+                "    LET i: Integer = 0;\n" +
+                "    LET sum: Integer = 0;\n" +
+                "    WHILE i < " + iterations + " * 1 DO\n" +
+                "        sum = sum + 60 * 60 * 24 / (2 + 2) - i;\n" +
+                "        IF TRUE AND i > 10 - 10 OR FALSE DO\n" +
+                "            sum = sum - (1 + 1);\n" +
+                "        END\n" +
+                "        i = i + (3 - 2);\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END";
+    }
+
+    /**
+     * A loop of {@code blocks} blocks as output by a template, each an
+     * {@code IF} with a constant condition, along with a {@code WHILE FALSE}
+     * and a statement after the {@code RETURN}, for the {@link Optimizer} to
+     * remove.
+     */
+    public static String templated(int blocks) {
+        StringBuilder source = new StringBuilder();
+        source.append("DEF main(): Integer DO\n");
+        source.append("    LET i: Integer = 0;\n");
+        source.append("    LET sum: Integer = 0;\n");
+        source.append("    WHILE i < 100 DO\n");
+        for (int j = 0; j < blocks; j++) {
+            source.append("        IF ").append(j % 2 == 0 ? "TRUE" : "FALSE").append(" DO\n")
+                    .append("            sum = sum + ").append(j).append(";\n")
+                    .append("        ELSE\n")
+                    .append("            sum = sum - ").append(j).append(";\n")
+                    .append("        END\n")
+                    .append("        WHILE FALSE DO\n")
+                    .append("            sum = 0;\n")
+                    .append("        END\n");
+        }
+        source.append("        i = i + 1;\n");
+        source.append("    END\n");
+        source.append("    RETURN sum;\n");
+        source.append("    print(sum);\n");
+        source.append("END");
+        return source.toString();
+    }
+
+    /**
+     * A method which recurses {@code depth} times, returning from within an
+     * {@code IF} at the bottom.
+     */
+    public static String recursion(int depth) {
+        return "DEF sum(n: Integer): Integer DO\n" +
+                "    IF n == 0 DO\n" +
+                "        RETURN 0;\n" +
+                "    END\n" +
+                "    RETURN n + sum(n - 1);\n" +
+                "END\n" +
+                "DEF main(): Integer DO\n" +
+                "    RETURN sum(" + depth + ");\n" +
+                "END";
+    }
+
+    /**
+     * The same sum as {@link #recursion(int)}, with the recursive call in
+     * tail position by passing the sum so far along, see
+     * {@link Ast.Stmt.Return#isTailCall(Ast.Method)}.
+     */
+    public static String tailRecursion(int depth) {
+        return "DEF sum(n: Integer, acc: Integer): Integer DO\n" +
+                "    IF n == 0 DO\n" +
+                "        RETURN acc;\n" +
+                "    END\n" +
+                "    RETURN sum(n - 1, acc + n);\n" +
+                "END\n" +
+                "DEF main(): Integer DO\n" +
+                "    RETURN sum(" + depth + ", 0);\n" +
+                "END";
+    }
+
+    /**
+     * A {@code WHILE} loop running for {@code iterations} iterations with an
+     * {@code IF} in its body declaring nothing, and expressions which are the
+     * same in every iteration, see {@link Optimizer#Optimizer(boolean)}.
+     */
+    public static String invariantLoop(int iterations) {
+        return "DEF main(): Integer DO\n" +
+                "    LET n: Integer = " + iterations + ";\n" +
+                "    LET scale: Integer = 3;\n" +
+                "    LET i = 0;\n" +
+                "    LET sum = 0;\n" +
+                "    WHILE i < n DO\n" +
+                "        IF i * scale < n * scale DO\n" +
+                "            sum = sum + (scale * scale - 8);\n" +
+                "        END\n" +
+                "        i = i + 1;\n" +
+                "    END\n" +
+                "    RETURN sum;\n" +
+                "END";
+    }
+
+    /**
+     * The naive recursive Fibonacci method, called for the {@code n}th
+     * number, which is pure so can be memoized, see {@link Memoizer}.
+     */
+    public static String fibonacci(int n) {
+        return "DEF fib(n: Integer): Integer DO\n" +
+                "    IF n < 2 DO\n" +
+                "        RETURN n;\n" +
+                "    END\n" +
+                "    RETURN fib(n - 1) + fib(n - 2);\n" +
+                "END\n" +
+                "DEF main(): Integer DO\n" +
+                "    RETURN fib(" + n + ");\n" +
+                "END";
+    }
+
+    /**
+     * A string field of {@code length} kilobytes, including escapes.
+     */
+    public static String bigString(int length) {
+        StringBuilder string = new StringBuilder();
+        for (int i = 0; i < length * 64; i++) {
+            string.append("abcdefghijklm\\t");
+        }
+        return "LET text: String = \"" + string + "\";\n" +
+                "DEF main(): Integer DO\n" +
+                "    LET copy: String = text + text;\n" +
+                "    RETURN 0;\n" +
+                "END";
+    }
+
+}
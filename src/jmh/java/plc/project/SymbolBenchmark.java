@@ -0,0 +1,98 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up a function through a chain of scopes by its
+ * {@link Symbol}, against building a {@code name/arity} string key for each
+ * scope's map as lookups did before, and interpreting a recursive method
+ * whose calls are all looked up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class SymbolBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ChainState {
+
+        @Param({"1", "4"})
+        public int depth;
+
+        public plc.project.Scope scope;
+        public Symbol symbol;
+        public String name;
+        public Map<String, Environment.Function>[] maps;
+
+        @Setup(Level.Trial)
+        @SuppressWarnings("unchecked")
+        public void setup() {
+            scope = new plc.project.Scope(null);
+            scope.defineFunction("target", 2, args -> Environment.NIL);
+            maps = new Map[depth];
+            for (int i = 0; i < depth; i++) {
+                maps[i] = new HashMap<>();
+            }
+            maps[depth - 1].put("target/2", scope.lookupFunction("target", 2));
+            for (int i = 1; i < depth; i++) {
+                scope = new plc.project.Scope(scope);
+                scope.defineFunction("other" + i, 2, args -> Environment.NIL);
+                maps[depth - 1 - i].put("other" + i + "/2", scope.lookupFunction("other" + i, 2));
+            }
+            symbol = Symbol.of("target");
+            name = new String("target");
+        }
+
+    }
+
+    @State(Scope.Benchmark)
+    public static class RecursionState {
+
+        public Ast.Source source;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            source = new Parser(new Lexer(Programs.recursion(1000)).lex()).parseSource();
+        }
+
+    }
+
+    @Benchmark
+    public Environment.Function lookupSymbol(ChainState state) {
+        return state.scope.lookupFunction(state.symbol, 2);
+    }
+
+    @Benchmark
+    public Environment.Function lookupStringKey(ChainState state) {
+        for (Map<String, Environment.Function> map : state.maps) {
+            Environment.Function function = map.get(state.name + "/" + 2);
+            if (function != null) {
+                return function;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public Environment.PlcObject interpretRecursion(RecursionState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.source);
+    }
+
+}
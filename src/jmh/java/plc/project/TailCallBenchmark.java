@@ -0,0 +1,65 @@
+package plc.project;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures interpreting deep recursion summing the numbers up to the depth,
+ * with the recursive call nested in an addition against in tail position,
+ * which runs as a loop, both resolved. The stack is large enough for the
+ * nested calls.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xss64m")
+public class TailCallBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RecursionState {
+
+        @Param({"1000", "10000"})
+        public int depth;
+
+        public Ast.Source nested;
+        public Ast.Source tail;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            nested = resolve(Programs.recursion(depth));
+            tail = resolve(Programs.tailRecursion(depth));
+        }
+
+        private static Ast.Source resolve(String input) {
+            Ast.Source source = new Parser(new Lexer(input).lex()).parseSource();
+            new Analyzer(new plc.project.Scope(null)).visit(source);
+            new Resolver().visit(source);
+            return source;
+        }
+
+    }
+
+    @Benchmark
+    public Environment.PlcObject nested(RecursionState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.nested);
+    }
+
+    @Benchmark
+    public Environment.PlcObject tail(RecursionState state) {
+        return new Interpreter(new plc.project.Scope(null)).visit(state.tail);
+    }
+
+}
@@ -3,6 +3,8 @@ package plc.project;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 
 /**
@@ -13,10 +15,38 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     public Scope scope;
     private Ast.Method method;
+    private final ForkJoinPool pool;
+    private final Map<Environment.Function, Integer> positions;
+    private final Scope source;
 
     public Analyzer(Scope parent) {
+        this(parent, null);
+    }
+
+    /**
+     * Creates an analyzer which analyzes the bodies of methods in parallel on
+     * the pool, if it isn't null. The results and errors are the same as
+     * analyzing them sequentially, see {@link #visitParallel(List)}.
+     */
+    public Analyzer(Scope parent, ForkJoinPool pool) {
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
+        this.pool = pool;
+        this.positions = null;
+        this.source = scope;
+    }
+
+    /**
+     * Creates an analyzer for the body of a method in the scope it is defined
+     * in, for one of the tasks of {@link #visitParallel(List)}. The positions
+     * are those of the methods in the source, so calls to methods after the
+     * one analyzed can be resolved as if they weren't defined yet.
+     */
+    private Analyzer(Map<Environment.Function, Integer> positions, Scope scope) {
+        this.scope = scope;
+        this.pool = null;
+        this.positions = positions;
+        this.source = scope;
     }
 
     public Scope getScope() {
@@ -29,8 +59,12 @@ public final class Analyzer implements Ast.Visitor<Void> {
         for (Ast.Field field : ast.getFields()) {
             visit(field);
         }
-        for (Ast.Method method : ast.getMethods()) {
-            visit(method);
+        if (pool == null) {
+            for (Ast.Method method : ast.getMethods()) {
+                visit(method);
+            }
+        } else {
+            visitParallel(ast.getMethods());
         }
         Environment.Function env = scope.lookupFunction("main", 0);
 
@@ -55,9 +89,72 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return null;
     }
 
+    /**
+     * Defines the signatures of the methods in order, up to the first which
+     * fails, then analyzes the bodies before it in parallel. Each body only
+     * defines variables in its own scopes, so the shared scope is only read,
+     * and calls to methods after it are resolved as if they weren't defined
+     * yet, see {@link #resolveLater(Ast.Expr.Function)}. The first error in
+     * the source, of a body or then the failed signature, is thrown, as it
+     * would be sequentially.
+     */
+    private void visitParallel(List<Ast.Method> methods) {
+        Map<Environment.Function, Integer> positions = new IdentityHashMap<>();
+        RuntimeException signature = null;
+        for (Ast.Method method : methods) {
+            try {
+                defineSignature(method);
+            } catch (RuntimeException e) {
+                signature = e;
+                break;
+            }
+            positions.put(method.getFunction(), positions.size());
+        }
+        Scope shared = scope;
+        List<ForkJoinTask<RuntimeException>> tasks = new ArrayList<>();
+        for (Ast.Method method : methods.subList(0, positions.size())) {
+            tasks.add(pool.submit(() -> {
+                try {
+                    new Analyzer(positions, shared).visitBody(method);
+                    return null;
+                } catch (RuntimeException e) {
+                    return e;
+                }
+            }));
+        }
+        for (ForkJoinTask<RuntimeException> task : tasks) {
+            RuntimeException exception = task.join();
+            if (exception != null) {
+                throw exception;
+            }
+        }
+        if (signature != null) {
+            throw signature;
+        }
+    }
+
+    /**
+     * Returns the function a call would resolve to sequentially, when it
+     * resolved to a method after the one being analyzed in parallel. Methods
+     * are the only functions of the source scope besides {@code print}, and
+     * can't be redefined in it, so the call resolves to a function of the
+     * parent scopes, if any.
+     */
+    private Environment.Function resolveLater(Ast.Expr.Function ast) {
+        if (source.getParent() == null) {
+            throw new RuntimeException("The function " + Symbol.of(ast.getName()).function(ast.getArguments().size()) + " is not defined in this scope.");
+        }
+        return source.getParent().lookupFunction(ast.getName(), ast.getArguments().size());
+    }
+
     @Override
     public Void visit(Ast.Method ast) {
-        this.method = ast;
+        defineSignature(ast);
+        visitBody(ast);
+        return null;
+    }
+
+    private void defineSignature(Ast.Method ast) {
         // Create a list of parameter types
         ArrayList<Environment.Type> parameterTypes = new ArrayList<>();
         for (String typeName : ast.getParameterTypeNames()) {
@@ -72,6 +169,11 @@ public final class Analyzer implements Ast.Visitor<Void> {
                 ast.getName(), ast.getName(), parameterTypes, returnType, args -> Environment.NIL
         );
         ast.setFunction(methodFunction);
+    }
+
+    private void visitBody(Ast.Method ast) {
+        this.method = ast;
+        List<Environment.Type> parameterTypes = ast.getFunction().getParameterTypes();
         // Enter a new scope for the method body
         scope = new Scope(scope);
         // Define parameters as variables in the new scope
@@ -95,7 +197,6 @@ public final class Analyzer implements Ast.Visitor<Void> {
         this.method = null;
         // Exit the scope after processing the method
         scope = scope.getParent();
-        return null;
     }
 
     @Override
@@ -417,6 +518,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
         } else {
             // Lookup the function in the current scope using its name and argument count
             function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+            if (positions != null && positions.getOrDefault(function, -1) > positions.get(method.getFunction())) {
+                function = resolveLater(ast);
+            }
             if (function == null) {
                 throw new RuntimeException("The function " + ast.getName() + "/" + ast.getArguments().size() + " is not defined in this scope.");
             }
@@ -11,6 +11,12 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    /**
+     * Calls the visitor's method for the class of this node, so dispatching
+     * a node is a single virtual call rather than a chain of instanceof checks.
+     */
+    public abstract <T> T accept(Visitor<T> visitor);
+
     public static final class Source extends Ast {
 
         private final List<Field> fields;
@@ -29,6 +35,11 @@ public abstract class Ast {
             return methods;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -52,6 +63,7 @@ public abstract class Ast {
         private final String typeName;
         private final Optional<Expr> value;
         private Environment.Variable variable = null;
+        private int slot = -1;
 
         public Field(String name, Optional<Expr> value) {
             this(name, "Any", value);
@@ -86,6 +98,23 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        /**
+         * Returns the global slot assigned by the {@link Resolver}, or -1 if
+         * the field is unresolved.
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Field &&
@@ -115,6 +144,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Stmt> statements;
         private Environment.Function function = null;
+        private int frameSize = -1;
 
         public Method(String name, List<String> parameters, List<Stmt> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -162,6 +192,23 @@ public abstract class Ast {
             this.function = function;
         }
 
+        /**
+         * Returns the number of local slots, including parameters, assigned
+         * by the {@link Resolver}, or -1 if the method is unresolved.
+         */
+        public int getFrameSize() {
+            return frameSize;
+        }
+
+        public void setFrameSize(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Method &&
@@ -189,6 +236,22 @@ public abstract class Ast {
 
     public static abstract class Stmt extends Ast {
 
+        /**
+         * Returns whether any of the statements of a block declares a
+         * variable, which is marked on the statement owning the block when it
+         * is created. Blocks which declare nothing don't need a scope of their
+         * own when interpreted, as nothing is defined in it, while blocks of
+         * nested statements have their own scopes as needed.
+         */
+        public static boolean declares(List<Stmt> statements) {
+            for (Stmt statement : statements) {
+                if (statement instanceof Declaration) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         public static final class Expression extends Stmt {
 
             private final Expr expression;
@@ -201,6 +264,11 @@ public abstract class Ast {
                 return expression;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Expression &&
@@ -222,6 +290,7 @@ public abstract class Ast {
             private final Optional<String> typeName;
             private final Optional<Expr> value;
             private Environment.Variable variable;
+            private int slot = -1;
 
             public Declaration(String name, Optional<Expr> value) {
                 this(name, Optional.empty(), value);
@@ -256,6 +325,23 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the local slot assigned by the {@link Resolver}, or -1
+             * if the declaration is unresolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -295,6 +381,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
@@ -317,12 +408,15 @@ public abstract class Ast {
             private final Expr condition;
             private final List<Stmt> thenStatements;
             private final List<Stmt> elseStatements;
-
+            private final boolean thenScope;
+            private final boolean elseScope;
 
             public If(Expr condition, List<Stmt> thenStatements, List<Stmt> elseStatements) {
                 this.condition = condition;
                 this.thenStatements = thenStatements;
                 this.elseStatements = elseStatements;
+                this.thenScope = declares(thenStatements);
+                this.elseScope = declares(elseStatements);
             }
 
             public Expr getCondition() {
@@ -337,6 +431,23 @@ public abstract class Ast {
                 return elseStatements;
             }
 
+            /**
+             * Returns whether the then statements declare a variable, so need
+             * a scope of their own, see {@link Stmt#declares(List)}.
+             */
+            public boolean hasThenScope() {
+                return thenScope;
+            }
+
+            public boolean hasElseScope() {
+                return elseScope;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
@@ -361,11 +472,14 @@ public abstract class Ast {
             private final String name;
             private final Expr value;
             private final List<Stmt> statements;
+            private final boolean scope;
+            private int slot = -1;
 
             public For(String name, Expr value, List<Stmt> statements) {
                 this.name = name;
                 this.value = value;
                 this.statements = statements;
+                this.scope = declares(statements);
             }
 
             public String getName() {
@@ -380,6 +494,31 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns whether the statements declare a variable, so need a new
+             * scope for each iteration rather than one for the loop variable.
+             */
+            public boolean hasScope() {
+                return scope;
+            }
+
+            /**
+             * Returns the local slot of the loop variable assigned by the
+             * {@link Resolver}, or -1 if the loop is unresolved.
+             */
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int slot) {
+                this.slot = slot;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof For &&
@@ -403,10 +542,12 @@ public abstract class Ast {
 
             private final Expr condition;
             private final List<Stmt> statements;
+            private final boolean scope;
 
             public While(Expr condition, List<Stmt> statements) {
                 this.condition = condition;
                 this.statements = statements;
+                this.scope = declares(statements);
             }
 
             public Expr getCondition() {
@@ -417,6 +558,19 @@ public abstract class Ast {
                 return statements;
             }
 
+            /**
+             * Returns whether the statements declare a variable, so need a new
+             * scope for each iteration.
+             */
+            public boolean hasScope() {
+                return scope;
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
@@ -446,6 +600,27 @@ public abstract class Ast {
                 return value;
             }
 
+            /**
+             * Returns true if this returns a call of the method itself, which
+             * is a tail call as the method has nothing left to do once the
+             * call returns, so it can continue with the new arguments in a
+             * loop instead of calling itself.
+             */
+            public boolean isTailCall(Method method) {
+                if (!(value instanceof Expr.Function)) {
+                    return false;
+                }
+                Expr.Function function = (Expr.Function) value;
+                return !function.getReceiver().isPresent() &&
+                        function.getName().equals(method.getName()) &&
+                        function.getArguments().size() == method.getParameters().size();
+            }
+
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
@@ -492,6 +667,11 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Literal &&
@@ -533,6 +713,11 @@ public abstract class Ast {
             public void setType(Environment.Type type) {
                 this.type = type;
             }
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Group &&
@@ -587,6 +772,11 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
@@ -613,6 +803,8 @@ public abstract class Ast {
             private final Optional<Expr> receiver;
             private final String name;
             private Environment.Variable variable = null;
+            private int depth = -1;
+            private int slot = -1;
 
             public Access(Optional<Expr> receiver, String name) {
                 this.receiver = receiver;
@@ -638,11 +830,34 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            /**
+             * Returns the number of frames out from the current method the
+             * variable is stored in, as assigned by the {@link Resolver}: 0
+             * for locals and parameters, 1 for fields, or -1 if unresolved.
+             */
+            public int getDepth() {
+                return depth;
+            }
+
+            public int getSlot() {
+                return slot;
+            }
+
+            public void setSlot(int depth, int slot) {
+                this.depth = depth;
+                this.slot = slot;
+            }
+
             @Override
             public Environment.Type getType() {
                 return getVariable().getType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Access &&
@@ -665,14 +880,20 @@ public abstract class Ast {
         public static final class Function extends Expr {
 
             private final Optional<Expr> receiver;
-            private final String name;
+            private final Symbol symbol;
             private final List<Expr> arguments;
+            private final int site;
             private Environment.Function function = null;
 
             public Function(Optional<Expr> receiver, String name, List<Expr> arguments) {
+                this(receiver, name, arguments, -1);
+            }
+
+            public Function(Optional<Expr> receiver, String name, List<Expr> arguments, int site) {
                 this.receiver = receiver;
-                this.name = name;
+                this.symbol = Symbol.of(name);
                 this.arguments = arguments;
+                this.site = site;
             }
 
             public Optional<Expr> getReceiver() {
@@ -680,13 +901,30 @@ public abstract class Ast {
             }
 
             public String getName() {
-                return name;
+                return symbol.getName();
+            }
+
+            /**
+             * Returns the symbol of the name, which the function is looked up
+             * by when it is called.
+             */
+            public Symbol getSymbol() {
+                return symbol;
             }
 
             public List<Expr> getArguments() {
                 return arguments;
             }
 
+            /**
+             * Returns the index of the call site among those of the source,
+             * which the {@link Interpreter} keeps its {@link InlineCache}s by,
+             * or -1 if it wasn't parsed. This isn't part of the AST's value.
+             */
+            public int getSite() {
+                return site;
+            }
+
             public Environment.Function getFunction() {
                 if (function == null) {
                     throw new IllegalStateException("function is uninitialized");
@@ -703,11 +941,16 @@ public abstract class Ast {
                 return getFunction().getReturnType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Function &&
                         receiver.equals(((Function) obj).receiver) &&
-                        name.equals(((Function) obj).name) &&
+                        symbol == ((Function) obj).symbol &&
                         arguments.equals(((Function) obj).arguments) &&
                         Objects.equals(function, ((Function) obj).function);
             }
@@ -716,7 +959,7 @@ public abstract class Ast {
             public String toString() {
                 return "Ast.Expr.Function{" +
                         "receiver=" + receiver +
-                        ", name='" + name + '\'' +
+                        ", name='" + symbol + '\'' +
                         ", arguments=" + arguments +
                         ", function=" + function +
                         '}';
@@ -729,39 +972,7 @@ public abstract class Ast {
     public interface Visitor<T> {
 
         default T visit(Ast ast) {
-            if (ast instanceof Source) {
-                return visit((Source) ast);
-            } else if (ast instanceof Field) {
-                return visit((Field) ast);
-            } else if (ast instanceof Method) {
-                return visit((Method) ast);
-            } else if (ast instanceof Stmt.Expression) {
-                return visit((Stmt.Expression) ast);
-            } else if (ast instanceof Stmt.Declaration) {
-                return visit((Stmt.Declaration) ast);
-            } else if (ast instanceof Stmt.Assignment) {
-                return visit((Stmt.Assignment) ast);
-            } else if (ast instanceof Stmt.If) {
-                return visit((Stmt.If) ast);
-            } else if (ast instanceof Stmt.For) {
-                return visit((Stmt.For) ast);
-            } else if (ast instanceof Stmt.While) {
-                return visit((Stmt.While) ast);
-            } else if (ast instanceof Stmt.Return) {
-                return visit((Stmt.Return) ast);
-            } else if (ast instanceof Expr.Literal) {
-                return visit((Expr.Literal) ast);
-            } else if (ast instanceof Expr.Group) {
-                return visit((Expr.Group) ast);
-            } else if (ast instanceof Expr.Binary) {
-                return visit((Expr.Binary) ast);
-            } else if (ast instanceof Expr.Access) {
-                return visit((Expr.Access) ast);
-            } else if (ast instanceof Expr.Function) {
-                return visit((Expr.Function) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
-            }
+            return ast.accept(this);
         }
 
         T visit(Source ast);
@@ -0,0 +1,63 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Caches analyzed ASTs in a directory, serialized by the {@link AstSerializer}
+ * in a file named by a SHA-256 hash of the source, so loading an unchanged
+ * source again, including after a restart, skips lexing, parsing and
+ * analysis. Cached files are read through a memory mapping, and written to a
+ * temporary file first which is then moved into place, so several processes
+ * may share the directory.
+ *
+ * Sources are analyzed in an empty scope, as by the {@link InMemoryCompiler}.
+ */
+public final class AstCache {
+
+    private static final String EXTENSION = ".ast";
+
+    private final Path directory;
+
+    public AstCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the analyzed AST of the source, from the cache if it has been
+     * loaded before. A cached file which can't be read, such as one written
+     * by an older version, is replaced.
+     */
+    public Ast.Source load(String input) {
+        Path path = directory.resolve(InMemoryCompiler.hash(input) + EXTENSION);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return AstSerializer.deserialize(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            // Not cached yet
+        } catch (IOException | RuntimeException e) {
+            // Unreadable, so it's replaced below
+        }
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        try {
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, null, EXTENSION + ".tmp");
+            try {
+                Files.write(temporary, AstSerializer.serialize(ast));
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ast;
+    }
+
+}
@@ -0,0 +1,569 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Serializes analyzed ASTs to a compact binary format, along with the
+ * variables, functions and types attached by the {@link Analyzer} and the
+ * slots assigned by the {@link Resolver}, if any.
+ *
+ * Integers are written as variable length integers. Strings, variables and
+ * functions are written in full where they first occur and as a reference to
+ * that occurrence after, so a variable shared by its declaration and each
+ * access is still shared once read. Types are written by name, and read as
+ * the registered type of that name. Variables are read with the value nil and
+ * functions with an implementation returning nil, as the {@link Analyzer}
+ * defines them, since neither is used after analysis.
+ */
+public final class AstSerializer implements Ast.Visitor<Void> {
+
+    private static final int MAGIC = 0x504C4341;
+    private static final int VERSION = 1;
+
+    private static final int NONE = 0;
+    private static final int EXPRESSION = 1;
+    private static final int DECLARATION = 2;
+    private static final int ASSIGNMENT = 3;
+    private static final int IF = 4;
+    private static final int FOR = 5;
+    private static final int WHILE = 6;
+    private static final int RETURN = 7;
+    private static final int LITERAL = 8;
+    private static final int GROUP = 9;
+    private static final int BINARY = 10;
+    private static final int ACCESS = 11;
+    private static final int FUNCTION = 12;
+
+    private static final int NIL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INTEGER = 3;
+    private static final int DECIMAL = 4;
+    private static final int CHARACTER = 5;
+    private static final int STRING = 6;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Map<Environment.Variable, Integer> variables = new IdentityHashMap<>();
+    private final Map<Environment.Function, Integer> functions = new IdentityHashMap<>();
+
+    private AstSerializer() {}
+
+    /**
+     * Serializes the source, which must have been analyzed.
+     */
+    public static byte[] serialize(Ast.Source ast) {
+        AstSerializer serializer = new AstSerializer();
+        serializer.writeInt(MAGIC);
+        serializer.writeInt(VERSION);
+        serializer.visit(ast);
+        return serializer.output.toByteArray();
+    }
+
+    /**
+     * Reads a serialized source from the buffer's position, which may be a
+     * memory mapped file. Throws an {@link IllegalArgumentException} if the
+     * buffer doesn't start with a serialized source of this version, and a
+     * {@link java.nio.BufferUnderflowException} if it's truncated.
+     */
+    public static Ast.Source deserialize(ByteBuffer buffer) {
+        return new Reader(buffer).readSource();
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        writeInt(ast.getFields().size());
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        writeInt(ast.getMethods().size());
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        writeString(ast.getName());
+        writeString(ast.getTypeName());
+        writeOptional(ast.getValue());
+        writeVariable(ast.getVariable());
+        writeInt(ast.getSlot() + 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        writeString(ast.getName());
+        writeInt(ast.getParameters().size());
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            writeString(ast.getParameters().get(i));
+            writeString(ast.getParameterTypeNames().get(i));
+        }
+        writeOptionalString(ast.getReturnTypeName());
+        writeStatements(ast.getStatements());
+        writeFunction(ast.getFunction());
+        writeInt(ast.getFrameSize() + 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        writeInt(EXPRESSION);
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        writeInt(DECLARATION);
+        writeString(ast.getName());
+        writeOptionalString(ast.getTypeName());
+        writeOptional(ast.getValue());
+        writeVariable(ast.getVariable());
+        writeInt(ast.getSlot() + 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        writeInt(ASSIGNMENT);
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        writeInt(IF);
+        visit(ast.getCondition());
+        writeStatements(ast.getThenStatements());
+        writeStatements(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        writeInt(FOR);
+        writeString(ast.getName());
+        visit(ast.getValue());
+        writeStatements(ast.getStatements());
+        writeInt(ast.getSlot() + 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        writeInt(WHILE);
+        visit(ast.getCondition());
+        writeStatements(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        writeInt(RETURN);
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        writeInt(LITERAL);
+        Object literal = ast.getLiteral();
+        if (literal == null) {
+            writeInt(NIL);
+        } else if (literal instanceof Boolean) {
+            writeInt((Boolean) literal ? TRUE : FALSE);
+        } else if (literal instanceof BigInteger) {
+            writeInt(INTEGER);
+            writeBytes(((BigInteger) literal).toByteArray());
+        } else if (literal instanceof BigDecimal) {
+            writeInt(DECIMAL);
+            writeBytes(((BigDecimal) literal).unscaledValue().toByteArray());
+            writeInt(zigzag(((BigDecimal) literal).scale()));
+        } else if (literal instanceof Character) {
+            writeInt(CHARACTER);
+            writeInt((Character) literal);
+        } else if (literal instanceof String) {
+            writeInt(STRING);
+            writeString((String) literal);
+        } else {
+            throw new IllegalArgumentException("Unsupported literal " + literal.getClass().getName() + ".");
+        }
+        writeType(ast.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        writeInt(GROUP);
+        visit(ast.getExpression());
+        writeType(ast.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        writeInt(BINARY);
+        writeString(ast.getOperator());
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        writeType(ast.getType());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        writeInt(ACCESS);
+        writeOptional(ast.getReceiver());
+        writeString(ast.getName());
+        writeVariable(ast.getVariable());
+        writeInt(ast.getDepth() + 1);
+        writeInt(ast.getSlot() + 1);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        writeInt(FUNCTION);
+        writeOptional(ast.getReceiver());
+        writeString(ast.getName());
+        writeInt(ast.getArguments().size());
+        for (Ast.Expr argument : ast.getArguments()) {
+            visit(argument);
+        }
+        writeFunction(ast.getFunction());
+        return null;
+    }
+
+    private void writeStatements(List<Ast.Stmt> statements) {
+        writeInt(statements.size());
+        for (Ast.Stmt statement : statements) {
+            visit(statement);
+        }
+    }
+
+    private void writeOptional(Optional<Ast.Expr> expression) {
+        if (expression.isPresent()) {
+            visit(expression.get());
+        } else {
+            writeInt(NONE);
+        }
+    }
+
+    private void writeOptionalString(Optional<String> string) {
+        writeInt(string.isPresent() ? 1 : 0);
+        string.ifPresent(this::writeString);
+    }
+
+    /**
+     * Writes a reference to the string if it was written before, or 0 and
+     * the string where it first occurs.
+     */
+    private void writeString(String string) {
+        Integer index = strings.get(string);
+        if (index != null) {
+            writeInt(index + 1);
+            return;
+        }
+        strings.put(string, strings.size());
+        writeInt(0);
+        writeBytes(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeType(Environment.Type type) {
+        if (Environment.getType(type.getName()) != type) {
+            throw new IllegalArgumentException("The type " + type.getName() + " is not registered.");
+        }
+        writeString(type.getName());
+    }
+
+    private void writeVariable(Environment.Variable variable) {
+        Integer index = variables.get(variable);
+        if (index != null) {
+            writeInt(index + 1);
+            return;
+        }
+        variables.put(variable, variables.size());
+        writeInt(0);
+        writeString(variable.getName());
+        writeString(variable.getJvmName());
+        writeType(variable.getType());
+    }
+
+    private void writeFunction(Environment.Function function) {
+        Integer index = functions.get(function);
+        if (index != null) {
+            writeInt(index + 1);
+            return;
+        }
+        functions.put(function, functions.size());
+        writeInt(0);
+        writeString(function.getName());
+        writeString(function.getJvmName());
+        writeInt(function.getParameterTypes().size());
+        for (Environment.Type type : function.getParameterTypes()) {
+            writeType(type);
+        }
+        writeType(function.getReturnType());
+    }
+
+    private void writeBytes(byte[] bytes) {
+        writeInt(bytes.length);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes an unsigned integer in groups of 7 bits, least significant
+     * first, with the high bit set on every byte but the last.
+     */
+    private void writeInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Environment.Variable> variables = new ArrayList<>();
+        private final List<Environment.Function> functions = new ArrayList<>();
+        // Call sites are numbered in the order read, as the parser numbers them
+        private int sites = 0;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private Ast.Source readSource() {
+            if (readInt() != MAGIC || readInt() != VERSION) {
+                throw new IllegalArgumentException("The buffer does not contain a serialized source of version " + VERSION + ".");
+            }
+            int fieldCount = readInt();
+            List<Ast.Field> fields = new ArrayList<>(fieldCount);
+            for (int i = 0; i < fieldCount; i++) {
+                Ast.Field field = new Ast.Field(readString(), readString(), readOptional());
+                field.setVariable(readVariable());
+                field.setSlot(readInt() - 1);
+                fields.add(field);
+            }
+            int methodCount = readInt();
+            List<Ast.Method> methods = new ArrayList<>(methodCount);
+            for (int i = 0; i < methodCount; i++) {
+                methods.add(readMethod());
+            }
+            return new Ast.Source(fields, methods);
+        }
+
+        private Ast.Method readMethod() {
+            String name = readString();
+            int count = readInt();
+            List<String> parameters = new ArrayList<>(count);
+            List<String> parameterTypeNames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                parameters.add(readString());
+                parameterTypeNames.add(readString());
+            }
+            Ast.Method method = new Ast.Method(name, parameters, parameterTypeNames, readOptionalString(), readStatements());
+            method.setFunction(readFunction());
+            method.setFrameSize(readInt() - 1);
+            return method;
+        }
+
+        private List<Ast.Stmt> readStatements() {
+            int count = readInt();
+            List<Ast.Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(readStatement());
+            }
+            return statements;
+        }
+
+        private Ast.Stmt readStatement() {
+            int tag = readInt();
+            switch (tag) {
+                case EXPRESSION:
+                    return new Ast.Stmt.Expression(readExpression());
+                case DECLARATION: {
+                    Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(readString(), readOptionalString(), readOptional());
+                    declaration.setVariable(readVariable());
+                    declaration.setSlot(readInt() - 1);
+                    return declaration;
+                }
+                case ASSIGNMENT:
+                    return new Ast.Stmt.Assignment(readExpression(), readExpression());
+                case IF:
+                    return new Ast.Stmt.If(readExpression(), readStatements(), readStatements());
+                case FOR: {
+                    Ast.Stmt.For loop = new Ast.Stmt.For(readString(), readExpression(), readStatements());
+                    loop.setSlot(readInt() - 1);
+                    return loop;
+                }
+                case WHILE:
+                    return new Ast.Stmt.While(readExpression(), readStatements());
+                case RETURN:
+                    return new Ast.Stmt.Return(readExpression());
+                default:
+                    throw new IllegalArgumentException("Invalid statement tag " + tag + ".");
+            }
+        }
+
+        private Optional<Ast.Expr> readOptional() {
+            int tag = readInt();
+            return tag == NONE ? Optional.empty() : Optional.of(readExpression(tag));
+        }
+
+        private Ast.Expr readExpression() {
+            return readExpression(readInt());
+        }
+
+        private Ast.Expr readExpression(int tag) {
+            switch (tag) {
+                case LITERAL: {
+                    Ast.Expr.Literal literal = new Ast.Expr.Literal(readLiteral());
+                    literal.setType(readType());
+                    return literal;
+                }
+                case GROUP: {
+                    Ast.Expr.Group group = new Ast.Expr.Group(readExpression());
+                    group.setType(readType());
+                    return group;
+                }
+                case BINARY: {
+                    Ast.Expr.Binary binary = new Ast.Expr.Binary(readString(), readExpression(), readExpression());
+                    binary.setType(readType());
+                    return binary;
+                }
+                case ACCESS: {
+                    Ast.Expr.Access access = new Ast.Expr.Access(readOptional(), readString());
+                    access.setVariable(readVariable());
+                    int depth = readInt() - 1;
+                    access.setSlot(depth, readInt() - 1);
+                    return access;
+                }
+                case FUNCTION: {
+                    Optional<Ast.Expr> receiver = readOptional();
+                    String name = readString();
+                    int count = readInt();
+                    List<Ast.Expr> arguments = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        arguments.add(readExpression());
+                    }
+                    Ast.Expr.Function function = new Ast.Expr.Function(receiver, name, arguments, sites++);
+                    function.setFunction(readFunction());
+                    return function;
+                }
+                default:
+                    throw new IllegalArgumentException("Invalid expression tag " + tag + ".");
+            }
+        }
+
+        private Object readLiteral() {
+            int tag = readInt();
+            switch (tag) {
+                case NIL:
+                    return null;
+                case TRUE:
+                    return true;
+                case FALSE:
+                    return false;
+                case INTEGER:
+                    return new BigInteger(readBytes());
+                case DECIMAL: {
+                    BigInteger unscaled = new BigInteger(readBytes());
+                    int scale = readInt();
+                    return new BigDecimal(unscaled, (scale >>> 1) ^ -(scale & 1));
+                }
+                case CHARACTER:
+                    return (char) readInt();
+                case STRING:
+                    return readString();
+                default:
+                    throw new IllegalArgumentException("Invalid literal tag " + tag + ".");
+            }
+        }
+
+        private Optional<String> readOptionalString() {
+            return readInt() == 0 ? Optional.empty() : Optional.of(readString());
+        }
+
+        private String readString() {
+            int index = readInt();
+            if (index > 0) {
+                return strings.get(index - 1);
+            }
+            String string = new String(readBytes(), StandardCharsets.UTF_8);
+            strings.add(string);
+            return string;
+        }
+
+        private Environment.Type readType() {
+            return Environment.getType(readString());
+        }
+
+        private Environment.Variable readVariable() {
+            int index = readInt();
+            if (index > 0) {
+                return variables.get(index - 1);
+            }
+            Environment.Variable variable = new Environment.Variable(readString(), readString(), readType(), Environment.NIL);
+            variables.add(variable);
+            return variable;
+        }
+
+        private Environment.Function readFunction() {
+            int index = readInt();
+            if (index > 0) {
+                return functions.get(index - 1);
+            }
+            String name = readString();
+            String jvmName = readString();
+            int count = readInt();
+            List<Environment.Type> parameterTypes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                parameterTypes.add(readType());
+            }
+            Environment.Function function = new Environment.Function(name, jvmName, parameterTypes, readType(), args -> Environment.NIL);
+            functions.add(function);
+            return function;
+        }
+
+        private byte[] readBytes() {
+            byte[] bytes = new byte[readInt()];
+            buffer.get(bytes);
+            return bytes;
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,791 @@
+package plc.project;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static plc.project.ClassFile.*;
+
+/**
+ * Compiles an analyzed source directly to a JVM class, instead of printing
+ * Java source like the {@link Generator}. The class has the same shape as
+ * the generated source: fields and methods become instance members of the
+ * class, with types mapped through {@link Environment.Type#getJvmName()}, so
+ * programs have the semantics of the generated Java (ints overflow, decimals
+ * are doubles).
+ *
+ * Only what the generated source can reference is supported, which is the
+ * fields and methods of the source, {@code print}, and the fields and
+ * methods of the types in the {@link Environment}. Variables and functions
+ * defined in an enclosing scope throw an exception while compiling, as do
+ * methods returning a value which may reach the end of their body, which
+ * javac rejects as a missing return.
+ */
+public final class BytecodeGenerator implements Ast.Visitor<Void> {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String OBJECT_DESCRIPTOR = "Ljava/lang/Object;";
+
+    private final ClassFile classFile;
+    private final Map<String, String> fields = new HashMap<>();
+    private final Map<Environment.Function, String> methods = new IdentityHashMap<>();
+    private final Deque<Map<String, Local>> locals = new ArrayDeque<>();
+    private ClassFile.Code code;
+    private String returnDescriptor;
+
+    public BytecodeGenerator(String className) {
+        this.classFile = new ClassFile(className, OBJECT);
+    }
+
+    /**
+     * Returns the class file, after visiting the source.
+     */
+    public byte[] toByteArray() {
+        return classFile.toByteArray();
+    }
+
+    /**
+     * Compiles the analyzed source to a class named {@code Main}, loaded by a
+     * new class loader.
+     */
+    public static Class<?> compile(Ast.Source ast) {
+        BytecodeGenerator generator = new BytecodeGenerator("Main");
+        generator.visit(ast);
+        return new Loader().define("Main", generator.toByteArray());
+    }
+
+    /**
+     * Creates an instance of a compiled class and returns the result of main,
+     * which may be package-private as in the {@link Generator}'s output.
+     * Exceptions thrown by the program are rethrown as they are.
+     */
+    public static int run(Class<?> main) {
+        try {
+            Object instance = main.getConstructor().newInstance();
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return (int) method.invoke(instance);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("The class " + main.getName() + " does not define int main().", e);
+        }
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            methods.put(method.getFunction(), descriptor(method.getFunction()));
+        }
+        code = classFile.method(ACC_PUBLIC, "<init>", "()V", 1);
+        code.local(ALOAD, 0, 1);
+        code.invoke(INVOKESPECIAL, OBJECT, "<init>", "()V");
+        for (Ast.Field field : ast.getFields()) {
+            if (field.getValue().isPresent()) {
+                code.local(ALOAD, 0, 1);
+                String descriptor = fields.get(field.getVariable().getJvmName());
+                coerce(expression(field.getValue().get()), descriptor);
+                code.field(PUTFIELD, classFile.getName(), field.getVariable().getJvmName(), descriptor);
+            }
+        }
+        code.insn(RETURN, 0);
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        String descriptor = descriptor(ast.getVariable().getType());
+        fields.put(ast.getVariable().getJvmName(), descriptor);
+        classFile.field(ACC_PUBLIC, ast.getVariable().getJvmName(), descriptor);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        Environment.Function function = ast.getFunction();
+        int slots = 1;
+        locals.push(new HashMap<>());
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            String descriptor = descriptor(function.getParameterTypes().get(i));
+            locals.peek().put(ast.getParameters().get(i), new Local(slots, descriptor));
+            slots += slots(descriptor);
+        }
+        String descriptor = methods.get(function);
+        returnDescriptor = descriptor.substring(descriptor.indexOf(')') + 1);
+        if (!returnDescriptor.equals("V") && Generator.canComplete(ast.getStatements())) {
+            throw new RuntimeException("The method " + ast.getName() + "/" + ast.getParameters().size() + " is missing a return statement.");
+        }
+        code = classFile.method(ACC_PUBLIC, function.getJvmName(), descriptor, slots);
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        // Every path of a method which returns a value has returned by now,
+        // as javac requires of the generated source, but jumps past the last
+        // statement still need an instruction to land on.
+        if (!returnDescriptor.equals("V")) {
+            push(returnDescriptor);
+        }
+        code.insn(returnOpcode(returnDescriptor), -slots(returnDescriptor));
+        locals.pop();
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        String descriptor = ast.getExpression() instanceof Ast.Expr.Function
+                ? call((Ast.Expr.Function) ast.getExpression())
+                : expression(ast.getExpression());
+        pop(descriptor);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        String descriptor = descriptor(ast.getVariable().getType());
+        if (ast.getValue().isPresent()) {
+            coerce(expression(ast.getValue().get()), descriptor);
+        } else {
+            push(descriptor);
+        }
+        Local local = new Local(code.newLocal(slots(descriptor)), descriptor);
+        locals.peek().put(ast.getVariable().getJvmName(), local);
+        store(local);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+        if (receiver.getReceiver().isPresent()) {
+            throw new RuntimeException("The field " + receiver.getName() + " can't be assigned.");
+        }
+        String name = receiver.getVariable().getJvmName();
+        Local local = lookup(name);
+        if (local != null) {
+            coerce(expression(ast.getValue()), local.descriptor);
+            store(local);
+        } else {
+            String descriptor = field(name);
+            code.local(ALOAD, 0, 1);
+            coerce(expression(ast.getValue()), descriptor);
+            code.field(PUTFIELD, classFile.getName(), name, descriptor);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        ClassFile.Label otherwise = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        expression(ast.getCondition());
+        code.jump(IFEQ, otherwise);
+        block(ast.getThenStatements());
+        code.jump(GOTO, end);
+        code.mark(otherwise);
+        block(ast.getElseStatements());
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        ClassFile.Label start = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        coerce(expression(ast.getValue()), "Ljava/lang/Iterable;");
+        code.invoke(INVOKEINTERFACE, "java/lang/Iterable", "iterator", "()Ljava/util/Iterator;");
+        Local iterator = new Local(code.newLocal(1), "Ljava/util/Iterator;");
+        store(iterator);
+        code.mark(start);
+        load(iterator);
+        code.invoke(INVOKEINTERFACE, "java/util/Iterator", "hasNext", "()Z");
+        code.jump(IFEQ, end);
+        locals.push(new HashMap<>());
+        Local variable = new Local(code.newLocal(1), "I");
+        locals.peek().put(ast.getName(), variable);
+        load(iterator);
+        code.invoke(INVOKEINTERFACE, "java/util/Iterator", "next", "()Ljava/lang/Object;");
+        unbox("I");
+        store(variable);
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        locals.pop();
+        code.jump(GOTO, start);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        ClassFile.Label start = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        code.mark(start);
+        expression(ast.getCondition());
+        code.jump(IFEQ, end);
+        block(ast.getStatements());
+        code.jump(GOTO, start);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        String descriptor = expression(ast.getValue());
+        if (returnDescriptor.equals("V")) {
+            pop(descriptor);
+        } else {
+            coerce(descriptor, returnDescriptor);
+        }
+        code.insn(returnOpcode(returnDescriptor), -slots(returnDescriptor));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        Object literal = ast.getLiteral();
+        if (literal instanceof Boolean) {
+            code.iconst((Boolean) literal ? 1 : 0);
+        } else if (literal instanceof Character) {
+            code.iconst((Character) literal);
+        } else if (literal instanceof String) {
+            code.sconst((String) literal);
+        } else if (literal instanceof BigInteger) {
+            code.iconst(((BigInteger) literal).intValueExact());
+        } else if (literal instanceof BigDecimal) {
+            code.dconst(((BigDecimal) literal).doubleValue());
+        } else {
+            code.insn(ACONST_NULL, 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        switch (ast.getOperator()) {
+            case "AND":
+            case "OR":
+                logical(ast);
+                break;
+            case "==":
+            case "!=":
+            case "<":
+            case ">":
+            case "<=":
+            case ">=":
+                comparison(ast);
+                break;
+            case "+":
+                if (descriptor(ast.getType()).equals("Ljava/lang/String;")) {
+                    concatenate(ast);
+                } else {
+                    arithmetic(ast);
+                }
+                break;
+            case "-":
+            case "*":
+            case "/":
+                arithmetic(ast);
+                break;
+            default:
+                throw new RuntimeException("Unknown operator: " + ast.getOperator());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            String jvmName = ast.getVariable().getJvmName();
+            if (!jvmName.endsWith("()")) {
+                throw new RuntimeException("The field " + ast.getName() + " can't be compiled.");
+            }
+            String descriptor = expression(ast.getReceiver().get());
+            invoke(descriptor, jvmName.substring(0, jvmName.length() - 2), List.of(), descriptor(ast.getType()));
+            return null;
+        }
+        String name = ast.getVariable().getJvmName();
+        Local local = lookup(name);
+        if (local != null) {
+            load(local);
+        } else {
+            code.local(ALOAD, 0, 1);
+            code.field(GETFIELD, classFile.getName(), name, field(name));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (call(ast).equals("V")) {
+            code.insn(ACONST_NULL, 1);
+        }
+        return null;
+    }
+
+    /**
+     * Calls the function, returning the descriptor of the result, which is
+     * {@code V} if there isn't one.
+     */
+    private String call(Ast.Expr.Function ast) {
+        Environment.Function function = ast.getFunction();
+        List<Environment.Type> parameterTypes = function.getParameterTypes();
+        if (ast.getReceiver().isPresent()) {
+            String descriptor = expression(ast.getReceiver().get());
+            return invoke(descriptor, function.getJvmName(), ast.getArguments(), descriptor(function.getReturnType()));
+        } else if (methods.containsKey(function)) {
+            code.local(ALOAD, 0, 1);
+            for (int i = 0; i < ast.getArguments().size(); i++) {
+                coerce(expression(ast.getArguments().get(i)), descriptor(parameterTypes.get(i)));
+            }
+            String descriptor = methods.get(function);
+            code.invoke(INVOKEVIRTUAL, classFile.getName(), function.getJvmName(), descriptor);
+            return descriptor.substring(descriptor.indexOf(')') + 1);
+        } else if (function.getJvmName().equals("System.out.println") && ast.getArguments().size() == 1) {
+            code.field(GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+            String descriptor = printable(expression(ast.getArguments().get(0)));
+            code.invoke(INVOKEVIRTUAL, "java/io/PrintStream", "println", "(" + descriptor + ")V");
+            return "V";
+        } else {
+            throw new RuntimeException("The function " + ast.getName() + "/" + ast.getArguments().size() + " is not defined in the source.");
+        }
+    }
+
+    /**
+     * Invokes a method of the receiver on the stack, found by reflection on
+     * the class of the receiver since the types in the environment don't
+     * record the Java signatures. Primitive receivers are boxed.
+     */
+    private String invoke(String receiver, String name, List<Ast.Expr> arguments, String expected) {
+        Class<?> owner = boxed(javaClass(receiver));
+        Class<?>[] argumentClasses = new Class<?>[arguments.size()];
+        for (int i = 0; i < arguments.size(); i++) {
+            argumentClasses[i] = javaClass(descriptor(arguments.get(i).getType()));
+        }
+        Method method = resolve(owner, name, argumentClasses);
+        if (method == null) {
+            throw new RuntimeException("The method " + name + "/" + arguments.size() + " of " + owner.getName() + " can't be compiled.");
+        }
+        coerce(receiver, descriptor(owner));
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < arguments.size(); i++) {
+            String parameter = descriptor(method.getParameterTypes()[i]);
+            coerce(expression(arguments.get(i)), parameter);
+            descriptor.append(parameter);
+        }
+        String result = descriptor(method.getReturnType());
+        descriptor.append(')').append(result);
+        String declaring = method.getDeclaringClass().getName().replace('.', '/');
+        code.invoke(method.getDeclaringClass().isInterface() ? INVOKEINTERFACE : INVOKEVIRTUAL, declaring, name, descriptor.toString());
+        if (!result.equals(expected) && !expected.equals("V")) {
+            if (isPrimitive(result) && !isPrimitive(expected)) {
+                coerce(result, expected);
+            } else if (!(isReference(result) && expected.equals(OBJECT_DESCRIPTOR))) {
+                throw new RuntimeException("The method " + name + " of " + owner.getName() + " returns " + method.getReturnType().getName() + ".");
+            }
+            return expected;
+        }
+        return result;
+    }
+
+    /**
+     * Finds a public, non-bridge method which accepts the arguments, first
+     * without and then with boxing conversions.
+     */
+    private static Method resolve(Class<?> owner, String name, Class<?>[] arguments) {
+        for (boolean boxing : new boolean[] {false, true}) {
+            for (Method method : owner.getMethods()) {
+                if (method.getName().equals(name) && !method.isBridge() && !Modifier.isStatic(method.getModifiers())
+                        && method.getParameterCount() == arguments.length
+                        && accepts(method.getParameterTypes(), arguments, boxing)) {
+                    return method;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean accepts(Class<?>[] parameters, Class<?>[] arguments, boolean boxing) {
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> argument = boxing ? boxed(arguments[i]) : arguments[i];
+            if (parameters[i] != argument && (parameters[i].isPrimitive() || argument.isPrimitive()
+                    || !parameters[i].isAssignableFrom(argument))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void logical(Ast.Expr.Binary ast) {
+        ClassFile.Label shortCircuit = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        boolean and = ast.getOperator().equals("AND");
+        expression(ast.getLeft());
+        code.jump(and ? IFEQ : IFNE, shortCircuit);
+        expression(ast.getRight());
+        code.jump(GOTO, end);
+        code.mark(shortCircuit);
+        code.iconst(and ? 0 : 1);
+        code.mark(end);
+    }
+
+    /**
+     * Compares primitives of the same type directly, and otherwise boxes both
+     * sides and compares them with equals or compareTo.
+     */
+    private void comparison(Ast.Expr.Binary ast) {
+        String operator = ast.getOperator();
+        String left = descriptor(ast.getLeft().getType());
+        String right = descriptor(ast.getRight().getType());
+        int opcode;
+        if (left.equals(right) && (left.equals("I") || left.equals("C") || left.equals("Z"))) {
+            expression(ast.getLeft());
+            expression(ast.getRight());
+            opcode = branch(operator) - IFEQ + IF_ICMPEQ;
+        } else if (left.equals("D") && right.equals("D")) {
+            expression(ast.getLeft());
+            expression(ast.getRight());
+            code.insn(operator.equals("<") || operator.equals("<=") ? DCMPG : DCMPL, -3);
+            opcode = branch(operator);
+        } else if (operator.equals("==") || operator.equals("!=")) {
+            coerce(expression(ast.getLeft()), OBJECT_DESCRIPTOR);
+            coerce(expression(ast.getRight()), OBJECT_DESCRIPTOR);
+            code.invoke(INVOKESTATIC, "java/util/Objects", "equals", "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+            opcode = operator.equals("==") ? IFNE : IFEQ;
+        } else {
+            coerce(expression(ast.getLeft()), "Ljava/lang/Comparable;");
+            coerce(expression(ast.getRight()), OBJECT_DESCRIPTOR);
+            code.invoke(INVOKEINTERFACE, "java/lang/Comparable", "compareTo", "(Ljava/lang/Object;)I");
+            opcode = branch(operator);
+        }
+        ClassFile.Label yes = new ClassFile.Label();
+        ClassFile.Label end = new ClassFile.Label();
+        code.jump(opcode, yes);
+        code.iconst(0);
+        code.jump(GOTO, end);
+        code.mark(yes);
+        code.iconst(1);
+        code.mark(end);
+    }
+
+    /**
+     * Returns the branch opcode comparing an int with zero for the operator.
+     */
+    private static int branch(String operator) {
+        switch (operator) {
+            case "==":
+                return IFEQ;
+            case "!=":
+                return IFNE;
+            case "<":
+                return IFLT;
+            case ">=":
+                return IFGE;
+            case ">":
+                return IFGT;
+            case "<=":
+                return IFLE;
+            default:
+                throw new RuntimeException("Unknown operator: " + operator);
+        }
+    }
+
+    private void concatenate(Ast.Expr.Binary ast) {
+        code.type(NEW, "java/lang/StringBuilder");
+        code.insn(DUP, 1);
+        code.invoke(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "()V");
+        for (Ast.Expr operand : List.of(ast.getLeft(), ast.getRight())) {
+            String descriptor = printable(expression(operand));
+            code.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(" + descriptor + ")Ljava/lang/StringBuilder;");
+        }
+        code.invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+    }
+
+    private void arithmetic(Ast.Expr.Binary ast) {
+        String descriptor = expression(ast.getLeft());
+        expression(ast.getRight());
+        boolean decimal = descriptor.equals("D");
+        switch (ast.getOperator()) {
+            case "+":
+                code.insn(decimal ? DADD : IADD, decimal ? -2 : -1);
+                break;
+            case "-":
+                code.insn(decimal ? DSUB : ISUB, decimal ? -2 : -1);
+                break;
+            case "*":
+                code.insn(decimal ? DMUL : IMUL, decimal ? -2 : -1);
+                break;
+            default:
+                code.insn(decimal ? DDIV : IDIV, decimal ? -2 : -1);
+                break;
+        }
+    }
+
+    /**
+     * Compiles the expression, returning the descriptor of its value.
+     */
+    private String expression(Ast.Expr ast) {
+        visit(ast);
+        return descriptor(ast.getType());
+    }
+
+    private void block(List<Ast.Stmt> statements) {
+        locals.push(new HashMap<>());
+        for (Ast.Stmt stmt : statements) {
+            visit(stmt);
+        }
+        locals.pop();
+    }
+
+    private Local lookup(String name) {
+        for (Map<String, Local> block : locals) {
+            Local local = block.get(name);
+            if (local != null) {
+                return local;
+            }
+        }
+        return null;
+    }
+
+    private String field(String name) {
+        String descriptor = fields.get(name);
+        if (descriptor == null) {
+            throw new RuntimeException("The variable " + name + " is not defined in the source.");
+        }
+        return descriptor;
+    }
+
+    private void load(Local local) {
+        code.local(loadOpcode(local.descriptor), local.slot, slots(local.descriptor));
+    }
+
+    private void store(Local local) {
+        code.local(loadOpcode(local.descriptor) - ILOAD + ISTORE, local.slot, -slots(local.descriptor));
+    }
+
+    /**
+     * Pushes the default value of the descriptor.
+     */
+    private void push(String descriptor) {
+        if (descriptor.equals("D")) {
+            code.dconst(0.0);
+        } else if (isPrimitive(descriptor)) {
+            code.iconst(0);
+        } else {
+            code.insn(ACONST_NULL, 1);
+        }
+    }
+
+    private void pop(String descriptor) {
+        if (!descriptor.equals("V")) {
+            code.insn(slots(descriptor) == 2 ? POP2 : POP, -slots(descriptor));
+        }
+    }
+
+    /**
+     * Converts the value on the stack, boxing primitives assigned to a
+     * reference and unboxing references assigned to a primitive.
+     */
+    private void coerce(String from, String to) {
+        if (from.equals(to)) {
+            return;
+        } else if (isPrimitive(from) && !isPrimitive(to)) {
+            String box = descriptor(boxed(javaClass(from)));
+            code.invoke(INVOKESTATIC, box.substring(1, box.length() - 1), "valueOf", "(" + from + ")" + box);
+        } else if (!isPrimitive(from) && isPrimitive(to)) {
+            unbox(to);
+        } else if (isPrimitive(from)) {
+            throw new RuntimeException("A value of type " + from + " can't be converted to " + to + ".");
+        } else if (!to.equals(OBJECT_DESCRIPTOR)) {
+            code.type(CHECKCAST, to.substring(1, to.length() - 1));
+        }
+    }
+
+    private void unbox(String to) {
+        Class<?> primitive = javaClass(to);
+        String box = boxed(primitive).getName().replace('.', '/');
+        code.type(CHECKCAST, box);
+        code.invoke(INVOKEVIRTUAL, box, primitive.getName() + "Value", "()" + to);
+    }
+
+    /**
+     * Returns the descriptor to pass the value to println or append, which
+     * have overloads for each primitive, String and Object.
+     */
+    private static String printable(String descriptor) {
+        return isPrimitive(descriptor) || descriptor.equals("Ljava/lang/String;") ? descriptor : OBJECT_DESCRIPTOR;
+    }
+
+    private String descriptor(Environment.Function function) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Environment.Type type : function.getParameterTypes()) {
+            descriptor.append(descriptor(type));
+        }
+        return descriptor.append(')').append(returnDescriptor(function.getReturnType())).toString();
+    }
+
+    private static String returnDescriptor(Environment.Type type) {
+        return type.equals(Environment.Type.NIL) ? "V" : descriptor(type);
+    }
+
+    /**
+     * Returns the descriptor of a value of the type, from its jvmName. Nil
+     * values are null, so are typed as Object.
+     */
+    private static String descriptor(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "int":
+                return "I";
+            case "double":
+                return "D";
+            case "boolean":
+                return "Z";
+            case "char":
+                return "C";
+            case "Void":
+            case "Object":
+                return OBJECT_DESCRIPTOR;
+            case "String":
+                return "Ljava/lang/String;";
+            case "Comparable":
+                return "Ljava/lang/Comparable;";
+            case "Iterable<Integer>":
+                return "Ljava/lang/Iterable;";
+            default:
+                String name = type.getJvmName().replaceAll("<.*>", "");
+                return "L" + (name.contains(".") ? name : "java.lang." + name).replace('.', '/') + ";";
+        }
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type.isPrimitive()) {
+            return type == void.class ? "V" : String.valueOf(Character.toUpperCase(type == boolean.class ? 'Z'
+                    : type == long.class ? 'J' : type.getName().charAt(0)));
+        }
+        return type.isArray() ? type.getName().replace('.', '/') : "L" + type.getName().replace('.', '/') + ";";
+    }
+
+    private static Class<?> javaClass(String descriptor) {
+        switch (descriptor) {
+            case "I":
+                return int.class;
+            case "D":
+                return double.class;
+            case "Z":
+                return boolean.class;
+            case "C":
+                return char.class;
+            default:
+                try {
+                    return Class.forName(descriptor.substring(1, descriptor.length() - 1).replace('/', '.'));
+                } catch (ClassNotFoundException e) {
+                    throw new RuntimeException("The class " + descriptor + " is not defined.", e);
+                }
+        }
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return type;
+    }
+
+    private static boolean isPrimitive(String descriptor) {
+        return descriptor.length() == 1;
+    }
+
+    private static boolean isReference(String descriptor) {
+        return descriptor.startsWith("L");
+    }
+
+    private static int loadOpcode(String descriptor) {
+        switch (descriptor) {
+            case "D":
+                return DLOAD;
+            case "I":
+            case "Z":
+            case "C":
+                return ILOAD;
+            default:
+                return ALOAD;
+        }
+    }
+
+    private static int returnOpcode(String descriptor) {
+        switch (descriptor) {
+            case "V":
+                return RETURN;
+            case "D":
+                return DRETURN;
+            case "I":
+            case "Z":
+            case "C":
+                return IRETURN;
+            default:
+                return ARETURN;
+        }
+    }
+
+    /**
+     * A local variable of the method being compiled.
+     */
+    private static final class Local {
+
+        private final int slot;
+        private final String descriptor;
+
+        private Local(int slot, String descriptor) {
+            this.slot = slot;
+            this.descriptor = descriptor;
+        }
+
+    }
+
+    /**
+     * Defines each compiled class in its own loader, so classes with the same
+     * name don't conflict and are unloaded once they are unreachable.
+     */
+    private static final class Loader extends ClassLoader {
+
+        private Loader() {
+            super(BytecodeGenerator.class.getClassLoader());
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
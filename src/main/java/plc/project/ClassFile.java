@@ -0,0 +1,462 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer for JVM class files, with just enough of the format for the
+ * {@link BytecodeGenerator}: a constant pool, fields, and methods with code.
+ *
+ * Classes are written as version 49 (Java 5), which is verified by type
+ * inference, so the code doesn't need StackMapTable frames. The maximum stack
+ * size is tracked as instructions are added, which relies on each jump target
+ * being reached with the same stack depth from every jump.
+ */
+final class ClassFile {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 1, ICONST_0 = 3, BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19, LDC2_W = 20;
+    static final int ILOAD = 21, DLOAD = 24, ALOAD = 25, ISTORE = 54, DSTORE = 57, ASTORE = 58;
+    static final int POP = 87, POP2 = 88, DUP = 89;
+    static final int IADD = 96, DADD = 99, ISUB = 100, DSUB = 103, IMUL = 104, DMUL = 107, IDIV = 108, DDIV = 111;
+    static final int IXOR = 130, DCMPL = 151, DCMPG = 152;
+    static final int IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158;
+    static final int IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164;
+    static final int GOTO = 167, IRETURN = 172, DRETURN = 175, ARETURN = 176, RETURN = 177;
+    static final int GETSTATIC = 178, GETFIELD = 180, PUTFIELD = 181;
+    static final int INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184, INVOKEINTERFACE = 185;
+    static final int NEW = 187, CHECKCAST = 192, WIDE = 196;
+
+    private static final int VERSION = 49;
+
+    /**
+     * The most characters in a string constant, which are at most 3 bytes
+     * each in the 65535 bytes of a Utf8 constant.
+     */
+    private static final int MAX_CHUNK = 0xFFFF / 3;
+
+    private final String name;
+    private final String superName;
+    private final List<Object> constants = new ArrayList<>();
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    private final List<Code> methods = new ArrayList<>();
+    private int fieldCount = 0;
+
+    ClassFile(String name, String superName) {
+        this.name = name;
+        this.superName = superName;
+        constants.add(null); // the constant pool starts at index 1
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void field(int access, String name, String descriptor) {
+        DataOutputStream out = new DataOutputStream(fields);
+        write(() -> {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        });
+        fieldCount++;
+    }
+
+    /**
+     * Adds a method, returning the code to add its instructions to.
+     */
+    Code method(int access, String name, String descriptor, int parameterSlots) {
+        Code code = new Code(access, name, utf8(name), utf8(descriptor), parameterSlots);
+        methods.add(code);
+        return code;
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int thisClass = classRef(name);
+        int superClass = classRef(superName);
+        int code = utf8("Code");
+        write(() -> {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(constants.size());
+            for (Object constant : constants) {
+                if (constant instanceof byte[]) {
+                    out.write((byte[]) constant);
+                }
+            }
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methods.size());
+            for (Code method : methods) {
+                method.write(out, code);
+            }
+            out.writeShort(0);
+        });
+        return bytes.toByteArray();
+    }
+
+    int utf8(String value) {
+        return constant("Utf8:" + value, 1, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    int classRef(String name) {
+        int utf8 = utf8(name);
+        return constant("Class:" + name, 1, out -> {
+            out.writeByte(7);
+            out.writeShort(utf8);
+        });
+    }
+
+    private int string(String value) {
+        int utf8 = utf8(value);
+        return constant("String:" + value, 1, out -> {
+            out.writeByte(8);
+            out.writeShort(utf8);
+        });
+    }
+
+    private int integer(int value) {
+        return constant("Integer:" + value, 1, out -> {
+            out.writeByte(3);
+            out.writeInt(value);
+        });
+    }
+
+    private int doubleConstant(double value) {
+        return constant("Double:" + Double.doubleToRawLongBits(value), 2, out -> {
+            out.writeByte(6);
+            out.writeDouble(value);
+        });
+    }
+
+    private int member(int tag, String owner, String name, String descriptor) {
+        int classRef = classRef(owner);
+        int nameUtf8 = utf8(name);
+        int descriptorUtf8 = utf8(descriptor);
+        int nameAndType = constant("NameAndType:" + name + ":" + descriptor, 1, out -> {
+            out.writeByte(12);
+            out.writeShort(nameUtf8);
+            out.writeShort(descriptorUtf8);
+        });
+        return constant(tag + ":" + owner + "." + name + ":" + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(classRef);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    /**
+     * Returns the index of a constant, adding it if it isn't in the pool yet.
+     * Doubles take two entries.
+     */
+    private int constant(String key, int size, Writer writer) {
+        Integer index = indices.get(key);
+        if (index == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            write(() -> writer.write(out));
+            index = constants.size();
+            constants.add(bytes.toByteArray());
+            if (size == 2) {
+                constants.add(null);
+            }
+            if (constants.size() > 0xFFFF) {
+                throw new RuntimeException("The constant pool of class " + name + " is too large.");
+            }
+            indices.put(key, index);
+        }
+        return index;
+    }
+
+    private static void write(Action action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+
+        void write(DataOutputStream out) throws IOException;
+
+    }
+
+    @FunctionalInterface
+    private interface Action {
+
+        void run() throws IOException;
+
+    }
+
+    /**
+     * A position in the code which can be jumped to before it is marked.
+     */
+    static final class Label {
+
+        private int offset = -1;
+        private int stack = -1;
+        private final List<Integer> jumps = new ArrayList<>();
+
+    }
+
+    /**
+     * The code of a method, tracking the stack depth and number of locals.
+     */
+    final class Code {
+
+        private final int access;
+        private final String methodName;
+        private final int name;
+        private final int descriptor;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Label> labels = new ArrayList<>();
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals;
+
+        private Code(int access, String methodName, int name, int descriptor, int parameterSlots) {
+            this.access = access;
+            this.methodName = methodName;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.maxLocals = parameterSlots;
+        }
+
+        /**
+         * Adds an instruction with no operands which changes the stack depth
+         * by {@code delta}.
+         */
+        void insn(int opcode, int delta) {
+            bytes.write(opcode);
+            adjust(delta);
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                insn(ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                insn(BIPUSH, 1);
+                bytes.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                insn(SIPUSH, 1);
+                writeShort(value);
+            } else {
+                ldc(integer(value), 1);
+            }
+        }
+
+        void dconst(double value) {
+            insn(LDC2_W, 2);
+            writeShort(doubleConstant(value));
+        }
+
+        /**
+         * Pushes a string, which is built from chunks if it is too long for a
+         * single constant.
+         */
+        void sconst(String value) {
+            if (value.length() <= MAX_CHUNK) {
+                ldc(string(value), 1);
+                return;
+            }
+            type(NEW, "java/lang/StringBuilder");
+            insn(DUP, 1);
+            iconst(value.length());
+            invoke(INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(I)V");
+            for (int i = 0; i < value.length(); i += MAX_CHUNK) {
+                ldc(string(value.substring(i, Math.min(value.length(), i + MAX_CHUNK))), 1);
+                invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;");
+            }
+            invoke(INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;");
+        }
+
+        private void ldc(int index, int delta) {
+            if (index <= 0xFF) {
+                insn(LDC, delta);
+                bytes.write(index);
+            } else {
+                insn(LDC_W, delta);
+                writeShort(index);
+            }
+        }
+
+        /**
+         * Adds a load or store of a local, where the delta is the change in
+         * the stack depth.
+         */
+        void local(int opcode, int slot, int delta) {
+            if (slot > 0xFF) {
+                bytes.write(WIDE);
+                insn(opcode, delta);
+                writeShort(slot);
+            } else {
+                insn(opcode, delta);
+                bytes.write(slot);
+            }
+            maxLocals = Math.max(maxLocals, slot + (opcode == DLOAD || opcode == DSTORE ? 2 : 1));
+        }
+
+        /**
+         * Allocates {@code size} slots for a new local, returning the first.
+         */
+        int newLocal(int size) {
+            int slot = maxLocals;
+            maxLocals += size;
+            return slot;
+        }
+
+        void type(int opcode, String type) {
+            insn(opcode, opcode == NEW ? 1 : 0);
+            writeShort(classRef(type));
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            int size = slots(descriptor);
+            int delta = opcode == GETSTATIC ? size : opcode == GETFIELD ? size - 1 : -size - 1;
+            insn(opcode, delta);
+            writeShort(member(9, owner, name, descriptor));
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            int arguments = 0;
+            for (int i = 1; descriptor.charAt(i) != ')'; i++) {
+                char c = descriptor.charAt(i);
+                arguments += c == 'D' || c == 'J' ? 2 : 1;
+                if (c == 'L') {
+                    i = descriptor.indexOf(';', i);
+                } else if (c == '[') {
+                    while (descriptor.charAt(i + 1) == '[') {
+                        i++;
+                    }
+                    if (descriptor.charAt(i + 1) == 'L') {
+                        i = descriptor.indexOf(';', i);
+                    } else {
+                        i++;
+                    }
+                }
+            }
+            int result = slots(descriptor.substring(descriptor.indexOf(')') + 1));
+            int delta = result - arguments - (opcode == INVOKESTATIC ? 0 : 1);
+            insn(opcode, delta);
+            writeShort(member(opcode == INVOKEINTERFACE ? 11 : 10, owner, name, descriptor));
+            if (opcode == INVOKEINTERFACE) {
+                bytes.write(arguments + 1);
+                bytes.write(0);
+            }
+        }
+
+        /**
+         * Adds a jump to the label, which may be marked before or after.
+         */
+        void jump(int opcode, Label label) {
+            int delta = opcode == GOTO ? 0 : opcode >= IF_ICMPEQ ? -2 : -1;
+            int offset = bytes.size();
+            insn(opcode, delta);
+            label.stack = stack;
+            if (label.offset >= 0) {
+                if (label.offset - offset < Short.MIN_VALUE) {
+                    throw new RuntimeException("The method " + methodName + " in class " + ClassFile.this.name + " is too large.");
+                }
+                writeShort(label.offset - offset);
+            } else {
+                if (label.jumps.isEmpty()) {
+                    labels.add(label);
+                }
+                label.jumps.add(offset);
+                writeShort(0);
+            }
+        }
+
+        /**
+         * Marks the label at the current position. Code after an
+         * unconditional jump is only reached through a label, so the stack
+         * depth is taken from the jumps to it.
+         */
+        void mark(Label label) {
+            label.offset = bytes.size();
+            if (label.stack >= 0) {
+                stack = label.stack;
+            } else {
+                label.stack = stack;
+            }
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void writeShort(int value) {
+            bytes.write(value >> 8);
+            bytes.write(value);
+        }
+
+        private void write(DataOutputStream out, int codeAttribute) throws IOException {
+            byte[] code = bytes.toByteArray();
+            for (Label label : labels) {
+                for (int jump : label.jumps) {
+                    int offset = label.offset - jump;
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new RuntimeException("The method " + methodName + " in class " + ClassFile.this.name + " is too large.");
+                    }
+                    code[jump + 1] = (byte) (offset >> 8);
+                    code[jump + 2] = (byte) offset;
+                }
+            }
+            if (code.length > 0xFFFF) {
+                throw new RuntimeException("The method " + methodName + " in class " + ClassFile.this.name + " is too large.");
+            }
+            out.writeShort(access);
+            out.writeShort(name);
+            out.writeShort(descriptor);
+            out.writeShort(1);
+            out.writeShort(codeAttribute);
+            out.writeInt(12 + code.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+
+    }
+
+    /**
+     * Returns the number of slots taken by a value of the descriptor.
+     */
+    static int slots(String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'V':
+                return 0;
+            case 'D':
+            case 'J':
+                return 2;
+            default:
+                return 1;
+        }
+    }
+
+}
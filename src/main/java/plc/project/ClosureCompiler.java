@@ -0,0 +1,430 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static plc.project.Interpreter.requireType;
+
+/**
+ * Compiles a source into a tree of closures, which can then be run any number
+ * of times and gives the same results as the {@link Interpreter} does for a
+ * resolved source. The work the interpreter repeats for each evaluation is
+ * done once while compiling: each operator is chosen ahead of time, literals
+ * are created once, variables use the slots from the {@link Resolver}, and
+ * calls to methods in the source are bound directly without a lookup.
+ *
+ * Each node returns its value when run. Statements return null, or the value
+ * of a {@code RETURN} to stop the statements of the method from running.
+ */
+public final class ClosureCompiler implements Ast.Visitor<ClosureCompiler.Node> {
+
+    private final Map<String, Method> methods = new HashMap<>();
+    private boolean inMethod = false;
+
+    /**
+     * Compiles the source, resolving it first if needed.
+     */
+    public Program compile(Ast.Source ast) {
+        new Resolver().visit(ast);
+        return new Program(visit(ast), ast.getFields().size());
+    }
+
+    @Override
+    public Node visit(Ast.Source ast) {
+        // Methods are created first so calls can be bound to methods defined later in the source
+        for (Ast.Method method : ast.getMethods()) {
+            methods.put(method.getName() + "/" + method.getParameters().size(), new Method(method.getFrameSize()));
+        }
+        Node[] fields = ast.getFields().stream().map(this::visit).toArray(Node[]::new);
+        Node[] methods = ast.getMethods().stream().map(this::visit).toArray(Node[]::new);
+        return (runtime, frame) -> {
+            for (Node field : fields) {
+                field.run(runtime, frame);
+            }
+            for (Node method : methods) {
+                method.run(runtime, frame);
+            }
+            return runtime.scope.lookupFunction("main", 0).invoke0();
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Field ast) {
+        Node value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : constant(Environment.NIL);
+        String name = ast.getName();
+        int slot = ast.getSlot();
+        return (runtime, frame) -> {
+            runtime.globals[slot] = runtime.scope.defineVariable(name, name, Environment.Type.ANY, value.run(runtime, frame));
+            return Environment.NIL;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Method ast) {
+        Method method = methods.get(ast.getName() + "/" + ast.getParameters().size());
+        inMethod = true;
+        method.body = block(ast.getStatements());
+        inMethod = false;
+        String name = ast.getName();
+        int arity = ast.getParameters().size();
+        return (runtime, frame) -> {
+            runtime.scope.defineFunction(name, arity, Environment.Function.Body.varargs(args -> method.invoke(runtime, args)));
+            return Environment.NIL;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Expression ast) {
+        Node expression = visit(ast.getExpression());
+        return (runtime, frame) -> {
+            expression.run(runtime, frame);
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Declaration ast) {
+        Node value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : constant(Environment.NIL);
+        int slot = ast.getSlot();
+        return (runtime, frame) -> {
+            frame[slot] = value.run(runtime, frame);
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Assignment ast) {
+        if (!(ast.getReceiver() instanceof Ast.Expr.Access)) {
+            return (runtime, frame) -> {
+                throw new RuntimeException("Receiver is not a valid access expression.");
+            };
+        }
+        Ast.Expr.Access access = (Ast.Expr.Access) ast.getReceiver();
+        Node value = visit(ast.getValue());
+        String name = access.getName();
+        int slot = access.getSlot();
+        if (access.getReceiver().isPresent()) {
+            Node receiver = visit(access.getReceiver().get());
+            return (runtime, frame) -> {
+                Environment.Variable variable = receiver.run(runtime, frame).getField(name);
+                variable.setValue(value.run(runtime, frame));
+                return null;
+            };
+        } else if (access.getDepth() == 0) {
+            return (runtime, frame) -> {
+                frame[slot] = value.run(runtime, frame);
+                return null;
+            };
+        } else if (access.getDepth() == 1) {
+            return (runtime, frame) -> {
+                runtime.globals[slot].setValue(value.run(runtime, frame));
+                return null;
+            };
+        } else {
+            return (runtime, frame) -> {
+                lookupVariable(runtime, name).setValue(value.run(runtime, frame));
+                return null;
+            };
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.If ast) {
+        Node condition = visit(ast.getCondition());
+        Node thenStatements = block(ast.getThenStatements());
+        Node elseStatements = block(ast.getElseStatements());
+        return (runtime, frame) -> requireType(Boolean.class, condition.run(runtime, frame))
+                ? thenStatements.run(runtime, frame)
+                : elseStatements.run(runtime, frame);
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.For ast) {
+        Node value = visit(ast.getValue());
+        Node statements = block(ast.getStatements());
+        int slot = ast.getSlot();
+        return (runtime, frame) -> {
+            List<?> list = requireType(List.class, value.run(runtime, frame));
+            for (Object element : list) {
+                frame[slot] = (Environment.PlcObject) element;
+                Environment.PlcObject result = statements.run(runtime, frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.While ast) {
+        Node condition = visit(ast.getCondition());
+        Node statements = block(ast.getStatements());
+        return (runtime, frame) -> {
+            while (requireType(Boolean.class, condition.run(runtime, frame))) {
+                Environment.PlcObject result = statements.run(runtime, frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    @Override
+    public Node visit(Ast.Stmt.Return ast) {
+        return visit(ast.getValue());
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Literal ast) {
+        return constant(ast.getLiteral() == null ? Environment.NIL : Environment.create(ast.getLiteral()));
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Group ast) {
+        return visit(ast.getExpression());
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Binary ast) {
+        Node left = visit(ast.getLeft());
+        Node right = visit(ast.getRight());
+        String operator = ast.getOperator();
+        switch (operator) {
+            case "+":
+                return arithmetic(left, right, Operators::add, Operators::add);
+            case "-":
+                return arithmetic(left, right, Operators::subtract, Operators::subtract);
+            case "*":
+                return arithmetic(left, right, Operators::multiply, Operators::multiply);
+            case "/":
+                return arithmetic(left, right, Operators::divide, Operators::divide);
+            case ">":
+                return arithmetic(left, right, (l, r) -> Environment.create(l > r), (l, r) -> Operators.compare(operator, l, r));
+            case "<":
+                return arithmetic(left, right, (l, r) -> Environment.create(l < r), (l, r) -> Operators.compare(operator, l, r));
+            case ">=":
+                return arithmetic(left, right, (l, r) -> Environment.create(l >= r), (l, r) -> Operators.compare(operator, l, r));
+            case "<=":
+                return arithmetic(left, right, (l, r) -> Environment.create(l <= r), (l, r) -> Operators.compare(operator, l, r));
+            case "==":
+                return arithmetic(left, right, (l, r) -> Environment.create(l == r), Operators::equal);
+            case "!=":
+                return arithmetic(left, right, (l, r) -> Environment.create(l != r), Operators::notEqual);
+            case "OR":
+            case "||":
+                return (runtime, frame) -> requireType(Boolean.class, left.run(runtime, frame))
+                        ? Environment.TRUE
+                        : Environment.create(requireType(Boolean.class, right.run(runtime, frame)));
+            case "AND":
+            case "&&":
+                return (runtime, frame) -> !requireType(Boolean.class, left.run(runtime, frame))
+                        ? Environment.FALSE
+                        : Environment.create(requireType(Boolean.class, right.run(runtime, frame)));
+            default:
+                return (runtime, frame) -> {
+                    left.run(runtime, frame);
+                    right.run(runtime, frame);
+                    throw new UnsupportedOperationException("Unsupported operator: " + operator);
+                };
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Access ast) {
+        String name = ast.getName();
+        int slot = ast.getSlot();
+        if (ast.getReceiver().isPresent()) {
+            Node receiver = visit(ast.getReceiver().get());
+            return (runtime, frame) -> receiver.run(runtime, frame).getField(name).getValue();
+        } else if (ast.getDepth() == 0) {
+            return (runtime, frame) -> frame[slot];
+        } else if (ast.getDepth() == 1) {
+            return (runtime, frame) -> runtime.globals[slot].getValue();
+        } else {
+            return (runtime, frame) -> lookupVariable(runtime, name).getValue();
+        }
+    }
+
+    @Override
+    public Node visit(Ast.Expr.Function ast) {
+        Node[] arguments = ast.getArguments().stream().map(this::visit).toArray(Node[]::new);
+        String name = ast.getName();
+        Symbol symbol = ast.getSymbol();
+        if (ast.getReceiver().isPresent()) {
+            Node receiver = visit(ast.getReceiver().get());
+            return (runtime, frame) -> {
+                // The receiver is passed first, after evaluating the arguments
+                Environment.PlcObject[] values = new Environment.PlcObject[arguments.length + 1];
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i + 1] = arguments[i].run(runtime, frame);
+                }
+                values[0] = receiver.run(runtime, frame);
+                return values[0].getType().getMethod(symbol, arguments.length).invoke(values);
+            };
+        }
+        Method method = methods.get(name + "/" + arguments.length);
+        if (method != null && inMethod) {
+            // Methods in the source are defined before any are called, and can't be redefined
+            return (runtime, frame) -> method.invoke(runtime, evaluate(arguments, runtime, frame));
+        }
+        return (runtime, frame) -> {
+            Environment.PlcObject[] values = evaluate(arguments, runtime, frame);
+            return runtime.scope.lookupFunction(symbol, arguments.length).invoke(values);
+        };
+    }
+
+    /**
+     * Compiles statements which run until one of them returns.
+     */
+    private Node block(List<Ast.Stmt> statements) {
+        Node[] nodes = statements.stream().map(this::visit).toArray(Node[]::new);
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        return (runtime, frame) -> {
+            for (Node node : nodes) {
+                Environment.PlcObject result = node.run(runtime, frame);
+                if (result != null) {
+                    return result;
+                }
+            }
+            return null;
+        };
+    }
+
+    private static Node constant(Environment.PlcObject value) {
+        return (runtime, frame) -> value;
+    }
+
+    /**
+     * Compiles a binary operator with a fast path for Integers which fit in a
+     * long, as with {@link Interpreter#visit(Ast.Expr.Binary)}.
+     */
+    private static Node arithmetic(Node left, Node right, SmallOperator small, Operator operator) {
+        return (runtime, frame) -> {
+            Environment.PlcObject l = left.run(runtime, frame);
+            Environment.PlcObject r = right.run(runtime, frame);
+            if (l.isSmallInteger() && r.isSmallInteger()) {
+                Environment.PlcObject result = small.apply(l.getSmallInteger(), r.getSmallInteger());
+                if (result != null) {
+                    return result;
+                }
+            }
+            return operator.apply(l, r);
+        };
+    }
+
+    private static Environment.PlcObject[] evaluate(Node[] arguments, Runtime runtime, Environment.PlcObject[] frame) {
+        Environment.PlcObject[] values = new Environment.PlcObject[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i].run(runtime, frame);
+        }
+        return values;
+    }
+
+    private static Environment.Variable lookupVariable(Runtime runtime, String name) {
+        Environment.Variable variable = runtime.scope.lookupVariable(name);
+        if (variable == null) {
+            throw new RuntimeException("Variable '" + name + "' is not defined.");
+        }
+        return variable;
+    }
+
+    /**
+     * A compiled node, run with the current method's frame of locals.
+     */
+    @FunctionalInterface
+    public interface Node {
+
+        Environment.PlcObject run(Runtime runtime, Environment.PlcObject[] frame);
+
+    }
+
+    @FunctionalInterface
+    private interface Operator {
+
+        Environment.PlcObject apply(Environment.PlcObject left, Environment.PlcObject right);
+
+    }
+
+    @FunctionalInterface
+    private interface SmallOperator {
+
+        Environment.PlcObject apply(long left, long right);
+
+    }
+
+    /**
+     * A method in the source, whose body is compiled after any calls to it.
+     */
+    private static final class Method {
+
+        private final int frameSize;
+        private Node body;
+
+        private Method(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        private Environment.PlcObject invoke(Runtime runtime, Environment.PlcObject[] arguments) {
+            Environment.PlcObject[] frame = Arrays.copyOf(arguments, frameSize);
+            Environment.PlcObject result = body.run(runtime, frame);
+            return result != null ? result : Environment.NIL;
+        }
+
+    }
+
+    /**
+     * The state of one run of a program: the scope holding its fields and
+     * methods, and the variables of its fields by slot.
+     */
+    public static final class Runtime {
+
+        private final Scope scope;
+        private final Environment.Variable[] globals;
+
+        private Runtime(Scope scope, int fields) {
+            this.scope = scope;
+            this.globals = new Environment.Variable[fields];
+        }
+
+        public Scope getScope() {
+            return scope;
+        }
+
+    }
+
+    /**
+     * A compiled source, which can be run any number of times.
+     */
+    public static final class Program {
+
+        private final Node source;
+        private final int fields;
+
+        private Program(Node source, int fields) {
+            this.source = source;
+            this.fields = fields;
+        }
+
+        /**
+         * Runs the program in a new scope within the parent, with the same
+         * {@code print} function as the {@link Interpreter}, returning the
+         * value of {@code main}.
+         */
+        public Environment.PlcObject run(Scope parent) {
+            Scope scope = new Scope(parent);
+            scope.defineFunction("print", 1, Environment.Function.Body.of(value -> {
+                System.out.println(value.getValue());
+                return Environment.NIL;
+            }));
+            return source.run(new Runtime(scope, fields), new Environment.PlcObject[0]);
+        }
+
+    }
+
+}
@@ -1,10 +1,16 @@
 package plc.project;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 public final class Environment {
 
@@ -17,24 +23,89 @@ public final class Environment {
 
     });
 
-    private static final Map<String, Type> TYPES = new HashMap<>();
+    /**
+     * The registered types, which may be registered and looked up from any
+     * thread.
+     */
+    private static final Map<String, Type> TYPES = new ConcurrentHashMap<>();
 
     public static Type getType(String name) {
-        if (!TYPES.containsKey(name)) {
+        Type type = TYPES.get(name);
+        if (type == null) {
             throw new RuntimeException("Unknown type " + name + ".");
         }
-        return TYPES.get(name);
+        return type;
     }
 
     public static void registerType(Type type) {
-        if (TYPES.containsKey(type.getName())) {
+        if (TYPES.putIfAbsent(type.getName(), type) != null) {
             throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
         }
-        TYPES.put(type.getName(), type);
     }
 
+    /**
+     * The type of the values created by {@link #create(Object)}, one for each
+     * Java class. These have no fields or methods, and share an empty scope.
+     */
+    private static final ClassValue<Type> VALUE_TYPES = new ClassValue<>() {
+
+        @Override
+        protected Type computeValue(Class<?> type) {
+            return new Type("Unknown", "Unknown", Scope.EMPTY);
+        }
+
+    };
+
+    public static final PlcObject TRUE = new PlcObject(VALUE_TYPES.get(Boolean.class), Scope.EMPTY, true);
+    public static final PlcObject FALSE = new PlcObject(VALUE_TYPES.get(Boolean.class), Scope.EMPTY, false);
+
+    private static final int INTEGER_CACHE_LOW = -128;
+    private static final PlcObject[] INTEGERS = new PlcObject[1024 - INTEGER_CACHE_LOW];
+    private static final PlcObject[] CHARACTERS = new PlcObject[128];
+
+    static {
+        for (int i = 0; i < INTEGERS.length; i++) {
+            INTEGERS[i] = new PlcObject(VALUE_TYPES.get(BigInteger.class), Scope.EMPTY, BigInteger.valueOf(i + INTEGER_CACHE_LOW));
+        }
+        for (char c = 0; c < CHARACTERS.length; c++) {
+            CHARACTERS[c] = new PlcObject(VALUE_TYPES.get(Character.class), Scope.EMPTY, Character.valueOf(c));
+        }
+    }
+
+    /**
+     * Creates an object for a value. Booleans, Integers from -128 to 1023 and
+     * ASCII characters return a shared object, as values are immutable.
+     */
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        if (value instanceof BigInteger) {
+            BigInteger integer = (BigInteger) value;
+            if (integer.bitLength() < Long.SIZE) {
+                long small = integer.longValue();
+                if (small >= INTEGER_CACHE_LOW && small < INTEGER_CACHE_LOW + INTEGERS.length) {
+                    return INTEGERS[(int) (small - INTEGER_CACHE_LOW)];
+                }
+            }
+        } else if (value instanceof Boolean) {
+            return create((boolean) (Boolean) value);
+        } else if (value instanceof Character && (Character) value < CHARACTERS.length) {
+            return CHARACTERS[(Character) value];
+        }
+        return new PlcObject(VALUE_TYPES.get(value == null ? Object.class : value.getClass()), Scope.EMPTY, value);
+    }
+
+    public static PlcObject create(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Creates an Integer object without creating a BigInteger until its value
+     * is requested, see {@link PlcObject#isSmallInteger()}.
+     */
+    public static PlcObject createInteger(long value) {
+        if (value >= INTEGER_CACHE_LOW && value < INTEGER_CACHE_LOW + INTEGERS.length) {
+            return INTEGERS[(int) (value - INTEGER_CACHE_LOW)];
+        }
+        return new PlcObject(VALUE_TYPES.get(BigInteger.class), Scope.EMPTY, value);
     }
 
     public static final class Type {
@@ -79,6 +150,10 @@ public final class Environment {
             return scope.lookupFunction(name, arity + 1);
         }
 
+        public Function getMethod(Symbol name, int arity) {
+            return scope.lookupFunction(name, arity + 1);
+        }
+
         @Override
         public String toString() {
             return "Type{" +
@@ -90,11 +165,19 @@ public final class Environment {
 
     }
 
+    /**
+     * A value along with its type and scope. Integers which fit in a long are
+     * also stored unboxed, so the {@link Interpreter} can do arithmetic on
+     * them directly. Objects created by {@link #createInteger(long)} only
+     * create the BigInteger when the value is first requested.
+     */
     public static final class PlcObject {
 
         private final Type type;
         private final Scope scope;
-        private final Object value;
+        private Object value;
+        private final boolean small;
+        private final long integer;
 
         public PlcObject(Scope scope, Object value) {
             this(new Type("Unknown", "Unknown", scope), scope, value);
@@ -104,6 +187,15 @@ public final class Environment {
             this.type = type;
             this.scope = scope;
             this.value = value;
+            this.small = value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE;
+            this.integer = small ? ((BigInteger) value).longValue() : 0;
+        }
+
+        private PlcObject(Type type, Scope scope, long integer) {
+            this.type = type;
+            this.scope = scope;
+            this.small = true;
+            this.integer = integer;
         }
 
         public Type getType() {
@@ -119,21 +211,42 @@ public final class Environment {
         }
 
         public PlcObject callMethod(String name, List<PlcObject> arguments) {
-            Function function = type.getMethod(name, arguments.size());
-            arguments = new ArrayList<>(arguments);
-            arguments.add(0, this);
-            return function.invoke(arguments);
+            return callMethod(Symbol.of(name), arguments);
+        }
+
+        public PlcObject callMethod(Symbol name, List<PlcObject> arguments) {
+            PlcObject[] values = new PlcObject[arguments.size() + 1];
+            values[0] = this;
+            for (int i = 0; i < arguments.size(); i++) {
+                values[i + 1] = arguments.get(i);
+            }
+            return type.getMethod(name, arguments.size()).invoke(values);
         }
 
         public Object getValue() {
+            if (value == null && small) {
+                value = BigInteger.valueOf(integer);
+            }
             return value;
         }
 
+        /**
+         * Returns true if the value is an integer which fits in a long, in
+         * which case it is returned by {@link #getSmallInteger()}.
+         */
+        boolean isSmallInteger() {
+            return small;
+        }
+
+        long getSmallInteger() {
+            return integer;
+        }
+
         @Override
         public String toString() {
             return "Object{" +
                     "type=" + type +
-                    ", value=" + value +
+                    ", value=" + getValue() +
                     ", scope=" + scope +
                     '}';
         }
@@ -142,6 +255,22 @@ public final class Environment {
 
     public static final class Variable {
 
+        /**
+         * Accesses the value with release/acquire ordering, so a value
+         * assigned in one thread is seen fully initialized by any other thread
+         * sharing the variable through a frozen {@link Scope}, without the
+         * cost of a volatile write on every assignment.
+         */
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Variable.class, "value", PlcObject.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
         private final String name;
         private final String jvmName;
         private final Type type;
@@ -171,11 +300,11 @@ public final class Environment {
         }
 
         public PlcObject getValue() {
-            return value;
+            return (PlcObject) VALUE.getAcquire(this);
         }
 
         public void setValue(PlcObject value) {
-            this.value = value;
+            VALUE.setRelease(this, value);
         }
 
         @Override
@@ -198,27 +327,41 @@ public final class Environment {
 
     }
 
+    /**
+     * A function along with its name, types and {@link Body}. Functions are
+     * called with their arguments individually through {@link #invoke1} to
+     * {@link #invoke3} or in an array, so callers with few arguments don't
+     * collect them, or in a list as before.
+     */
     public static final class Function {
 
         private final String name;
         private final String jvmName;
         private final List<Type> parameterTypes;
         private final Type returnType;
-        private final java.util.function.Function<List<PlcObject>, PlcObject> function;
+        private final Body body;
 
         public Function(String name, int arity, java.util.function.Function<List<PlcObject>, PlcObject> function) {
-            this(name, name, new ArrayList<>(), Type.ANY, function);
+            this(name, arity, Body.list(function));
+        }
+
+        public Function(String name, int arity, Body body) {
+            this(name, name, new ArrayList<>(), Type.ANY, body);
             for (int i = 0; i < arity; i++) {
                 this.parameterTypes.add(Type.ANY);
             }
         }
 
         public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, java.util.function.Function<List<PlcObject>, PlcObject> function) {
+            this(name, jvmName, parameterTypes, returnType, Body.list(function));
+        }
+
+        public Function(String name, String jvmName, List<Type> parameterTypes, Type returnType, Body body) {
             this.name = name;
             this.jvmName = jvmName;
             this.parameterTypes = parameterTypes;
             this.returnType = returnType;
-            this.function = function;
+            this.body = body;
         }
 
         public String getName() {
@@ -238,7 +381,31 @@ public final class Environment {
         }
 
         public PlcObject invoke(List<PlcObject> arguments) {
-            return function.apply(arguments);
+            return body.invoke(arguments);
+        }
+
+        /**
+         * Invokes the function with the arguments in an array, which the
+         * function may keep, so callers shouldn't change it afterwards.
+         */
+        public PlcObject invoke(PlcObject... arguments) {
+            return body.invoke(arguments);
+        }
+
+        public PlcObject invoke0() {
+            return body.invoke0();
+        }
+
+        public PlcObject invoke1(PlcObject first) {
+            return body.invoke1(first);
+        }
+
+        public PlcObject invoke2(PlcObject first, PlcObject second) {
+            return body.invoke2(first, second);
+        }
+
+        public PlcObject invoke3(PlcObject first, PlcObject second, PlcObject third) {
+            return body.invoke3(first, second, third);
         }
 
         @Override
@@ -258,10 +425,170 @@ public final class Environment {
                     ", arity=" + parameterTypes.size() +
                     ", parameterTypes=" + parameterTypes +
                     ", returnType=" + returnType +
-                    ", function=" + function +
+                    ", function=" + body +
                     '}';
         }
 
+        /**
+         * The implementation of a function, which takes its arguments in an
+         * array. Bodies for up to three arguments can take them individually
+         * by overriding {@link #invoke1} to {@link #invoke3}, as do those
+         * created by {@code of}, which adapt the other calls. Otherwise, those
+         * collect the arguments into an array.
+         */
+        public abstract static class Body {
+
+            private static final PlcObject[] NO_ARGUMENTS = new PlcObject[0];
+
+            public abstract PlcObject invoke(PlcObject[] arguments);
+
+            public PlcObject invoke(List<PlcObject> arguments) {
+                return invoke(arguments.toArray(NO_ARGUMENTS));
+            }
+
+            public PlcObject invoke0() {
+                return invoke(NO_ARGUMENTS);
+            }
+
+            public PlcObject invoke1(PlcObject first) {
+                return invoke(new PlcObject[] {first});
+            }
+
+            public PlcObject invoke2(PlcObject first, PlcObject second) {
+                return invoke(new PlcObject[] {first, second});
+            }
+
+            public PlcObject invoke3(PlcObject first, PlcObject second, PlcObject third) {
+                return invoke(new PlcObject[] {first, second, third});
+            }
+
+            public static Body of(Supplier<PlcObject> function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.get();
+                    }
+
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.get();
+                    }
+
+                    @Override
+                    public PlcObject invoke0() {
+                        return function.get();
+                    }
+
+                };
+            }
+
+            public static Body of(UnaryOperator<PlcObject> function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.apply(arguments[0]);
+                    }
+
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0));
+                    }
+
+                    @Override
+                    public PlcObject invoke1(PlcObject first) {
+                        return function.apply(first);
+                    }
+
+                };
+            }
+
+            public static Body of(BinaryOperator<PlcObject> function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.apply(arguments[0], arguments[1]);
+                    }
+
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0), arguments.get(1));
+                    }
+
+                    @Override
+                    public PlcObject invoke2(PlcObject first, PlcObject second) {
+                        return function.apply(first, second);
+                    }
+
+                };
+            }
+
+            public static Body of(TernaryOperator function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.apply(arguments[0], arguments[1], arguments[2]);
+                    }
+
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments.get(0), arguments.get(1), arguments.get(2));
+                    }
+
+                    @Override
+                    public PlcObject invoke3(PlcObject first, PlcObject second, PlcObject third) {
+                        return function.apply(first, second, third);
+                    }
+
+                };
+            }
+
+            /**
+             * Returns a body taking any number of arguments in an array.
+             */
+            public static Body varargs(java.util.function.Function<PlcObject[], PlcObject> function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.apply(arguments);
+                    }
+
+                };
+            }
+
+            /**
+             * Returns a body taking its arguments in a list, as functions did
+             * before bodies, which wraps arrays rather than copying them.
+             */
+            public static Body list(java.util.function.Function<List<PlcObject>, PlcObject> function) {
+                return new Body() {
+
+                    @Override
+                    public PlcObject invoke(PlcObject[] arguments) {
+                        return function.apply(Arrays.asList(arguments));
+                    }
+
+                    @Override
+                    public PlcObject invoke(List<PlcObject> arguments) {
+                        return function.apply(arguments);
+                    }
+
+                };
+            }
+
+        }
+
+        @FunctionalInterface
+        public interface TernaryOperator {
+
+            PlcObject apply(PlcObject first, PlcObject second, PlcObject third);
+
+        }
+
     }
 
     static {
@@ -0,0 +1,211 @@
+package plc.project;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs programs concurrently over a shared prelude of builtins. The prelude
+ * is frozen, and each execution gets its own {@link Interpreter} in a child
+ * of it, so executions don't share any mutable state other than the
+ * variables of the prelude.
+ *
+ * By default, each execution runs on its own virtual thread when the JVM
+ * supports them, and otherwise on a pool with a thread per processor, which
+ * queues executions beyond that.
+ */
+public final class ExecutionService implements AutoCloseable {
+
+    private final Scope prelude;
+    private final ExecutorService executor;
+    private final long start = System.nanoTime();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final LongAdder[] histogram = new LongAdder[Long.SIZE];
+
+    public ExecutionService(Scope prelude) {
+        this(prelude, defaultExecutor());
+    }
+
+    public ExecutionService(Scope prelude, ExecutorService executor) {
+        this.prelude = prelude.freeze();
+        this.executor = executor;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns an executor starting a virtual thread per task if the JVM has
+     * them (Java 21+), which is looked up reflectively since this project
+     * targets Java 17, and otherwise a pool with a thread per processor.
+     */
+    static ExecutorService defaultExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "plc-execution");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Submits the program to run, returning the result of its main function.
+     * The AST isn't modified, so one AST may be submitted any number of times
+     * at once. A program rejected by the executor, such as after closing, is
+     * thrown and not counted, as it never ran.
+     */
+    public CompletableFuture<Environment.PlcObject> submit(Ast.Source ast) {
+        long submit = System.nanoTime();
+        CompletableFuture<Environment.PlcObject> future = CompletableFuture
+                .supplyAsync(() -> new Interpreter(new Scope(prelude)).visit(ast), executor)
+                .whenComplete((result, exception) -> record(submit, exception == null));
+        submitted.increment();
+        return future;
+    }
+
+    private void record(long submit, boolean success) {
+        long latency = System.nanoTime() - submit;
+        (success ? completed : failed).increment();
+        totalLatency.add(latency);
+        maxLatency.accumulateAndGet(latency, Math::max);
+        histogram[Long.SIZE - Long.numberOfLeadingZeros(latency)].increment();
+    }
+
+    /**
+     * Returns the metrics of the executions so far. The counters are read
+     * separately, so executions finishing meanwhile may be partially counted.
+     */
+    public Metrics getMetrics() {
+        long[] counts = new long[histogram.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return new Metrics(submitted.sum(), completed.sum(), failed.sum(), totalLatency.sum(), maxLatency.get(),
+                counts, System.nanoTime() - start);
+    }
+
+    /**
+     * Stops accepting programs and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting, as the submitted programs have no timeout
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A snapshot of the number of executions and their latency, measured from
+     * when each program was submitted until it finished, including any time
+     * queued. Percentiles are estimated from a histogram with a bucket per
+     * power of two nanoseconds, so are accurate to within a factor of two.
+     */
+    public static final class Metrics {
+
+        private final long submitted;
+        private final long completed;
+        private final long failed;
+        private final long totalLatency;
+        private final long maxLatency;
+        private final long[] histogram;
+        private final long uptime;
+
+        private Metrics(long submitted, long completed, long failed, long totalLatency, long maxLatency, long[] histogram, long uptime) {
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.totalLatency = totalLatency;
+            this.maxLatency = maxLatency;
+            this.histogram = histogram;
+            this.uptime = uptime;
+        }
+
+        public long getSubmitted() {
+            return submitted;
+        }
+
+        public long getCompleted() {
+            return completed;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Returns the number of programs submitted but not finished.
+         */
+        public long getRunning() {
+            return submitted - completed - failed;
+        }
+
+        /**
+         * Returns the number of programs finished per second since the
+         * service was created.
+         */
+        public double getThroughput() {
+            return (completed + failed) / (uptime / 1e9);
+        }
+
+        public Duration getMeanLatency() {
+            long finished = completed + failed;
+            return Duration.ofNanos(finished == 0 ? 0 : totalLatency / finished);
+        }
+
+        public Duration getMaxLatency() {
+            return Duration.ofNanos(maxLatency);
+        }
+
+        /**
+         * Returns an upper bound of the latency of the given percentile of
+         * executions, between 0 and 100.
+         */
+        public Duration getLatencyPercentile(double percentile) {
+            long total = 0;
+            for (long count : histogram) {
+                total += count;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank && seen > 0) {
+                    return Duration.ofNanos(Math.min(maxLatency, i == 0 ? 0 : (1L << i) - 1));
+                }
+            }
+            return Duration.ZERO;
+        }
+
+        @Override
+        public String toString() {
+            return "Metrics{" +
+                    "submitted=" + submitted +
+                    ", completed=" + completed +
+                    ", failed=" + failed +
+                    ", throughput=" + String.format("%.1f/s", getThroughput()) +
+                    ", meanLatency=" + getMeanLatency() +
+                    ", p99Latency=" + getLatencyPercentile(99) +
+                    ", maxLatency=" + getMaxLatency() +
+                    '}';
+        }
+
+    }
+
+}
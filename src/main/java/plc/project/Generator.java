@@ -1,16 +1,32 @@
 package plc.project;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public final class Generator implements Ast.Visitor<Void> {
 
     private final PrintWriter writer;
+    private final ForkJoinPool pool;
     private int indent = 0;
+    private Ast.Method method = null;
 
     public Generator(PrintWriter writer) {
+        this(writer, null);
+    }
+
+    /**
+     * Creates a generator which generates methods in parallel on the pool, if
+     * it isn't null, writing them in order so the output is the same.
+     */
+    public Generator(PrintWriter writer, ForkJoinPool pool) {
         this.writer = writer;
+        this.pool = pool;
     }
 
     private void print(Object... objects) {
@@ -62,9 +78,29 @@ public final class Generator implements Ast.Visitor<Void> {
             newline(indent);
         }
 
+        // Generate the methods in parallel, then write them in order
+        List<ForkJoinTask<String>> methods = new ArrayList<>();
+        if (pool != null) {
+            for (Ast.Method method : ast.getMethods()) {
+                int indent = this.indent;
+                methods.add(pool.submit(() -> {
+                    StringWriter output = new StringWriter();
+                    Generator generator = new Generator(new PrintWriter(output));
+                    generator.indent = indent;
+                    generator.visit(method);
+                    generator.writer.flush();
+                    return output.toString();
+                }));
+            }
+        }
+
         // Declare all methods
         for (int i = 0; i < ast.getMethods().size(); i++) {
-            visit(ast.getMethods().get(i));
+            if (pool != null) {
+                writer.write(methods.get(i).join());
+            } else {
+                visit(ast.getMethods().get(i));
+            }
 
             // Avoid adding a newline after the last method
             if (i < ast.getMethods().size() - 1) {
@@ -115,19 +151,10 @@ public final class Generator implements Ast.Visitor<Void> {
 
         // Generate method parameters
         for (int i = 0; i < ast.getParameters().size(); i++) {
-            String parameterType = ast.getParameterTypeNames().get(i);
-            if ("Integer".equals(parameterType)) {
-                parameterType = "int";
-            } else if ("Decimal".equals(parameterType)) {
-                parameterType = "double";
-            } else if ("Integeriterable".equals(parameterType)) {
-                parameterType = "Iterable<Integer>"; // Correct the parameter type
-            }
-
             if (i > 0) {
                 writer.print(", ");
             }
-            writer.print(parameterType + " " + ast.getParameters().get(i));
+            writer.print(parameterType(ast, i) + " " + ast.getParameters().get(i));
         }
         writer.print(") {");
 
@@ -138,6 +165,14 @@ public final class Generator implements Ast.Visitor<Void> {
         } else {
             newline(++indent);
 
+            // Run methods which return calls of themselves in a loop, see visit(Ast.Stmt.Return)
+            boolean loop = !"void".equals(returnType) && hasTailCall(ast, ast.getStatements());
+            if (loop) {
+                method = ast;
+                writer.print("tail: while (true) {");
+                newline(++indent);
+            }
+
             // Generate method body statements with correct indentation and newlines
             for (int i = 0; i < ast.getStatements().size(); i++) {
                 visit(ast.getStatements().get(i));
@@ -148,6 +183,16 @@ public final class Generator implements Ast.Visitor<Void> {
                 }
             }
 
+            if (loop) {
+                // Leaves the loop when the body falls off its end, which javac then reports as a missing return
+                if (canComplete(ast.getStatements())) {
+                    newline(indent);
+                    writer.print("break tail;");
+                }
+                method = null;
+                newline(--indent);
+                writer.print("}");
+            }
             newline(--indent);
             writer.print("}");
         }
@@ -155,6 +200,76 @@ public final class Generator implements Ast.Visitor<Void> {
         return null;
     }
 
+    private static String parameterType(Ast.Method ast, int index) {
+        String parameterType = ast.getParameterTypeNames().get(index);
+        if ("Integer".equals(parameterType)) {
+            parameterType = "int";
+        } else if ("Decimal".equals(parameterType)) {
+            parameterType = "double";
+        } else if ("Integeriterable".equals(parameterType)) {
+            parameterType = "Iterable<Integer>"; // Correct the parameter type
+        }
+        return parameterType;
+    }
+
+    /**
+     * Returns true if any of the statements, including those nested in
+     * blocks, is a tail call of the method.
+     */
+    private static boolean hasTailCall(Ast.Method method, List<Ast.Stmt> statements) {
+        for (Ast.Stmt statement : statements) {
+            if (statement instanceof Ast.Stmt.Return && ((Ast.Stmt.Return) statement).isTailCall(method)) {
+                return true;
+            } else if (statement instanceof Ast.Stmt.If && (hasTailCall(method, ((Ast.Stmt.If) statement).getThenStatements())
+                    || hasTailCall(method, ((Ast.Stmt.If) statement).getElseStatements()))) {
+                return true;
+            } else if (statement instanceof Ast.Stmt.For && hasTailCall(method, ((Ast.Stmt.For) statement).getStatements())) {
+                return true;
+            } else if (statement instanceof Ast.Stmt.While && hasTailCall(method, ((Ast.Stmt.While) statement).getStatements())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the generated statements can complete normally, as
+     * javac decides, so a break after them is reachable, and the
+     * {@link BytecodeGenerator} rejects methods javac would. A block completes
+     * if its last statement does, as javac rejects any after one which
+     * doesn't, and a {@code while} doesn't if its condition is a constant.
+     */
+    static boolean canComplete(List<Ast.Stmt> statements) {
+        if (statements.isEmpty()) {
+            return true;
+        }
+        Ast.Stmt last = statements.get(statements.size() - 1);
+        if (last instanceof Ast.Stmt.Return) {
+            return false;
+        } else if (last instanceof Ast.Stmt.If) {
+            Ast.Stmt.If statement = (Ast.Stmt.If) last;
+            return statement.getElseStatements().isEmpty()
+                    || canComplete(statement.getThenStatements()) || canComplete(statement.getElseStatements());
+        } else if (last instanceof Ast.Stmt.While) {
+            return !isConstant(((Ast.Stmt.While) last).getCondition());
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the generated expression is a constant expression,
+     * which is any of operators and literals other than {@code null}.
+     */
+    private static boolean isConstant(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return ((Ast.Expr.Literal) expression).getLiteral() != null;
+        } else if (expression instanceof Ast.Expr.Group) {
+            return isConstant(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            return isConstant(((Ast.Expr.Binary) expression).getLeft()) && isConstant(((Ast.Expr.Binary) expression).getRight());
+        }
+        return false;
+    }
 
     @Override
     public Void visit(Ast.Stmt.Expression ast) {
@@ -306,12 +421,47 @@ public final class Generator implements Ast.Visitor<Void> {
 
     @Override
     public Void visit(Ast.Stmt.Return ast) {
+        if (method != null && ast.isTailCall(method)) {
+            visitTailCall(((Ast.Expr.Function) ast.getValue()).getArguments());
+            return null;
+        }
         print("return ");
         visit(ast.getValue());
         print(";");
         return null;
     }
 
+    /**
+     * Assigns the arguments of a tail call to the parameters and continues
+     * the loop of the method. Arguments which are the parameter itself are
+     * skipped, and if more than one parameter changes, the arguments are
+     * evaluated into temporaries first, as each may use the others.
+     */
+    private void visitTailCall(List<Ast.Expr> arguments) {
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < arguments.size(); i++) {
+            Ast.Expr argument = arguments.get(i);
+            if (!(argument instanceof Ast.Expr.Access) || ((Ast.Expr.Access) argument).getReceiver().isPresent()
+                    || !((Ast.Expr.Access) argument).getName().equals(method.getParameters().get(i))) {
+                changed.add(i);
+            }
+        }
+        if (changed.size() == 1) {
+            print(method.getParameters().get(changed.get(0)), " = ", arguments.get(changed.get(0)), ";");
+            newline(indent);
+        } else if (changed.size() > 1) {
+            for (int i : changed) {
+                print(parameterType(method, i), " next$", method.getParameters().get(i), " = ", arguments.get(i), ";");
+                newline(indent);
+            }
+            for (int i : changed) {
+                print(method.getParameters().get(i), " = next$", method.getParameters().get(i), ";");
+                newline(indent);
+            }
+        }
+        print("continue tail;");
+    }
+
     @Override
     public Void visit(Ast.Expr.Literal ast) {
         if (ast.getLiteral() == null) {
@@ -0,0 +1,271 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Compiles PLC sources to Java with the {@link Optimizer} and
+ * {@link Generator}, then compiles the Java with the system
+ * {@link JavaCompiler} and loads the class, all in memory. Compiled classes
+ * are cached by a SHA-256 hash of the PLC source, so compiling an unchanged
+ * source again skips lexing, parsing, analysis and javac. The cache keeps the
+ * most recently used classes up to a capacity, as each class pins the class
+ * loader it was defined by.
+ *
+ * Sources are compiled outside the lock of the cache, which only holds a
+ * future for each source, so threads compiling different sources don't wait
+ * for each other, and threads compiling the same source wait for the first.
+ */
+public final class InMemoryCompiler {
+
+    /**
+     * The number of classes cached by default.
+     */
+    public static final int CAPACITY = 64;
+
+    private final JavaCompiler compiler;
+    private final Map<String, CompletableFuture<Class<?>>> cache;
+
+    public InMemoryCompiler() {
+        this(CAPACITY);
+    }
+
+    public InMemoryCompiler(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive, received " + capacity + ".");
+        }
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("The Java compiler is not available, which requires running on a JDK.");
+        }
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<Class<?>>> eldest) {
+                return size() > capacity;
+            }
+
+        };
+    }
+
+    /**
+     * Returns the {@code Main} class compiled from the PLC source, which can
+     * be run with {@link BytecodeGenerator#run(Class)}.
+     */
+    public Class<?> compile(String input) {
+        String hash = hash(input);
+        CompletableFuture<Class<?>> future;
+        CompletableFuture<Class<?>> created = null;
+        synchronized (cache) {
+            future = cache.get(hash);
+            if (future == null) {
+                future = created = new CompletableFuture<>();
+                cache.put(hash, created);
+            }
+        }
+        if (created != null) {
+            try {
+                created.complete(compileSource(input));
+            } catch (RuntimeException | Error e) {
+                // Not cached, so the error is reported again for the next compile
+                synchronized (cache) {
+                    cache.remove(hash, created);
+                }
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private Class<?> compileSource(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(new Optimizer().visit(ast));
+        return compileJava("Main", writer.toString());
+    }
+
+    /**
+     * Compiles Java source declaring the class, returning the loaded class.
+     */
+    public Class<?> compileJava(String className, String source) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        List<JavaFileObject> units = List.of(new Source(className, source));
+        boolean success;
+        Map<String, byte[]> classes;
+        try (MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8))) {
+            success = compiler.getTask(null, fileManager, diagnostics, List.of("-proc:none"), null, units).call();
+            classes = fileManager.classes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!success) {
+            StringBuilder message = new StringBuilder("The generated source for " + className + " failed to compile:");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                message.append("\n").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+            }
+            throw new RuntimeException(message.toString());
+        }
+        try {
+            return new Loader(classes).loadClass(className);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("The generated source does not declare " + className + ".", e);
+        }
+    }
+
+    /**
+     * Removes every compiled class from the cache.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of classes cached, including those being compiled.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    static String hash(String input) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required to be supported.", e);
+        }
+    }
+
+    /**
+     * A Java source file held in memory.
+     */
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String source;
+
+        private Source(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    /**
+     * Keeps the class files written by the compiler in memory, by binary
+     * class name.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, byte[]> classes = new HashMap<>();
+
+        private MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+
+                @Override
+                public OutputStream openOutputStream() {
+                    return new ByteArrayOutputStream() {
+
+                        @Override
+                        public void close() {
+                            classes.put(className, toByteArray());
+                        }
+
+                    };
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Defines the compiled classes, delegating other classes to the loader
+     * of the project. The compiled classes are found first, so they can't be
+     * hidden by a class of the same name on the class path.
+     */
+    private static final class Loader extends ClassLoader {
+
+        private final Map<String, byte[]> classes;
+
+        private Loader(Map<String, byte[]> classes) {
+            super(InMemoryCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!classes.containsKey(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    type = findClass(name);
+                }
+                if (resolve) {
+                    resolveClass(type);
+                }
+                return type;
+            }
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+    }
+
+}
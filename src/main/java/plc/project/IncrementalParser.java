@@ -0,0 +1,236 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a source as it's edited, re-lexing and re-parsing only the fields
+ * and methods an edit touches, so the cost of a local edit depends on the
+ * size of the enclosing field or method rather than the whole source. The
+ * ASTs of the other fields and methods are reused as is.
+ *
+ * The tokens are kept per field and method, with indices relative to its
+ * start, so an edit only shifts the start of each later field and method
+ * rather than every later token. Whenever the edited tokens can't be split
+ * into fields and methods the same way as the whole source would be, such as
+ * when an edit removes a {@code DEF}, the whole source is parsed again, so the
+ * result is always the same as {@link Parser#parseSource()} of the text.
+ */
+public final class IncrementalParser {
+
+    private String text;
+    private Ast.Source source;
+
+    /**
+     * The fields and methods in order, or null if the text doesn't parse or
+     * its tokens don't split into them, in which case the next edit parses
+     * the whole text.
+     */
+    private List<Member> members;
+
+    public IncrementalParser(String text) throws ParseException {
+        this.text = text;
+        parseAll();
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the AST of the text, or null if the last edit didn't parse.
+     */
+    public Ast.Source getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the tokens of the text with their absolute indices.
+     */
+    public List<Token> getTokens() {
+        if (members == null) {
+            return new Lexer(text).lex();
+        }
+        List<Token> tokens = new ArrayList<>();
+        for (Member member : members) {
+            for (Token token : member.tokens) {
+                tokens.add(new Token(token.getType(), token.getLiteral(), member.start + token.getIndex()));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Replaces {@code removed} characters at the offset with the inserted text
+     * and returns the AST of the result. If it doesn't parse, the exception is
+     * thrown as by lexing and parsing the whole text, which is still edited.
+     */
+    public Ast.Source edit(int offset, int removed, String inserted) throws ParseException {
+        if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+            throw new IndexOutOfBoundsException("The edit of " + removed + " characters at " + offset + " is outside the text of length " + text.length() + ".");
+        }
+        text = text.substring(0, offset) + inserted + text.substring(offset + removed);
+        if (members != null && !members.isEmpty()) {
+            try {
+                return reparse(offset, removed, inserted.length());
+            } catch (ParseException e) {
+                // The error may depend on the rest of the text, so it's found again from the start
+            }
+        }
+        return parseAll();
+    }
+
+    private Ast.Source parseAll() throws ParseException {
+        source = null;
+        members = null;
+        List<Token> tokens = new Lexer(text).lex();
+        source = new Parser(tokens).parseSource();
+        List<List<Token>> chunks = split(tokens, false);
+        if (chunks.size() == source.getFields().size() + source.getMethods().size()) {
+            List<Member> split = new ArrayList<>(chunks.size());
+            for (int i = 0; i < chunks.size(); i++) {
+                boolean field = i < source.getFields().size();
+                if (!chunks.get(i).get(0).getLiteral().equals(field ? "LET" : "DEF")) {
+                    return source;
+                }
+                split.add(new Member(chunks.get(i), field ? source.getFields().get(i) : source.getMethods().get(i - source.getFields().size())));
+            }
+            members = split;
+        }
+        return source;
+    }
+
+    /**
+     * Re-lexes from the first field or method the edit may change until the
+     * lexer reaches the start of a later one which wasn't edited, since the
+     * tokens from there are the same as before. Lexing a token may look ahead
+     * past its end, so re-lexing starts a token before the edit.
+     */
+    private Ast.Source reparse(int offset, int removed, int inserted) throws ParseException {
+        int delta = inserted - removed;
+        int first = find(offset);
+        if (first > 0) {
+            Member member = members.get(first);
+            Token token = member.tokens[0];
+            if (member.start + token.getIndex() + token.getLiteral().length() >= offset) {
+                first--;
+            }
+        }
+        Lexer lexer = new Lexer(text, Math.min(members.get(first).start, offset));
+        List<Token> tokens = new ArrayList<>();
+        int last = first + 1;
+        Token token = lexer.lexNext();
+        for (; token != null; token = lexer.lexNext()) {
+            while (last < members.size() && (members.get(last).start < offset + removed || members.get(last).start + delta < token.getIndex())) {
+                last++;
+            }
+            if (last < members.size() && members.get(last).start + delta == token.getIndex()) {
+                break;
+            }
+            tokens.add(token);
+        }
+        if (token == null) {
+            last = members.size();
+        }
+        boolean method = first > 0 && members.get(first - 1).ast instanceof Ast.Method;
+        List<Member> replacement = new ArrayList<>();
+        for (List<Token> chunk : split(tokens, method)) {
+            String keyword = chunk.get(0).getLiteral();
+            if (!keyword.equals("LET") && !keyword.equals("DEF")) {
+                throw new ParseException("Expected a field or method.", chunk.get(0).getIndex());
+            }
+            Ast.Source parsed = new Parser(chunk).parseSource();
+            replacement.add(new Member(chunk, keyword.equals("LET") ? parsed.getFields().get(0) : parsed.getMethods().get(0)));
+        }
+        List<Member> following = last < members.size() ? List.of(members.get(last)) : List.of();
+        for (List<Member> list : List.of(replacement, following)) {
+            for (Member member : list) {
+                if (method && member.ast instanceof Ast.Field) {
+                    throw new ParseException("Expected a method.", member.start);
+                }
+                method = member.ast instanceof Ast.Method;
+            }
+        }
+        members.subList(first, last).clear();
+        members.addAll(first, replacement);
+        for (int i = first + replacement.size(); i < members.size(); i++) {
+            members.get(i).start += delta;
+        }
+        List<Ast.Field> fields = new ArrayList<>();
+        List<Ast.Method> methods = new ArrayList<>();
+        for (Member member : members) {
+            if (member.ast instanceof Ast.Field) {
+                fields.add((Ast.Field) member.ast);
+            } else {
+                methods.add((Ast.Method) member.ast);
+            }
+        }
+        source = new Ast.Source(fields, methods);
+        return source;
+    }
+
+    /**
+     * Returns the index of the last member starting at or before the offset,
+     * or 0 if there is none.
+     */
+    private int find(int offset) {
+        int low = 0;
+        int high = members.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (members.get(mid).start <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Splits the tokens before each {@code DEF}, and before each {@code LET}
+     * until the first {@code DEF} since those are fields rather than
+     * declarations. Any tokens before the first are a chunk of their own.
+     */
+    private static List<List<Token>> split(List<Token> tokens, boolean methods) {
+        List<List<Token>> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.getType() == Token.Type.IDENTIFIER && (token.getLiteral().equals("DEF") || !methods && token.getLiteral().equals("LET"))) {
+                methods |= token.getLiteral().equals("DEF");
+                if (i > start) {
+                    chunks.add(tokens.subList(start, i));
+                }
+                start = i;
+            }
+        }
+        if (tokens.size() > start) {
+            chunks.add(tokens.subList(start, tokens.size()));
+        }
+        return chunks;
+    }
+
+    /**
+     * A field or method with its tokens, whose indices are relative to the
+     * start of its first token.
+     */
+    private static final class Member {
+
+        private int start;
+        private final Token[] tokens;
+        private final Ast ast;
+
+        private Member(List<Token> tokens, Ast ast) {
+            this.start = tokens.get(0).getIndex();
+            this.tokens = new Token[tokens.size()];
+            for (int i = 0; i < this.tokens.length; i++) {
+                Token token = tokens.get(i);
+                this.tokens[i] = new Token(token.getType(), token.getLiteral(), token.getIndex() - start);
+            }
+            this.ast = ast;
+        }
+
+    }
+
+}
@@ -0,0 +1,198 @@
+package plc.project;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches the functions called at a call site, see
+ * {@link Interpreter#getCache(Ast.Expr.Function)}, so the {@link Interpreter}
+ * doesn't look them up again on every call. Methods are cached by the type of
+ * the receiver, and functions by the nearest scope defining any functions,
+ * which for a method's calls is the same scope on every call.
+ *
+ * A call site caching a single key is monomorphic, and otherwise polymorphic
+ * up to {@link #LIMIT} keys, after which it is megamorphic and stops caching,
+ * looking up every call. Each entry is valid while no function is defined in
+ * the scope it was looked up from or its parents, see
+ * {@link Scope#getVersion()}, as one may shadow the function cached.
+ *
+ * Each interpreter has its own caches, kept by the index of their call site,
+ * as the scopes and functions of one run are never those of another. The
+ * cached entries are replaced rather than changed, so a cache may still be
+ * shared between threads. Hits and misses are only counted with stats
+ * enabled, as counting them costs more than a hit.
+ */
+public final class InlineCache {
+
+    /**
+     * The number of keys cached before a call site is megamorphic.
+     */
+    public static final int LIMIT = 4;
+
+    private final Symbol symbol;
+    private final int arity;
+    private Entries entries = new Entries(new Object[0], new int[0], new Environment.Function[0]);
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    public InlineCache(Symbol symbol, int arity) {
+        this(symbol, arity, false);
+    }
+
+    public InlineCache(Symbol symbol, int arity, boolean stats) {
+        this.symbol = symbol;
+        this.arity = arity;
+        this.hits = stats ? new LongAdder() : null;
+        this.misses = stats ? new LongAdder() : null;
+    }
+
+    /**
+     * Returns whether this caches the function with the symbol and arity,
+     * which a call site sharing its index with another may not.
+     */
+    public boolean isFor(Symbol symbol, int arity) {
+        return this.symbol == symbol && this.arity == arity;
+    }
+
+    /**
+     * Returns the function called without a receiver from the scope.
+     */
+    public Environment.Function lookupFunction(Scope scope) {
+        Scope key = scope.getFunctionScope();
+        int version = key.getVersion();
+        Environment.Function function = find(key, version);
+        if (function == null) {
+            function = key.lookupFunction(symbol, arity);
+            add(key, version, function);
+        }
+        return function;
+    }
+
+    /**
+     * Returns the method called on a receiver of the type, which takes the
+     * receiver as its first argument.
+     */
+    public Environment.Function lookupMethod(Environment.Type type) {
+        int version = type.getScope().getVersion();
+        Environment.Function function = find(type, version);
+        if (function == null) {
+            function = type.getMethod(symbol, arity);
+            add(type, version, function);
+        }
+        return function;
+    }
+
+    private Environment.Function find(Object key, int version) {
+        Entries entries = this.entries;
+        if (entries.keys != null) {
+            for (int i = 0; i < entries.keys.length; i++) {
+                if (entries.keys[i] == key && entries.versions[i] == version) {
+                    if (hits != null) {
+                        hits.increment();
+                    }
+                    return entries.functions[i];
+                }
+            }
+        }
+        if (misses != null) {
+            misses.increment();
+        }
+        return null;
+    }
+
+    private void add(Object key, int version, Environment.Function function) {
+        Entries entries = this.entries;
+        if (entries.keys == null) {
+            return;
+        }
+        int index = 0;
+        while (index < entries.keys.length && entries.keys[index] != key) {
+            index++;
+        }
+        if (index == LIMIT) {
+            this.entries = new Entries(null, null, null);
+            return;
+        }
+        // Replaces the entry of the key if it is stale, or adds one
+        int length = Math.max(entries.keys.length, index + 1);
+        Object[] keys = Arrays.copyOf(entries.keys, length);
+        int[] versions = Arrays.copyOf(entries.versions, length);
+        Environment.Function[] functions = Arrays.copyOf(entries.functions, length);
+        keys[index] = key;
+        versions[index] = version;
+        functions[index] = function;
+        this.entries = new Entries(keys, versions, functions);
+    }
+
+    /**
+     * Returns the number of keys cached, which is 0 once megamorphic.
+     */
+    public int size() {
+        Entries entries = this.entries;
+        return entries.keys != null ? entries.keys.length : 0;
+    }
+
+    public boolean isMegamorphic() {
+        return entries.keys == null;
+    }
+
+    public boolean hasStats() {
+        return hits != null;
+    }
+
+    /**
+     * Returns the number of calls which hit the cache, or 0 without stats.
+     */
+    public long getHits() {
+        return hits != null ? hits.sum() : 0;
+    }
+
+    /**
+     * Returns the number of calls which missed the cache, or 0 without stats.
+     */
+    public long getMisses() {
+        return misses != null ? misses.sum() : 0;
+    }
+
+    /**
+     * Returns the fraction of calls which hit the cache, or 0 if there were
+     * none or no stats.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long calls = hits + getMisses();
+        return calls == 0 ? 0 : (double) hits / calls;
+    }
+
+    @Override
+    public String toString() {
+        return "InlineCache{" +
+                "function=" + symbol.function(arity) +
+                ", size=" + size() +
+                ", megamorphic=" + isMegamorphic() +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                '}';
+    }
+
+    /**
+     * The keys and functions cached, with the scope version each was looked
+     * up at, and null keys once megamorphic. Entries are never changed once
+     * created, so the fields are final for them to be seen fully initialized
+     * by other threads.
+     */
+    private static final class Entries {
+
+        private final Object[] keys;
+        private final int[] versions;
+        private final Environment.Function[] functions;
+
+        private Entries(Object[] keys, int[] versions, Environment.Function[] functions) {
+            this.keys = keys;
+            this.versions = versions;
+            this.functions = functions;
+        }
+
+    }
+
+}
@@ -1,69 +1,197 @@
 package plc.project;
 
-import java.math.BigDecimal;
-import java.math.BigInteger;
-import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-
+import java.util.Set;
+
+/**
+ * Evaluates the AST. If the AST has been resolved by the {@link Resolver},
+ * fields are read through the {@link #globals} list and the parameters and
+ * locals of each method call are stored in an array {@link #frame} instead of
+ * being looked up by name in a {@link Scope}. Otherwise, methods run in a
+ * scope whose parent is the scope they were defined in, and blocks only get a
+ * scope of their own if they declare a variable, see
+ * {@link Ast.Stmt#declares(List)}.
+ *
+ * A {@code RETURN} statement doesn't throw, but sets {@link #returning} to its
+ * value. Statements are executed through {@link #execute(List)}, which stops
+ * at the first statement that returns, and the method call then takes the
+ * value, so returning costs no more than any other statement. A method
+ * returning a call of itself continues in a loop rather than calling itself,
+ * so tail recursion runs in constant stack depth.
+ *
+ * Unless disabled, arithmetic and comparisons on Integers which fit in a long
+ * are done on the unboxed values, falling back to BigInteger on overflow.
+ *
+ * If enabled, methods which {@link Purity} finds to be pure are wrapped in a
+ * {@link Memoizer}, so calls with the same arguments return the cached result.
+ *
+ * Unless disabled, functions are looked up through an {@link InlineCache} for
+ * each call site, which each interpreter keeps for its own run in an array by
+ * the index of the call site, see {@link Ast.Expr.Function#getSite()}.
+ * Functions are called with up to three arguments passed individually, see
+ * {@link Environment.Function#invoke1}, including the receiver of a method
+ * call as the first, and otherwise with an array, so calls don't build a list
+ * of their arguments.
+ */
 public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
+    /**
+     * The value returned by a tail call, which the method runs as a loop
+     * instead, see {@link MethodBody}.
+     */
+    private static final Environment.PlcObject TAIL_CALL = new Environment.PlcObject(Environment.Type.NIL, new Scope(null), null);
+
     private Scope scope = new Scope(null);
+    private final List<Environment.Variable> globals = new ArrayList<>();
+    private Environment.PlcObject[] frame = null;
+    private Environment.PlcObject returning = null;
+    private Ast.Method method = null;
+    private Environment.PlcObject[] tailArguments = null;
+    private final boolean smallIntegers;
+    private final int memoize;
+    private final boolean inlineCaches;
+    private final boolean cacheStats;
+    private InlineCache[] caches = new InlineCache[0];
+    private final Map<String, Memoizer> memoizers = new HashMap<>();
+    private Set<Ast.Method> pure = Collections.emptySet();
 
     public Interpreter(Scope parent) {
+        this(parent, true);
+    }
+
+    public Interpreter(Scope parent, boolean smallIntegers) {
+        this(parent, smallIntegers, 0);
+    }
+
+    /**
+     * Creates an interpreter, with {@code smallIntegers} choosing whether
+     * Integer arithmetic is done on longs where possible and {@code memoize}
+     * the number of results cached for each pure method, or 0 for none.
+     */
+    public Interpreter(Scope parent, boolean smallIntegers, int memoize) {
+        this(parent, smallIntegers, memoize, true);
+    }
+
+    /**
+     * Creates an interpreter as above, with {@code inlineCaches} choosing
+     * whether functions are looked up through the cache of each call site.
+     */
+    public Interpreter(Scope parent, boolean smallIntegers, int memoize, boolean inlineCaches) {
+        this(parent, smallIntegers, memoize, inlineCaches, false);
+    }
+
+    /**
+     * Creates an interpreter as above, with {@code cacheStats} choosing
+     * whether the inline caches count their hits and misses.
+     */
+    public Interpreter(Scope parent, boolean smallIntegers, int memoize, boolean inlineCaches, boolean cacheStats) {
+        this.smallIntegers = smallIntegers;
+        this.memoize = memoize;
+        this.inlineCaches = inlineCaches;
+        this.cacheStats = cacheStats;
         scope = new Scope(parent);
-        scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
+        scope.defineFunction("print", 1, Environment.Function.Body.of(value -> {
+            System.out.println(value.getValue());
             return Environment.NIL;
-        });
+        }));
     }
 
     public Scope getScope() {
         return scope;
     }
 
+    /**
+     * Returns the memoizers of the pure methods defined so far, by the name
+     * and arity of each method as in {@code "fib/1"}.
+     */
+    public Map<String, Memoizer> getMemoizers() {
+        return Collections.unmodifiableMap(memoizers);
+    }
+
+    /**
+     * Returns the inline cache of the call site, or null if it hasn't been
+     * called with inline caches enabled.
+     */
+    public InlineCache getCache(Ast.Expr.Function ast) {
+        int site = ast.getSite();
+        InlineCache cache = site >= 0 && site < caches.length ? caches[site] : null;
+        return cache != null && cache.isFor(ast.getSymbol(), ast.getArguments().size()) ? cache : null;
+    }
+
+    /**
+     * Returns the inline cache of the call site, creating it on the first
+     * call, or null if the call site has no index or its index is taken by
+     * another function, as for calls parsed separately.
+     */
+    private InlineCache cache(Ast.Expr.Function ast) {
+        int site = ast.getSite();
+        if (site < 0) {
+            return null;
+        } else if (site >= caches.length) {
+            caches = Arrays.copyOf(caches, Math.max(site + 1, 2 * caches.length));
+        }
+        InlineCache cache = caches[site];
+        if (cache == null) {
+            cache = new InlineCache(ast.getSymbol(), ast.getArguments().size(), cacheStats);
+            caches[site] = cache;
+        } else if (!cache.isFor(ast.getSymbol(), ast.getArguments().size())) {
+            return null;
+        }
+        return cache;
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Source ast) {
+        if (memoize > 0) {
+            pure = Purity.analyze(ast);
+        }
         for (Ast.Field field : ast.getFields()) {
             visit(field);
         }
         for (Ast.Method method : ast.getMethods()) {
             visit(method);
         }
-        return scope.lookupFunction("main", 0).invoke(Collections.<Environment.PlcObject>emptyList());
+        return scope.lookupFunction("main", 0).invoke0();
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Field ast) {
         Environment.PlcObject value = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
-        scope.defineVariable(ast.getName(), value);
+        Environment.Variable variable = scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, value);
+        if (ast.getSlot() >= 0) {
+            while (globals.size() <= ast.getSlot()) {
+                globals.add(null);
+            }
+            globals.set(ast.getSlot(), variable);
+        }
         return Environment.NIL;
     }
 
     @Override
     public Environment.PlcObject visit(Ast.Method ast) {
-        scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
-            Scope methodScope = new Scope(scope);
-            for (int i = 0; i < ast.getParameters().size(); i++) {
-                methodScope.defineVariable(ast.getParameters().get(i), args.get(i));
-            }
-            try {
-                scope = methodScope;
-                for (Ast.Stmt stmt : ast.getStatements()) {
-                    visit(stmt);  // Use the existing scope to ensure variables like 'y' are updated correctly.
-                }
-            } catch (Return returnValue) {
-                return returnValue.value;
-            } finally {
-                scope = scope.getParent();
-            }
-            return Environment.NIL;
-        });
+        Environment.Function.Body body = ast.getFrameSize() >= 0 ? new ResolvedBody(ast, scope) : new UnresolvedBody(ast, scope);
+        scope.defineFunction(ast.getName(), ast.getParameters().size(), memoize(ast, body));
         return Environment.NIL;
     }
 
+    /**
+     * Wraps the body of a method in a {@link Memoizer} if it is pure.
+     */
+    private Environment.Function.Body memoize(Ast.Method ast, Environment.Function.Body body) {
+        if (!pure.contains(ast)) {
+            return body;
+        }
+        Memoizer memoizer = new Memoizer(arguments -> body.invoke(arguments), memoize);
+        memoizers.put(ast.getName() + "/" + ast.getParameters().size(), memoizer);
+        return Environment.Function.Body.list(memoizer);
+    }
+
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Expression ast) {
         visit(ast.getExpression());
@@ -72,6 +200,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Declaration ast) {
+        if (ast.getSlot() >= 0) {
+            frame[ast.getSlot()] = ast.getValue().isPresent() ? visit(ast.getValue().get()) : Environment.NIL;
+            return Environment.NIL;
+        }
         if(ast.getValue().isPresent()){
             scope.defineVariable(ast.getName(), visit(ast.getValue().get()));
         } else{
@@ -90,6 +222,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 Environment.PlcObject receiver = visit(access.getReceiver().get());
                 Environment.Variable variable = receiver.getField(access.getName());
                 variable.setValue(visit(ast.getValue()));
+            } else if (access.getDepth() == 0) {
+                frame[access.getSlot()] = visit(ast.getValue());
+            } else if (access.getDepth() == 1) {
+                globals.get(access.getSlot()).setValue(visit(ast.getValue()));
             } else {
                 // If no receiver, the variable is in the current scope
                 Environment.Variable variable = scope.lookupVariable(access.getName());
@@ -107,26 +243,19 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.If ast) {
-        if (requireType(Boolean.class, visit(ast.getCondition()))) {
-            Scope ifScope = new Scope(scope); // Create a new scope for the 'if' block
-            try {
-                scope = ifScope;  // Enter the new scope
-                for (Ast.Stmt stmt : ast.getThenStatements()) {
-                    visit(stmt);
-                }
-            } finally {
-                scope = scope.getParent();  // Exit the scope after the block
-            }
-        } else {
-            Scope elseScope = new Scope(scope); // Create a new scope for the 'else' block
-            try {
-                scope = elseScope;  // Enter the new scope
-                for (Ast.Stmt stmt : ast.getElseStatements()) {
-                    visit(stmt);
-                }
-            } finally {
-                scope = scope.getParent();  // Exit the scope after the block
-            }
+        boolean condition = requireType(Boolean.class, visit(ast.getCondition()));
+        List<Ast.Stmt> statements = condition ? ast.getThenStatements() : ast.getElseStatements();
+        // Resolved methods store their locals in the frame, so blocks don't need a scope
+        if (frame != null || !(condition ? ast.hasThenScope() : ast.hasElseScope())) {
+            execute(statements);
+            return Environment.NIL;
+        }
+        Scope blockScope = new Scope(scope);
+        try {
+            scope = blockScope;
+            execute(statements);
+        } finally {
+            scope = scope.getParent();
         }
         return Environment.NIL;
     }
@@ -136,6 +265,32 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         Environment.PlcObject iterable = visit(ast.getValue());
         List<Environment.PlcObject> list = requireType(List.class, iterable);
 
+        if (ast.getSlot() >= 0) {
+            for (Environment.PlcObject element : list) {
+                frame[ast.getSlot()] = element;
+                if (!execute(ast.getStatements())) {
+                    break;
+                }
+            }
+            return Environment.NIL;
+        } else if (!ast.hasScope()) {
+            // Nothing else is defined in the loop, so one scope holds the loop variable throughout
+            Scope loopScope = new Scope(scope);
+            Environment.Variable variable = loopScope.defineVariable(ast.getName(), ast.getName(), Environment.Type.ANY, Environment.NIL);
+            try {
+                scope = loopScope;
+                for (Environment.PlcObject element : list) {
+                    variable.setValue(element);
+                    if (!execute(ast.getStatements())) {
+                        break;
+                    }
+                }
+            } finally {
+                scope = scope.getParent();
+            }
+            return Environment.NIL;
+        }
+
         for (Environment.PlcObject element : list) {
             // Create a new scope for each iteration
             Scope iterationScope = new Scope(scope);
@@ -145,8 +300,8 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
             try {
                 scope = iterationScope;  // Use the new scope
-                for (Ast.Stmt stmt : ast.getStatements()) {
-                    visit(stmt);  // Visit the statements within this scope
+                if (!execute(ast.getStatements())) {  // Visit the statements within this scope
+                    break;
                 }
             } finally {
                 scope = scope.getParent();  // Reset the scope back to the parent after iteration
@@ -156,19 +311,25 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return Environment.NIL;
     }
 
-
     @Override
     public Environment.PlcObject visit(Ast.Stmt.While ast) {
+        boolean scoped = frame == null && ast.hasScope();
         while (requireType(Boolean.class, visit(ast.getCondition()))) {
-            try {
-                // Remove the scope creation inside the loop
-                //scope = new Scope(scope);
-                for (Ast.Stmt stmt : ast.getStatements()) {
-                    visit(stmt);
+            boolean completed;
+            if (scoped) {
+                // Each iteration declares its variables again, so needs a new scope
+                Scope iterationScope = new Scope(scope);
+                try {
+                    scope = iterationScope;
+                    completed = execute(ast.getStatements());
+                } finally {
+                    scope = scope.getParent();
                 }
-            } finally {
-                // Don't reset the scope at the end of each loop iteration
-                //scope = scope.getParent();
+            } else {
+                completed = execute(ast.getStatements());
+            }
+            if (!completed) {
+                break;
             }
         }
         return Environment.NIL;
@@ -176,9 +337,18 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Stmt.Return ast) {
-        if (ast.getValue() instanceof Ast.Expr.Function)
-            scope = scope.getParent();
-        throw new Return(visit(ast.getValue()));
+        if (method != null && ast.isTailCall(method)) {
+            List<Ast.Expr> arguments = ((Ast.Expr.Function) ast.getValue()).getArguments();
+            Environment.PlcObject[] values = new Environment.PlcObject[arguments.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = visit(arguments.get(i));
+            }
+            tailArguments = values;
+            returning = TAIL_CALL;
+            return Environment.NIL;
+        }
+        returning = visit(ast.getValue());
+        return Environment.NIL;
     }
 
     @Override
@@ -200,80 +370,31 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         Environment.PlcObject right = (!Objects.equals(ast.getOperator(), "AND") && !Objects.equals(ast.getOperator(), "OR") &&
                 !Objects.equals(ast.getOperator(), "&&") && !Objects.equals(ast.getOperator(), "||")) ? visit(ast.getRight()) : left;
 
+        if (smallIntegers && left.isSmallInteger() && right.isSmallInteger()) {
+            Environment.PlcObject result = visitSmallIntegers(ast.getOperator(), left.getSmallInteger(), right.getSmallInteger());
+            if (result != null) {
+                return result;
+            }
+        }
+
         switch (ast.getOperator()) {
             case "+":
-                if (left.getValue() instanceof String || right.getValue() instanceof String) {
-                    return Environment.create(left.getValue().toString() + right.getValue().toString());
-                } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, left).add(requireType(BigInteger.class, right)));
-                } else if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, left).add(requireType(BigDecimal.class, right)));
-                } else if (left.getValue() instanceof BigInteger) {
-                    return Environment.create(new BigDecimal(requireType(BigInteger.class, left)).add(requireType(BigDecimal.class, right)));
-                } else if (right.getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigDecimal.class, left).add(new BigDecimal(requireType(BigInteger.class, right))));
-                } else {
-                    throw new RuntimeException("Numerical/string types must match");
-                }
+                return Operators.add(left, right);
             case "-":
-                // Handle subtraction
-                if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, left).subtract(requireType(BigDecimal.class, right)));
-                } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, left).subtract(requireType(BigInteger.class, right)));
-                } else {
-                    throw new RuntimeException("Numerical types must match for subtraction.");
-                }
+                return Operators.subtract(left, right);
             case "*":
-                // Handle multiplication
-                if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
-                    return Environment.create(requireType(BigDecimal.class, left).multiply(requireType(BigDecimal.class, right)));
-                } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
-                    return Environment.create(requireType(BigInteger.class, left).multiply(requireType(BigInteger.class, right)));
-                } else {
-                    throw new RuntimeException("Numerical types must match for multiplication.");
-                }
+                return Operators.multiply(left, right);
             case "/":
-                // Handle division for BigDecimal and BigInteger
-                if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
-                    BigDecimal divisor = requireType(BigDecimal.class, right);
-                    if (divisor.compareTo(BigDecimal.ZERO) == 0) {
-                        throw new ArithmeticException("Division by zero is not allowed.");
-                    }
-                    return Environment.create(requireType(BigDecimal.class, left).divide(divisor, RoundingMode.HALF_EVEN));
-                } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
-                    BigInteger divisor = requireType(BigInteger.class, right);
-                    if (divisor.equals(BigInteger.ZERO)) {
-                        throw new ArithmeticException("Division by zero is not allowed.");
-                    }
-                    return Environment.create(requireType(BigInteger.class, left).divide(divisor));
-                } else {
-                    throw new RuntimeException("Numerical types must match for division.");
-                }
+                return Operators.divide(left, right);
             case ">":
             case "<":
             case ">=":
             case "<=":
-                if (left.getValue() instanceof Comparable) {
-                    if (left.getValue().getClass() != right.getValue().getClass()) {
-                        // Throw an exception for mixed types
-                        throw new UnsupportedOperationException("Unsupported operator: " + ast.getOperator() + " for different types.");
-                    } else if (left.getValue() instanceof BigInteger) {
-                        // Handle BigInteger comparisons
-                        int comparison = requireType(BigInteger.class, left).compareTo(requireType(BigInteger.class, right));
-                        return handleComparison(ast.getOperator(), comparison);
-                    } else if (left.getValue() instanceof BigDecimal) {
-                        // Handle BigDecimal comparisons
-                        int comparison = requireType(BigDecimal.class, left).compareTo(requireType(BigDecimal.class, right));
-                        return handleComparison(ast.getOperator(), comparison);
-                    }
-                } else {
-                    throw new UnsupportedOperationException("Unsupported operator: " + ast.getOperator() + " for non-comparable types.");
-                }
+                return Operators.compare(ast.getOperator(), left, right);
             case "==":
-                return Environment.create(left.getValue().equals(right.getValue()));
+                return Operators.equal(left, right);
             case "!=":
-                return Environment.create(!left.getValue().equals(right.getValue()));
+                return Operators.notEqual(left, right);
             case "OR":
             case "||":
                 if (requireType(Boolean.class, left)) {
@@ -293,18 +414,34 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         }
     }
 
-    private Environment.PlcObject handleComparison(String operator, int comparison) {
+    /**
+     * Evaluates a binary operator on two Integers which fit in a long,
+     * returning null if the result overflows so it is computed with BigInteger.
+     */
+    private static Environment.PlcObject visitSmallIntegers(String operator, long left, long right) {
         switch (operator) {
+            case "+":
+                return Operators.add(left, right);
+            case "-":
+                return Operators.subtract(left, right);
+            case "*":
+                return Operators.multiply(left, right);
+            case "/":
+                return Operators.divide(left, right);
             case ">":
-                return Environment.create(comparison > 0);
+                return Environment.create(left > right);
             case "<":
-                return Environment.create(comparison < 0);
+                return Environment.create(left < right);
             case ">=":
-                return Environment.create(comparison >= 0);
+                return Environment.create(left >= right);
             case "<=":
-                return Environment.create(comparison <= 0);
+                return Environment.create(left <= right);
+            case "==":
+                return Environment.create(left == right);
+            case "!=":
+                return Environment.create(left != right);
             default:
-                throw new UnsupportedOperationException("Unsupported comparison operator: " + operator);
+                return null;
         }
     }
 
@@ -313,6 +450,10 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         if (ast.getReceiver().isPresent()) {
             Environment.PlcObject receiver = visit(ast.getReceiver().get());
             return receiver.getField(ast.getName()).getValue();
+        } else if (ast.getDepth() == 0) {
+            return frame[ast.getSlot()];
+        } else if (ast.getDepth() == 1) {
+            return globals.get(ast.getSlot()).getValue();
         } else {
             Environment.Variable variable = scope.lookupVariable(ast.getName());
             if (variable != null) {
@@ -325,20 +466,102 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     @Override
     public Environment.PlcObject visit(Ast.Expr.Function ast) {
-        List<Environment.PlcObject> arguments = new ArrayList<>();
-        for (Ast.Expr argument : ast.getArguments()) {
-            arguments.add(visit(argument));
-        }
-
+        List<Ast.Expr> arguments = ast.getArguments();
         if (ast.getReceiver().isPresent()) {
-            // Instance method call: Get the receiver and call the method on it.
-            Environment.PlcObject receiver = visit(ast.getReceiver().get());
-            return receiver.callMethod(ast.getName(), arguments);
+            // Instance method call: The receiver is evaluated after the arguments and passed first.
+            Ast.Expr receiver = ast.getReceiver().get();
+            switch (arguments.size()) {
+                case 0: {
+                    Environment.PlcObject self = visit(receiver);
+                    return lookupMethod(ast, self).invoke1(self);
+                }
+                case 1: {
+                    Environment.PlcObject first = visit(arguments.get(0));
+                    Environment.PlcObject self = visit(receiver);
+                    return lookupMethod(ast, self).invoke2(self, first);
+                }
+                case 2: {
+                    Environment.PlcObject first = visit(arguments.get(0));
+                    Environment.PlcObject second = visit(arguments.get(1));
+                    Environment.PlcObject self = visit(receiver);
+                    return lookupMethod(ast, self).invoke3(self, first, second);
+                }
+                default: {
+                    Environment.PlcObject[] values = new Environment.PlcObject[arguments.size() + 1];
+                    for (int i = 0; i < arguments.size(); i++) {
+                        values[i + 1] = visit(arguments.get(i));
+                    }
+                    values[0] = visit(receiver);
+                    return lookupMethod(ast, values[0]).invoke(values);
+                }
+            }
         } else {
             // Regular function call: Lookup the function in the current scope.
-            Environment.Function function = scope.lookupFunction(ast.getName(), arguments.size());
-            return function.invoke(arguments);
+            switch (arguments.size()) {
+                case 0:
+                    return lookupFunction(ast).invoke0();
+                case 1: {
+                    Environment.PlcObject first = visit(arguments.get(0));
+                    return lookupFunction(ast).invoke1(first);
+                }
+                case 2: {
+                    Environment.PlcObject first = visit(arguments.get(0));
+                    Environment.PlcObject second = visit(arguments.get(1));
+                    return lookupFunction(ast).invoke2(first, second);
+                }
+                case 3: {
+                    Environment.PlcObject first = visit(arguments.get(0));
+                    Environment.PlcObject second = visit(arguments.get(1));
+                    Environment.PlcObject third = visit(arguments.get(2));
+                    return lookupFunction(ast).invoke3(first, second, third);
+                }
+                default: {
+                    Environment.PlcObject[] values = new Environment.PlcObject[arguments.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = visit(arguments.get(i));
+                    }
+                    return lookupFunction(ast).invoke(values);
+                }
+            }
+        }
+    }
+
+    private Environment.Function lookupMethod(Ast.Expr.Function ast, Environment.PlcObject receiver) {
+        InlineCache cache = inlineCaches ? cache(ast) : null;
+        return cache != null
+                ? cache.lookupMethod(receiver.getType())
+                : receiver.getType().getMethod(ast.getSymbol(), ast.getArguments().size());
+    }
+
+    private Environment.Function lookupFunction(Ast.Expr.Function ast) {
+        InlineCache cache = inlineCaches ? cache(ast) : null;
+        return cache != null
+                ? cache.lookupFunction(scope)
+                : scope.lookupFunction(ast.getSymbol(), ast.getArguments().size());
+    }
+
+    /**
+     * Executes the statements until one of them returns, returning false if
+     * it did so the enclosing statement can stop as well.
+     */
+    private boolean execute(List<Ast.Stmt> statements) {
+        for (Ast.Stmt stmt : statements) {
+            visit(stmt);
+            if (returning != null) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * Returns the value of the {@code RETURN} statement which ended the method
+     * call, or NIL if there wasn't one, and clears it for the caller.
+     */
+    private Environment.PlcObject takeReturn() {
+        Environment.PlcObject value = returning;
+        returning = null;
+        return value != null ? value : Environment.NIL;
     }
 
     /**
@@ -353,14 +576,169 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     /**
-     * Exception class for returning values.
+     * The body of a method of the source, which binds the arguments to the
+     * parameters as they are passed, so calls with up to three arguments don't
+     * collect them. Each call binds them in a new context, either a scope or a
+     * frame, which the method then runs in.
+     *
+     * A tail call of the method, see {@link Ast.Stmt.Return#isTailCall},
+     * returns {@link #TAIL_CALL} with its arguments in {@link #tailArguments},
+     * and the method binds them in the next context and runs again, so deep
+     * recursion runs in a loop rather than on the stack.
      */
-    private static class Return extends RuntimeException {
+    private abstract class MethodBody<C> extends Environment.Function.Body {
+
+        final Ast.Method ast;
+        final Scope definition;
+
+        MethodBody(Ast.Method ast, Scope definition) {
+            this.ast = ast;
+            this.definition = definition;
+        }
+
+        abstract C enter();
+
+        abstract void bind(C context, int index, Environment.PlcObject value);
+
+        /**
+         * Makes the context the current scope or frame.
+         */
+        abstract void activate(C context);
+
+        /**
+         * Returns the context for a tail call made in the context.
+         */
+        abstract C next(C context);
 
-        private final Environment.PlcObject value;
+        Environment.PlcObject run(C context) {
+            Scope savedScope = scope;
+            Environment.PlcObject[] savedFrame = frame;
+            Ast.Method savedMethod = method;
+            try {
+                method = ast;
+                activate(context);
+                while (!execute(ast.getStatements()) && returning == TAIL_CALL) {
+                    Environment.PlcObject[] arguments = tailArguments;
+                    tailArguments = null;
+                    returning = null;
+                    context = next(context);
+                    for (int i = 0; i < arguments.length; i++) {
+                        bind(context, i, arguments[i]);
+                    }
+                    activate(context);
+                }
+            } finally {
+                scope = savedScope;
+                frame = savedFrame;
+                method = savedMethod;
+            }
+            return takeReturn();
+        }
+
+        @Override
+        public Environment.PlcObject invoke(Environment.PlcObject[] arguments) {
+            C context = enter();
+            for (int i = 0; i < arguments.length; i++) {
+                bind(context, i, arguments[i]);
+            }
+            return run(context);
+        }
+
+        @Override
+        public Environment.PlcObject invoke0() {
+            return run(enter());
+        }
+
+        @Override
+        public Environment.PlcObject invoke1(Environment.PlcObject first) {
+            C context = enter();
+            bind(context, 0, first);
+            return run(context);
+        }
+
+        @Override
+        public Environment.PlcObject invoke2(Environment.PlcObject first, Environment.PlcObject second) {
+            C context = enter();
+            bind(context, 0, first);
+            bind(context, 1, second);
+            return run(context);
+        }
+
+        @Override
+        public Environment.PlcObject invoke3(Environment.PlcObject first, Environment.PlcObject second, Environment.PlcObject third) {
+            C context = enter();
+            bind(context, 0, first);
+            bind(context, 1, second);
+            bind(context, 2, third);
+            return run(context);
+        }
+
+    }
+
+    /**
+     * The body of an unresolved method, which runs in a new scope whose
+     * parent is the scope it was defined in.
+     */
+    private final class UnresolvedBody extends MethodBody<Scope> {
+
+        UnresolvedBody(Ast.Method ast, Scope definition) {
+            super(ast, definition);
+        }
+
+        @Override
+        Scope enter() {
+            return new Scope(definition);
+        }
+
+        @Override
+        void bind(Scope context, int index, Environment.PlcObject value) {
+            context.defineVariable(ast.getParameters().get(index), value);
+        }
+
+        @Override
+        void activate(Scope context) {
+            scope = context;
+            frame = null;
+        }
+
+        @Override
+        Scope next(Scope context) {
+            return enter();
+        }
+
+    }
+
+    /**
+     * The body of a resolved method, which runs in the scope it was defined
+     * in with its parameters and locals stored in a new frame for each call.
+     * A tail call reuses the frame, as every local is assigned when it is
+     * declared.
+     */
+    private final class ResolvedBody extends MethodBody<Environment.PlcObject[]> {
+
+        ResolvedBody(Ast.Method ast, Scope definition) {
+            super(ast, definition);
+        }
+
+        @Override
+        Environment.PlcObject[] enter() {
+            return new Environment.PlcObject[ast.getFrameSize()];
+        }
+
+        @Override
+        void bind(Environment.PlcObject[] context, int index, Environment.PlcObject value) {
+            context[index] = value;
+        }
+
+        @Override
+        void activate(Environment.PlcObject[] context) {
+            scope = definition;
+            frame = context;
+        }
 
-        private Return(Environment.PlcObject value) {
-            this.value = value;
+        @Override
+        Environment.PlcObject[] next(Environment.PlcObject[] context) {
+            return context;
         }
 
     }
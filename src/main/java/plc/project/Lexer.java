@@ -25,6 +25,16 @@ public final class Lexer {
         chars = new CharStream(input);
     }
 
+    /**
+     * Creates a lexer starting at the index of the input, which must be the
+     * start of a token or whitespace. Each token only depends on the input
+     * from where it starts, so the tokens are the same as those of the whole
+     * input from that index.
+     */
+    public Lexer(String input, int index) {
+        chars = new CharStream(input, index);
+    }
+
     /**
      * Repeatedly lexes the input using {@link #lexToken()}, also skipping over
      * whitespace where appropriate.
@@ -42,6 +52,18 @@ public final class Lexer {
         return tokens;
     }
 
+    /**
+     * Lexes the next token after any whitespace, returning null at the end of
+     * the input, for lexing only as far as needed.
+     */
+    public Token lexNext() {
+        while (chars.has(0) && peek("[\\s\u0008]")) {
+            chars.advance();
+            chars.skip();
+        }
+        return chars.has(0) ? lexToken() : null;
+    }
+
     /**
      * This method determines the type of the next token, delegating to the
      * appropriate lex method. As such, it is best for this method to not change
@@ -229,6 +251,11 @@ public final class Lexer {
             this.input = input;
         }
 
+        public CharStream(String input, int index) {
+            this.input = input;
+            this.index = index;
+        }
+
         public boolean has(int offset) {
             return index + offset < input.length();
         }
@@ -246,10 +273,15 @@ public final class Lexer {
             length = 0;
         }
 
+        /**
+         * Creates the token for the characters since the last token, with
+         * identifiers interned as a {@link Symbol}.
+         */
         public Token emit(Token.Type type) {
             int start = index - length;
             skip();
-            return new Token(type, input.substring(start, index), start);
+            String literal = type == Token.Type.IDENTIFIER ? Symbol.of(input, start, index).getName() : input.substring(start, index);
+            return new Token(type, literal, start);
         }
 
     }
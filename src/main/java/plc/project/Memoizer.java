@@ -0,0 +1,105 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Wraps the closure of a pure method, see {@link Purity}, caching its results
+ * by the values of its arguments in a map which keeps the most recently used
+ * results up to a capacity.
+ *
+ * Only Integers, Decimals, Strings, Characters, Booleans and {@code NIL} are
+ * used as keys, as the values of other objects may change between calls, so
+ * calls with any other argument go straight to the method. Integers which fit
+ * in a long are keyed by the long, so they aren't turned into a BigInteger.
+ */
+public final class Memoizer implements Function<List<Environment.PlcObject>, Environment.PlcObject> {
+
+    private final Function<List<Environment.PlcObject>, Environment.PlcObject> function;
+    private final Map<Object, Environment.PlcObject> cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    public Memoizer(Function<List<Environment.PlcObject>, Environment.PlcObject> function, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive, received " + capacity + ".");
+        }
+        this.function = function;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Environment.PlcObject> eldest) {
+                return size() > capacity;
+            }
+
+        };
+    }
+
+    @Override
+    public Environment.PlcObject apply(List<Environment.PlcObject> arguments) {
+        Object key = key(arguments);
+        if (key == null) {
+            return function.apply(arguments);
+        }
+        Environment.PlcObject result = cache.get(key);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        misses++;
+        // Not computeIfAbsent, as recursive calls add to the cache meanwhile
+        result = function.apply(arguments);
+        cache.put(key, result);
+        return result;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the key for the arguments, which is the single key for one
+     * argument or a list of keys otherwise, or null if an argument can't be a
+     * key.
+     */
+    private static Object key(List<Environment.PlcObject> arguments) {
+        if (arguments.size() == 1) {
+            return key(arguments.get(0));
+        }
+        Object[] keys = new Object[arguments.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key(arguments.get(i));
+            if (keys[i] == null) {
+                return null;
+            }
+        }
+        return List.of(keys);
+    }
+
+    private static Object key(Environment.PlcObject object) {
+        if (object == Environment.NIL) {
+            return Environment.NIL;
+        } else if (object.isSmallInteger()) {
+            return object.getSmallInteger();
+        }
+        Object value = object.getValue();
+        if (value instanceof BigInteger || value instanceof BigDecimal || value instanceof String
+                || value instanceof Character || value instanceof Boolean) {
+            return value;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,148 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+import static plc.project.Interpreter.requireType;
+
+/**
+ * The binary operators, shared by the {@link Interpreter} and the
+ * {@link ClosureCompiler} so both give the same results. Each operator has
+ * a method for any two objects, and the arithmetic operators also have a
+ * method for two Integers which fit in a long, which returns null if the
+ * result overflows so it is computed with BigInteger instead.
+ */
+final class Operators {
+
+    private Operators() {}
+
+    static Environment.PlcObject add(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.getValue() instanceof String || right.getValue() instanceof String) {
+            return Environment.create(left.getValue().toString() + right.getValue().toString());
+        } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
+            return Environment.create(requireType(BigInteger.class, left).add(requireType(BigInteger.class, right)));
+        } else if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
+            return Environment.create(requireType(BigDecimal.class, left).add(requireType(BigDecimal.class, right)));
+        } else if (left.getValue() instanceof BigInteger) {
+            return Environment.create(new BigDecimal(requireType(BigInteger.class, left)).add(requireType(BigDecimal.class, right)));
+        } else if (right.getValue() instanceof BigInteger) {
+            return Environment.create(requireType(BigDecimal.class, left).add(new BigDecimal(requireType(BigInteger.class, right))));
+        } else {
+            throw new RuntimeException("Numerical/string types must match");
+        }
+    }
+
+    static Environment.PlcObject subtract(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
+            return Environment.create(requireType(BigDecimal.class, left).subtract(requireType(BigDecimal.class, right)));
+        } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
+            return Environment.create(requireType(BigInteger.class, left).subtract(requireType(BigInteger.class, right)));
+        } else {
+            throw new RuntimeException("Numerical types must match for subtraction.");
+        }
+    }
+
+    static Environment.PlcObject multiply(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
+            return Environment.create(requireType(BigDecimal.class, left).multiply(requireType(BigDecimal.class, right)));
+        } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
+            return Environment.create(requireType(BigInteger.class, left).multiply(requireType(BigInteger.class, right)));
+        } else {
+            throw new RuntimeException("Numerical types must match for multiplication.");
+        }
+    }
+
+    static Environment.PlcObject divide(Environment.PlcObject left, Environment.PlcObject right) {
+        if (left.getValue() instanceof BigDecimal && right.getValue() instanceof BigDecimal) {
+            BigDecimal divisor = requireType(BigDecimal.class, right);
+            if (divisor.compareTo(BigDecimal.ZERO) == 0) {
+                throw new ArithmeticException("Division by zero is not allowed.");
+            }
+            return Environment.create(requireType(BigDecimal.class, left).divide(divisor, RoundingMode.HALF_EVEN));
+        } else if (left.getValue() instanceof BigInteger && right.getValue() instanceof BigInteger) {
+            BigInteger divisor = requireType(BigInteger.class, right);
+            if (divisor.equals(BigInteger.ZERO)) {
+                throw new ArithmeticException("Division by zero is not allowed.");
+            }
+            return Environment.create(requireType(BigInteger.class, left).divide(divisor));
+        } else {
+            throw new RuntimeException("Numerical types must match for division.");
+        }
+    }
+
+    /**
+     * Evaluates one of the comparison operators {@code > < >= <=}. Comparable
+     * values other than Integers and Decimals are compared for equality.
+     */
+    static Environment.PlcObject compare(String operator, Environment.PlcObject left, Environment.PlcObject right) {
+        if (!(left.getValue() instanceof Comparable)) {
+            throw new UnsupportedOperationException("Unsupported operator: " + operator + " for non-comparable types.");
+        } else if (left.getValue().getClass() != right.getValue().getClass()) {
+            throw new UnsupportedOperationException("Unsupported operator: " + operator + " for different types.");
+        } else if (left.getValue() instanceof BigInteger) {
+            return compare(operator, requireType(BigInteger.class, left).compareTo(requireType(BigInteger.class, right)));
+        } else if (left.getValue() instanceof BigDecimal) {
+            return compare(operator, requireType(BigDecimal.class, left).compareTo(requireType(BigDecimal.class, right)));
+        } else {
+            return equal(left, right);
+        }
+    }
+
+    private static Environment.PlcObject compare(String operator, int comparison) {
+        switch (operator) {
+            case ">":
+                return Environment.create(comparison > 0);
+            case "<":
+                return Environment.create(comparison < 0);
+            case ">=":
+                return Environment.create(comparison >= 0);
+            case "<=":
+                return Environment.create(comparison <= 0);
+            default:
+                throw new UnsupportedOperationException("Unsupported comparison operator: " + operator);
+        }
+    }
+
+    static Environment.PlcObject equal(Environment.PlcObject left, Environment.PlcObject right) {
+        return Environment.create(left.getValue().equals(right.getValue()));
+    }
+
+    static Environment.PlcObject notEqual(Environment.PlcObject left, Environment.PlcObject right) {
+        return Environment.create(!left.getValue().equals(right.getValue()));
+    }
+
+    static Environment.PlcObject add(long left, long right) {
+        long result = left + right;
+        if (((left ^ result) & (right ^ result)) < 0) {
+            return null;
+        }
+        return Environment.createInteger(result);
+    }
+
+    static Environment.PlcObject subtract(long left, long right) {
+        long result = left - right;
+        if (((left ^ right) & (left ^ result)) < 0) {
+            return null;
+        }
+        return Environment.createInteger(result);
+    }
+
+    static Environment.PlcObject multiply(long left, long right) {
+        long result = left * right;
+        if (Math.multiplyHigh(left, right) != (result >> (Long.SIZE - 1))) {
+            return null;
+        }
+        return Environment.createInteger(result);
+    }
+
+    static Environment.PlcObject divide(long left, long right) {
+        if (right == 0) {
+            throw new ArithmeticException("Division by zero is not allowed.");
+        } else if (left == Long.MIN_VALUE && right == -1) {
+            return null;
+        }
+        return Environment.createInteger(left / right);
+    }
+
+}
@@ -0,0 +1,842 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Optimizes an analyzed AST before it is run or generated, returning a new
+ * AST which shares every subtree it doesn't change, along with what the
+ * {@link Analyzer} attached to them.
+ *
+ * Binary expressions of literals are folded into a literal with the value
+ * the {@link Interpreter} would compute, using the same {@link Operators}.
+ * Expressions are only folded where the result is a literal the Analyzer
+ * accepts and the Interpreter and generated Java agree on its meaning, so an
+ * Integer result must fit in an int, Decimal comparisons must agree as
+ * doubles, and division by zero, Decimal arithmetic, which the generated Java
+ * does with doubles, comparisons other than of numbers and the equality of
+ * Decimals are left to run. {@code AND} and {@code OR} with a constant
+ * operand are simplified, keeping operands which may have side effects, and
+ * groups which don't change how the expression would be parsed, here or as
+ * the generated Java where {@code AND} binds more tightly than {@code OR},
+ * are removed.
+ *
+ * Dead code is also removed, which is any statement after a {@code RETURN}
+ * in the same block, the branch of an {@code IF} with a constant condition
+ * which isn't taken, and {@code WHILE} loops with a false condition. The
+ * statements of the branch which is taken replace the {@code IF}, unless
+ * they declare a variable, which would then be in the enclosing scope.
+ *
+ * If enabled, binary expressions in a {@code WHILE} loop which give the same
+ * value in every iteration are hoisted into a declaration before the loop,
+ * out of as many enclosing loops as they are invariant in. An expression is
+ * invariant if it can't fail and only reads Integer, Decimal, String,
+ * Character or Boolean variables which were initialized and which the loop
+ * doesn't assign or declare, and if the loop calls any function, only
+ * parameters and locals, as the function could assign fields. Hoisting
+ * declares new locals, so is only done on methods which aren't resolved.
+ */
+public final class Optimizer implements Ast.Visitor<Ast> {
+
+    private final boolean hoist;
+    private int eliminated = 0;
+    private int hoisted = 0;
+    private final Deque<Loop> loops = new ArrayDeque<>();
+    private int unhoisted = 0;
+    private List<Ast.Stmt> pending = List.of();
+    private boolean resolved = false;
+    private List<String> parameters = List.of();
+    private final Set<Environment.Variable> locals = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Environment.Variable> uninitialized = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    public Optimizer() {
+        this(false);
+    }
+
+    /**
+     * Creates an optimizer, with {@code hoist} choosing whether invariant
+     * expressions are hoisted out of loops.
+     */
+    public Optimizer(boolean hoist) {
+        this.hoist = hoist;
+    }
+
+    /**
+     * Returns the number of statements and expressions removed as dead code
+     * by this optimizer, counting every node in each removed subtree.
+     */
+    public int getEliminated() {
+        return eliminated;
+    }
+
+    /**
+     * Returns the number of expressions hoisted out of loops by this
+     * optimizer.
+     */
+    public int getHoisted() {
+        return hoisted;
+    }
+
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+        List<Ast.Field> fields = visitAll(ast.getFields());
+        List<Ast.Method> methods = visitAll(ast.getMethods());
+        if (fields == ast.getFields() && methods == ast.getMethods()) {
+            return ast;
+        }
+        return new Ast.Source(fields, methods);
+    }
+
+    @Override
+    public Ast.Field visit(Ast.Field ast) {
+        if (hoist && ast.getValue().isEmpty()) {
+            uninitialized.add(ast.getVariable());
+        }
+        Optional<Ast.Expr> value = ast.getValue().map(this::visitTop);
+        if (value.orElse(null) == ast.getValue().orElse(null)) {
+            return ast;
+        }
+        Ast.Field field = new Ast.Field(ast.getName(), ast.getTypeName(), value);
+        field.setVariable(ast.getVariable());
+        field.setSlot(ast.getSlot());
+        return field;
+    }
+
+    @Override
+    public Ast.Method visit(Ast.Method ast) {
+        resolved = ast.getFrameSize() >= 0;
+        parameters = ast.getParameters();
+        locals.clear();
+        List<Ast.Stmt> statements = visitStatements(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements);
+        method.setFunction(ast.getFunction());
+        method.setFrameSize(ast.getFrameSize());
+        return method;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Expression ast) {
+        Ast.Expr expression = visitTop(ast.getExpression());
+        return expression == ast.getExpression() ? ast : new Ast.Stmt.Expression(expression);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Declaration ast) {
+        if (hoist) {
+            locals.add(ast.getVariable());
+            if (ast.getValue().isEmpty()) {
+                uninitialized.add(ast.getVariable());
+            }
+        }
+        Optional<Ast.Expr> value = ast.getValue().map(this::visitTop);
+        if (value.orElse(null) == ast.getValue().orElse(null)) {
+            return ast;
+        }
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(ast.getName(), ast.getTypeName(), value);
+        declaration.setVariable(ast.getVariable());
+        declaration.setSlot(ast.getSlot());
+        return declaration;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr receiver = (Ast.Expr) visit(ast.getReceiver());
+        Ast.Expr value = visitTop(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return new Ast.Stmt.Assignment(receiver, value);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.If ast) {
+        Ast.Expr condition = visitTop(ast.getCondition());
+        // Nothing is hoisted from a branch which is never taken, as it is removed
+        boolean constant = isBoolean(condition);
+        List<Ast.Stmt> thenStatements = visitStatements(ast.getThenStatements(), constant && !(Boolean) ((Ast.Expr.Literal) condition).getLiteral());
+        List<Ast.Stmt> elseStatements = visitStatements(ast.getElseStatements(), constant && (Boolean) ((Ast.Expr.Literal) condition).getLiteral());
+        if (condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.If(condition, thenStatements, elseStatements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.For ast) {
+        Ast.Expr value = visitTop(ast.getValue());
+        List<Ast.Stmt> statements = visitStatements(ast.getStatements());
+        if (value == ast.getValue() && statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Stmt.For loop = new Ast.Stmt.For(ast.getName(), value, statements);
+        loop.setSlot(ast.getSlot());
+        return loop;
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.While ast) {
+        Loop loop = hoist && !resolved ? new Loop(ast) : null;
+        Ast.Expr condition;
+        List<Ast.Stmt> statements;
+        if (loop != null) {
+            loops.push(loop);
+        }
+        try {
+            condition = visitTop(ast.getCondition());
+            statements = visitStatements(ast.getStatements(), isBoolean(condition) && !(Boolean) ((Ast.Expr.Literal) condition).getLiteral());
+        } finally {
+            if (loop != null) {
+                loops.pop();
+            }
+        }
+        // Taken by visitStatements to declare before the loop
+        pending = loop != null ? loop.declarations : List.of();
+        if (condition == ast.getCondition() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return new Ast.Stmt.While(condition, statements);
+    }
+
+    @Override
+    public Ast.Stmt visit(Ast.Stmt.Return ast) {
+        Ast.Expr value = visitTop(ast.getValue());
+        return value == ast.getValue() ? ast : new Ast.Stmt.Return(value);
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Literal ast) {
+        return ast;
+    }
+
+    /**
+     * Removes the group if its expression is no longer a binary expression,
+     * such as once it's folded into a literal.
+     */
+    @Override
+    public Ast.Expr visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = (Ast.Expr) visit(ast.getExpression());
+        if (!(expression instanceof Ast.Expr.Binary)) {
+            return expression;
+        } else if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expr.Group group = new Ast.Expr.Group(expression);
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Binary ast) {
+        if (hoist && unhoisted == 0 && !loops.isEmpty()) {
+            Loop loop = outermost(ast);
+            if (loop != null) {
+                return hoist(ast, loop);
+            }
+        }
+        String operator = ast.getOperator();
+        Ast.Expr left = (Ast.Expr) visit(ast.getLeft());
+        Ast.Expr right = (Ast.Expr) visit(ast.getRight());
+        if (left instanceof Ast.Expr.Literal && right instanceof Ast.Expr.Literal) {
+            Object value = fold(operator, ((Ast.Expr.Literal) left).getLiteral(), ((Ast.Expr.Literal) right).getLiteral());
+            if (value != null) {
+                Ast.Expr.Literal literal = new Ast.Expr.Literal(value);
+                literal.setType(ast.getType());
+                return literal;
+            }
+        }
+        if (operator.equals("AND") || operator.equals("OR")) {
+            boolean or = operator.equals("OR");
+            if (left instanceof Ast.Expr.Literal && ((Ast.Expr.Literal) left).getLiteral() instanceof Boolean) {
+                // TRUE OR x is TRUE, and FALSE OR x is x, without x being evaluated in the first case
+                return (Boolean) ((Ast.Expr.Literal) left).getLiteral() == or ? left : right;
+            } else if (right instanceof Ast.Expr.Literal && ((Ast.Expr.Literal) right).getLiteral() instanceof Boolean) {
+                // x OR FALSE is x, and x OR TRUE is TRUE only if x can be skipped
+                if ((Boolean) ((Ast.Expr.Literal) right).getLiteral() != or) {
+                    return left;
+                } else if (isPure(left)) {
+                    return right;
+                }
+            }
+        }
+        left = ungroup(left, operator, precedence(operator));
+        right = ungroup(right, operator, precedence(operator) + 1);
+        if (left == ast.getLeft() && right == ast.getRight()) {
+            return ast;
+        }
+        Ast.Expr.Binary binary = new Ast.Expr.Binary(operator, left, right);
+        binary.setType(ast.getType());
+        return binary;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Access ast) {
+        Optional<Ast.Expr> receiver = ast.getReceiver().map(expression -> (Ast.Expr) visit(expression));
+        if (receiver.orElse(null) == ast.getReceiver().orElse(null)) {
+            return ast;
+        }
+        Ast.Expr.Access access = new Ast.Expr.Access(receiver, ast.getName());
+        access.setVariable(ast.getVariable());
+        access.setSlot(ast.getDepth(), ast.getSlot());
+        return access;
+    }
+
+    @Override
+    public Ast.Expr visit(Ast.Expr.Function ast) {
+        Optional<Ast.Expr> receiver = ast.getReceiver().map(expression -> (Ast.Expr) visit(expression));
+        List<Ast.Expr> arguments = new ArrayList<>(ast.getArguments().size());
+        boolean changed = receiver.orElse(null) != ast.getReceiver().orElse(null);
+        for (Ast.Expr argument : ast.getArguments()) {
+            Ast.Expr optimized = visitTop(argument);
+            changed |= optimized != argument;
+            arguments.add(optimized);
+        }
+        if (!changed) {
+            return ast;
+        }
+        Ast.Expr.Function function = new Ast.Expr.Function(receiver, ast.getName(), arguments, ast.getSite());
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    /**
+     * Optimizes an expression which isn't an operand or receiver, so doesn't
+     * need to be grouped.
+     */
+    private Ast.Expr visitTop(Ast.Expr expression) {
+        Ast.Expr optimized = (Ast.Expr) visit(expression);
+        return optimized instanceof Ast.Expr.Group ? ((Ast.Expr.Group) optimized).getExpression() : optimized;
+    }
+
+    /**
+     * Optimizes the statements of a block, hoisting nothing out of it if it
+     * is dead code which will be removed.
+     */
+    private List<Ast.Stmt> visitStatements(List<Ast.Stmt> statements, boolean dead) {
+        if (!dead) {
+            return visitStatements(statements);
+        }
+        unhoisted++;
+        try {
+            return visitStatements(statements);
+        } finally {
+            unhoisted--;
+        }
+    }
+
+    /**
+     * Optimizes each of the statements of a block and removes dead code,
+     * returning the same list if none changed.
+     */
+    private List<Ast.Stmt> visitStatements(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> optimized = new ArrayList<>(statements.size());
+        boolean changed = false;
+        for (int i = 0; i < statements.size(); i++) {
+            if (!optimized.isEmpty() && optimized.get(optimized.size() - 1) instanceof Ast.Stmt.Return) {
+                for (Ast.Stmt unreachable : statements.subList(i, statements.size())) {
+                    eliminated += NodeCounter.count(unreachable);
+                }
+                changed = true;
+                break;
+            }
+            pending = List.of();
+            Ast.Stmt statement = (Ast.Stmt) visit(statements.get(i));
+            List<Ast.Stmt> declarations = pending;
+            pending = List.of();
+            changed |= statement != statements.get(i);
+            if (statement instanceof Ast.Stmt.If && isBoolean(((Ast.Stmt.If) statement).getCondition())) {
+                Ast.Stmt.If branch = (Ast.Stmt.If) statement;
+                boolean condition = (Boolean) ((Ast.Expr.Literal) branch.getCondition()).getLiteral();
+                List<Ast.Stmt> taken = condition ? branch.getThenStatements() : branch.getElseStatements();
+                List<Ast.Stmt> skipped = condition ? branch.getElseStatements() : branch.getThenStatements();
+                if (taken.stream().noneMatch(Ast.Stmt.Declaration.class::isInstance)) {
+                    // The IF and its condition are removed along with the branch which isn't taken
+                    eliminated += 2;
+                    optimized.addAll(taken);
+                    changed = true;
+                } else if (!skipped.isEmpty()) {
+                    optimized.add(condition
+                            ? new Ast.Stmt.If(branch.getCondition(), taken, List.of())
+                            : new Ast.Stmt.If(branch.getCondition(), List.of(), taken));
+                    changed = true;
+                } else {
+                    optimized.add(statement);
+                }
+                for (Ast.Stmt dead : skipped) {
+                    eliminated += NodeCounter.count(dead);
+                }
+            } else if (statement instanceof Ast.Stmt.While && isBoolean(((Ast.Stmt.While) statement).getCondition())
+                    && !(Boolean) ((Ast.Expr.Literal) ((Ast.Stmt.While) statement).getCondition()).getLiteral()) {
+                eliminated += NodeCounter.count(statement);
+                changed = true;
+            } else {
+                optimized.addAll(declarations);
+                changed |= !declarations.isEmpty();
+                optimized.add(statement);
+            }
+        }
+        return changed ? optimized : statements;
+    }
+
+    /**
+     * Returns the outermost loop the expression is invariant in, or null if
+     * it isn't invariant in the innermost loop. Loops are nested, so an
+     * expression invariant in a loop is invariant in the loops inside it.
+     */
+    private Loop outermost(Ast.Expr.Binary expression) {
+        for (Iterator<Loop> iterator = loops.descendingIterator(); iterator.hasNext(); ) {
+            Loop loop = iterator.next();
+            if (isInvariant(expression, loop)) {
+                return loop;
+            }
+        }
+        return null;
+    }
+
+    private boolean isInvariant(Ast.Expr expression, Loop loop) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expr.Group) {
+            return isInvariant(((Ast.Expr.Group) expression).getExpression(), loop);
+        } else if (expression instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) expression;
+            return !binary.getOperator().equals("/") && isInvariant(binary.getLeft(), loop) && isInvariant(binary.getRight(), loop);
+        } else if (expression instanceof Ast.Expr.Access) {
+            Ast.Expr.Access access = (Ast.Expr.Access) expression;
+            if (access.getReceiver().isPresent() || loop.writes.contains(access.getName())) {
+                return false;
+            }
+            Environment.Variable variable = access.getVariable();
+            Environment.Type type = variable.getType();
+            if (type != Environment.Type.INTEGER && type != Environment.Type.DECIMAL && type != Environment.Type.STRING
+                    && type != Environment.Type.CHARACTER && type != Environment.Type.BOOLEAN) {
+                return false;
+            }
+            return !uninitialized.contains(variable) && (!loop.calls || locals.contains(variable) || parameters.contains(access.getName()));
+        }
+        return false;
+    }
+
+    /**
+     * Optimizes an invariant expression and declares its value before the
+     * loop, returning an access to the new variable unless the expression was
+     * folded to something which isn't worth declaring.
+     */
+    private Ast.Expr hoist(Ast.Expr.Binary ast, Loop loop) {
+        Ast.Expr optimized;
+        unhoisted++;
+        try {
+            optimized = visit(ast);
+        } finally {
+            unhoisted--;
+        }
+        if (optimized instanceof Ast.Expr.Group) {
+            optimized = ((Ast.Expr.Group) optimized).getExpression();
+        }
+        if (!(optimized instanceof Ast.Expr.Binary)) {
+            return optimized;
+        }
+        // Names with a $ can't be written in the source, so never clash with one
+        String name = "invariant$" + hoisted++;
+        Environment.Type type = optimized.getType();
+        Environment.Variable variable = new Environment.Variable(name, name, type, Environment.NIL);
+        Ast.Stmt.Declaration declaration = new Ast.Stmt.Declaration(name, Optional.of(type.getName()), Optional.of(optimized));
+        declaration.setVariable(variable);
+        loop.declarations.add(declaration);
+        locals.add(variable);
+        Ast.Expr.Access access = new Ast.Expr.Access(Optional.empty(), name);
+        access.setVariable(variable);
+        return access;
+    }
+
+    private static boolean isBoolean(Ast.Expr expression) {
+        return expression instanceof Ast.Expr.Literal && ((Ast.Expr.Literal) expression).getLiteral() instanceof Boolean;
+    }
+
+    /**
+     * Optimizes each of the nodes, returning the same list if none changed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> List<T> visitAll(List<T> nodes) {
+        List<T> optimized = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            T node = (T) visit(nodes.get(i));
+            if (optimized == null && node != nodes.get(i)) {
+                optimized = new ArrayList<>(nodes.subList(0, i));
+            }
+            if (optimized != null) {
+                optimized.add(node);
+            }
+        }
+        return optimized == null ? nodes : optimized;
+    }
+
+    /**
+     * Returns the value of the operator applied to two literals, or null if
+     * it isn't folded.
+     */
+    private static Object fold(String operator, Object left, Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        boolean numbers = left.getClass() == right.getClass() && (left instanceof BigInteger || left instanceof BigDecimal);
+        boolean integers = numbers && left instanceof BigInteger;
+        Environment.PlcObject result;
+        switch (operator) {
+            case "+":
+                if (left instanceof String || right instanceof String) {
+                    if (left instanceof BigDecimal || right instanceof BigDecimal) {
+                        return null;
+                    }
+                } else if (!integers) {
+                    return null;
+                }
+                result = Operators.add(Environment.create(left), Environment.create(right));
+                break;
+            case "-":
+                if (!integers) {
+                    return null;
+                }
+                result = Operators.subtract(Environment.create(left), Environment.create(right));
+                break;
+            case "*":
+                if (!integers) {
+                    return null;
+                }
+                result = Operators.multiply(Environment.create(left), Environment.create(right));
+                break;
+            case "/":
+                if (!integers || ((BigInteger) right).signum() == 0) {
+                    return null;
+                }
+                result = Operators.divide(Environment.create(left), Environment.create(right));
+                break;
+            case ">":
+            case "<":
+            case ">=":
+            case "<=":
+                if (!numbers) {
+                    return null;
+                }
+                result = Operators.compare(operator, Environment.create(left), Environment.create(right));
+                if (left instanceof BigDecimal && Integer.signum(Double.compare(((BigDecimal) left).doubleValue(), ((BigDecimal) right).doubleValue()))
+                        != ((BigDecimal) left).compareTo((BigDecimal) right)) {
+                    return null;
+                }
+                break;
+            case "==":
+            case "!=":
+                if (left.getClass() != right.getClass() || left instanceof BigDecimal) {
+                    return null;
+                }
+                return operator.equals("==") == left.equals(right);
+            case "AND":
+            case "OR":
+                if (!(left instanceof Boolean) || !(right instanceof Boolean)) {
+                    return null;
+                }
+                return operator.equals("AND") ? (Boolean) left && (Boolean) right : (Boolean) left || (Boolean) right;
+            default:
+                return null;
+        }
+        Object value = result.getValue();
+        if (value instanceof BigInteger && ((BigInteger) value).bitLength() >= Integer.SIZE) {
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Removes the group around an operand of the operator if the operand
+     * binds at least as tightly as required without it, which is the
+     * precedence of the operator for the left operand and one more for the
+     * right, as each level of operators is left associative. {@code AND} and
+     * {@code OR} share a level, but the generated Java binds {@code &&} more
+     * tightly than {@code ||}, so the group is kept around one in the other.
+     */
+    private static Ast.Expr ungroup(Ast.Expr operand, String operator, int precedence) {
+        if (operand instanceof Ast.Expr.Group) {
+            String inner = ((Ast.Expr.Binary) ((Ast.Expr.Group) operand).getExpression()).getOperator();
+            boolean logical = (operator.equals("AND") || operator.equals("OR")) && (inner.equals("AND") || inner.equals("OR"));
+            if (precedence(inner) >= precedence && (!logical || inner.equals(operator))) {
+                return ((Ast.Expr.Group) operand).getExpression();
+            }
+        }
+        return operand;
+    }
+
+    private static int precedence(String operator) {
+        switch (operator) {
+            case "AND":
+            case "OR":
+                return 0;
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+            case "==":
+            case "!=":
+                return 1;
+            case "+":
+            case "-":
+                return 2;
+            default:
+                return 3;
+        }
+    }
+
+    /**
+     * Returns true if the expression has no side effects and can't fail, so
+     * can be skipped, which is the case for literals, variables and any
+     * operators on them other than division.
+     */
+    private static boolean isPure(Ast.Expr expression) {
+        if (expression instanceof Ast.Expr.Literal) {
+            return true;
+        } else if (expression instanceof Ast.Expr.Access) {
+            return ((Ast.Expr.Access) expression).getReceiver().map(Optimizer::isPure).orElse(true);
+        } else if (expression instanceof Ast.Expr.Group) {
+            return isPure(((Ast.Expr.Group) expression).getExpression());
+        } else if (expression instanceof Ast.Expr.Binary) {
+            Ast.Expr.Binary binary = (Ast.Expr.Binary) expression;
+            return !binary.getOperator().equals("/") && isPure(binary.getLeft()) && isPure(binary.getRight());
+        }
+        return false;
+    }
+
+    /**
+     * A loop which expressions are hoisted out of, along with the names of
+     * the variables it assigns or declares and whether it calls a function.
+     */
+    private static final class Loop implements Ast.Visitor<Void> {
+
+        private final Set<String> writes = new HashSet<>();
+        private boolean calls = false;
+        private final List<Ast.Stmt> declarations = new ArrayList<>();
+
+        private Loop(Ast.Stmt.While ast) {
+            visit(ast);
+        }
+
+        private void visitAll(List<? extends Ast> nodes) {
+            for (Ast node : nodes) {
+                visit(node);
+            }
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            throw new UnsupportedOperationException("A loop only contains statements and expressions, see Loop(Ast.Stmt.While).");
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            throw new UnsupportedOperationException("A loop only contains statements and expressions, see Loop(Ast.Stmt.While).");
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            throw new UnsupportedOperationException("A loop only contains statements and expressions, see Loop(Ast.Stmt.While).");
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            writes.add(ast.getName());
+            ast.getValue().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+            if (receiver.getReceiver().isPresent()) {
+                visit(receiver.getReceiver().get());
+            } else {
+                writes.add(receiver.getName());
+            }
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            visit(ast.getCondition());
+            visitAll(ast.getThenStatements());
+            visitAll(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            writes.add(ast.getName());
+            visit(ast.getValue());
+            visitAll(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            visit(ast.getCondition());
+            visitAll(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            ast.getReceiver().ifPresent(this::visit);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            calls = true;
+            ast.getReceiver().ifPresent(this::visit);
+            visitAll(ast.getArguments());
+            return null;
+        }
+
+    }
+
+    /**
+     * Counts the statements and expressions in a subtree.
+     */
+    private static final class NodeCounter implements Ast.Visitor<Integer> {
+
+        private static final NodeCounter INSTANCE = new NodeCounter();
+
+        private static int count(Ast ast) {
+            return INSTANCE.visit(ast);
+        }
+
+        private int countAll(List<? extends Ast> nodes) {
+            int count = 0;
+            for (Ast node : nodes) {
+                count += visit(node);
+            }
+            return count;
+        }
+
+        private int countOptional(Optional<Ast.Expr> expression) {
+            return expression.map(this::visit).orElse(0);
+        }
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            return 1 + countAll(ast.getFields()) + countAll(ast.getMethods());
+        }
+
+        @Override
+        public Integer visit(Ast.Field ast) {
+            return 1 + countOptional(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Method ast) {
+            return 1 + countAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Expression ast) {
+            return 1 + visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Declaration ast) {
+            return 1 + countOptional(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Assignment ast) {
+            return 1 + visit(ast.getReceiver()) + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.If ast) {
+            return 1 + visit(ast.getCondition()) + countAll(ast.getThenStatements()) + countAll(ast.getElseStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.For ast) {
+            return 1 + visit(ast.getValue()) + countAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.While ast) {
+            return 1 + visit(ast.getCondition()) + countAll(ast.getStatements());
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Return ast) {
+            return 1 + visit(ast.getValue());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Literal ast) {
+            return 1;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Group ast) {
+            return 1 + visit(ast.getExpression());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Binary ast) {
+            return 1 + visit(ast.getLeft()) + visit(ast.getRight());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Access ast) {
+            return 1 + countOptional(ast.getReceiver());
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Function ast) {
+            return 1 + countOptional(ast.getReceiver()) + countAll(ast.getArguments());
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+package plc.project;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the methods of a source which are pure, so always return the same
+ * result for the same arguments and have no side effects, which is the case
+ * if a method doesn't assign to fields, doesn't read fields which any method
+ * assigns, and only calls pure methods of the source. Calls to functions
+ * defined outside the source, such as {@code print}, and any use of the
+ * fields or methods of objects are assumed to be impure. Methods which only call
+ * each other are pure unless one of them is impure otherwise.
+ *
+ * This works on unanalyzed ASTs, telling locals from fields by tracking the
+ * parameters and declarations in scope at each point of a method.
+ */
+public final class Purity implements Ast.Visitor<Void> {
+
+    private final Deque<Set<String>> locals = new ArrayDeque<>();
+    private final Set<String> reads = new HashSet<>();
+    private final Set<String> writes = new HashSet<>();
+    private final Set<String> calls = new HashSet<>();
+    private boolean impure = false;
+
+    private Purity() {}
+
+    /**
+     * Returns the pure methods of the source, compared by identity.
+     */
+    public static Set<Ast.Method> analyze(Ast.Source ast) {
+        Map<String, Ast.Method> methods = new HashMap<>();
+        for (Ast.Method method : ast.getMethods()) {
+            methods.put(method.getName() + "/" + method.getParameters().size(), method);
+        }
+        Map<Ast.Method, Purity> results = new IdentityHashMap<>();
+        Set<String> assigned = new HashSet<>();
+        for (Ast.Method method : ast.getMethods()) {
+            Purity purity = new Purity();
+            purity.visit(method);
+            results.put(method, purity);
+            assigned.addAll(purity.writes);
+        }
+        Set<Ast.Method> pure = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Ast.Method method : ast.getMethods()) {
+            Purity purity = results.get(method);
+            if (!purity.impure && purity.writes.isEmpty() && purity.reads.stream().noneMatch(assigned::contains)
+                    && methods.keySet().containsAll(purity.calls)) {
+                pure.add(method);
+            }
+        }
+        // Remove methods calling impure methods until none are left to remove
+        boolean changed = true;
+        while (changed) {
+            changed = pure.removeIf(method -> results.get(method).calls.stream().anyMatch(call -> !pure.contains(methods.get(call))));
+        }
+        return pure;
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        throw new UnsupportedOperationException("Purity is analyzed per method, see analyze(Ast.Source).");
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        throw new UnsupportedOperationException("Purity is analyzed per method, see analyze(Ast.Source).");
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        locals.push(new HashSet<>(ast.getParameters()));
+        visitBlock(ast.getStatements());
+        locals.pop();
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        ast.getValue().ifPresent(this::visit);
+        locals.peek().add(ast.getName());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+        if (receiver.getReceiver().isPresent()) {
+            impure = true;
+            visit(receiver.getReceiver().get());
+        } else if (!isLocal(receiver.getName())) {
+            writes.add(receiver.getName());
+        }
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getThenStatements());
+        visitBlock(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        locals.push(new HashSet<>(Set.of(ast.getName())));
+        visitBlock(ast.getStatements());
+        locals.pop();
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            impure = true;
+            visit(ast.getReceiver().get());
+        } else if (!isLocal(ast.getName())) {
+            reads.add(ast.getName());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            impure = true;
+            visit(ast.getReceiver().get());
+        } else {
+            calls.add(ast.getName() + "/" + ast.getArguments().size());
+        }
+        for (Ast.Expr argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    private void visitBlock(List<Ast.Stmt> statements) {
+        locals.push(new HashSet<>());
+        for (Ast.Stmt statement : statements) {
+            visit(statement);
+        }
+        locals.pop();
+    }
+
+    private boolean isLocal(String name) {
+        for (Set<String> scope : locals) {
+            if (scope.contains(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,214 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each variable a (depth, slot) coordinate ahead of time so the
+ * {@link Interpreter} can store variables in arrays instead of looking them
+ * up by name through the chain of {@link Scope}s.
+ *
+ * Fields are given global slots (depth 1) in the order they are defined.
+ * Parameters and local variables are given slots in the frame of their method
+ * (depth 0), with parameters first. Blocks reuse the slots of blocks which
+ * have ended, so the frame size is the most variables live at any one time.
+ * Variables which are not defined in the source, such as those from a parent
+ * scope passed to the interpreter, are left unresolved and looked up by name.
+ */
+public final class Resolver implements Ast.Visitor<Void> {
+
+    private final Map<String, Integer> fields = new HashMap<>();
+    private final List<Map<String, Integer>> blocks = new ArrayList<>();
+    private int next = 0;
+    private int frameSize = 0;
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        if (fields.containsKey(ast.getName())) {
+            throw new RuntimeException("The variable " + ast.getName() + " is already defined in this scope.");
+        }
+        ast.setSlot(fields.size());
+        fields.put(ast.getName(), fields.size());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        next = 0;
+        frameSize = 0;
+        blocks.add(new HashMap<>());
+        for (String parameter : ast.getParameters()) {
+            define(parameter);
+        }
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        blocks.remove(blocks.size() - 1);
+        ast.setFrameSize(frameSize);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        // The value is resolved first, as it can't refer to the new variable
+        if (ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        if (!blocks.isEmpty()) {
+            ast.setSlot(define(ast.getName()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getThenStatements());
+        visitBlock(ast.getElseStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        visit(ast.getValue());
+        if (blocks.isEmpty()) {
+            for (Ast.Stmt stmt : ast.getStatements()) {
+                visit(stmt);
+            }
+            return null;
+        }
+        int saved = next;
+        blocks.add(new HashMap<>());
+        ast.setSlot(define(ast.getName()));
+        for (Ast.Stmt stmt : ast.getStatements()) {
+            visit(stmt);
+        }
+        blocks.remove(blocks.size() - 1);
+        next = saved;
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        visit(ast.getCondition());
+        visitBlock(ast.getStatements());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        visit(ast.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        visit(ast.getExpression());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        visit(ast.getLeft());
+        visit(ast.getRight());
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+            return null;
+        }
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            Integer slot = blocks.get(i).get(ast.getName());
+            if (slot != null) {
+                ast.setSlot(0, slot);
+                return null;
+            }
+        }
+        if (fields.containsKey(ast.getName())) {
+            ast.setSlot(1, fields.get(ast.getName()));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        if (ast.getReceiver().isPresent()) {
+            visit(ast.getReceiver().get());
+        }
+        for (Ast.Expr argument : ast.getArguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the statements in a new block, freeing the block's slots for
+     * reuse once it ends.
+     */
+    private void visitBlock(List<Ast.Stmt> statements) {
+        if (blocks.isEmpty()) {
+            for (Ast.Stmt stmt : statements) {
+                visit(stmt);
+            }
+            return;
+        }
+        int saved = next;
+        blocks.add(new HashMap<>());
+        for (Ast.Stmt stmt : statements) {
+            visit(stmt);
+        }
+        blocks.remove(blocks.size() - 1);
+        next = saved;
+    }
+
+    /**
+     * Defines a variable in the innermost block, returning its slot.
+     */
+    private int define(String name) {
+        Map<String, Integer> block = blocks.get(blocks.size() - 1);
+        if (block.containsKey(name)) {
+            throw new RuntimeException("The variable " + name + " is already defined in this scope.");
+        }
+        block.put(name, next);
+        frameSize = Math.max(frameSize, next + 1);
+        return next++;
+    }
+
+}
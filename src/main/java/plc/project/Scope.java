@@ -6,26 +6,82 @@ import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 
+/**
+ * The variables and functions defined in a scope. Scopes aren't thread-safe
+ * while they are being defined in, but a scope can be frozen into an
+ * immutable copy which can be shared between threads, such as a prelude of
+ * builtins. Each thread then defines in its own child of the frozen scope.
+ *
+ * Functions are keyed by the {@link Symbol.Key} of their name and arity, so
+ * looking one up by its {@link Symbol} doesn't create a key.
+ *
+ * A scope shares its version with its parent unless the parent is immutable,
+ * and defining a function changes it, so the version of a scope changes
+ * whenever the functions in scope of it might, which an {@link InlineCache}
+ * checks instead of looking the function up again.
+ */
 public final class Scope {
 
+    /**
+     * An empty scope which can't be defined in, shared by the values created
+     * by {@link Environment#create(Object)}.
+     */
+    static final Scope EMPTY = new Scope(null, Map.of(), Map.of(), true);
+
     private final Scope parent;
-    private final Map<String, Environment.Variable> variables = new HashMap<>();
-    private final Map<String, Environment.Function> functions = new HashMap<>();
+    private final Map<String, Environment.Variable> variables;
+    private final Map<Symbol.Key, Environment.Function> functions;
+    private final boolean immutable;
+    private final Version version;
+    private Scope functionScope = null;
+    private int functionScopeVersion = 0;
 
     public Scope(Scope parent) {
+        this(parent, new HashMap<>(), new HashMap<>(), false);
+    }
+
+    private Scope(Scope parent, Map<String, Environment.Variable> variables, Map<Symbol.Key, Environment.Function> functions, boolean immutable) {
         this.parent = parent;
+        this.variables = variables;
+        this.functions = functions;
+        this.immutable = immutable;
+        this.version = parent != null && !parent.immutable ? parent.version : new Version();
+        if (immutable) {
+            // Computed once, as immutable scopes may be read by any thread
+            functionScope = functions.isEmpty() && parent != null ? parent.getFunctionScope() : this;
+        }
     }
 
     public Scope getParent() {
         return parent;
     }
 
+    /**
+     * Returns an immutable copy of this scope and its parents, which can be
+     * read by any number of threads without locking. The copy shares the
+     * variables and functions of this scope, so a variable assigned in one
+     * thread is seen by the others, and this scope can still be defined in
+     * without changing the copy.
+     */
+    public Scope freeze() {
+        if (immutable) {
+            return this;
+        }
+        return new Scope(parent != null ? parent.freeze() : null, Map.copyOf(variables), Map.copyOf(functions), true);
+    }
+
+    public boolean isImmutable() {
+        return immutable;
+    }
+
     public void defineVariable(String name, Environment.PlcObject value) {
         defineVariable(name, name, Environment.Type.ANY, value);
     }
 
     public Environment.Variable defineVariable(String name, String jvmName, Environment.Type type, Environment.PlcObject value) {
-        if (variables.containsKey(name)) {
+        if (immutable) {
+            throw new UnsupportedOperationException("The variable " + name + " can't be defined in an immutable scope.");
+        } else if (variables.containsKey(name)) {
             throw new RuntimeException("The variable " + name + " is already defined in this scope.");
         } else {
             Environment.Variable variable = new Environment.Variable(name, jvmName, type, value);
@@ -35,8 +91,9 @@ public final class Scope {
     }
 
     public Environment.Variable lookupVariable(String name) {
-        if (variables.containsKey(name)) {
-            return variables.get(name);
+        Environment.Variable variable = variables.get(name);
+        if (variable != null) {
+            return variable;
         } else if (parent != null) {
             return parent.lookupVariable(name);
         } else {
@@ -45,31 +102,75 @@ public final class Scope {
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
+        defineFunction(name, arity, Environment.Function.Body.list(function));
+    }
+
+    public void defineFunction(String name, int arity, Environment.Function.Body body) {
         List<Environment.Type> parameterTypes = new ArrayList<>();
         for (int i = 0; i < arity; i++) {
             parameterTypes.add(Environment.Type.ANY);
         }
-        defineFunction(name, name, parameterTypes, Environment.Type.ANY, function);
+        defineFunction(name, name, parameterTypes, Environment.Type.ANY, body);
     }
 
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
-            throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
+        return defineFunction(name, jvmName, parameterTypes, returnType, Environment.Function.Body.list(function));
+    }
+
+    public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, Environment.Function.Body body) {
+        Symbol.Key key = Symbol.of(name).function(parameterTypes.size());
+        if (immutable) {
+            throw new UnsupportedOperationException("The function " + key + " can't be defined in an immutable scope.");
+        } else if (functions.containsKey(key)) {
+            throw new RuntimeException("The function " + key + " is already defined in this scope.");
         } else {
-            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
-            functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
+            Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, body);
+            functions.put(key, func);
+            version.value++;
             return func;
         }
     }
 
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
-            throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
+        return lookupFunction(Symbol.of(name), arity);
+    }
+
+    public Environment.Function lookupFunction(Symbol name, int arity) {
+        Symbol.Key key = name.function(arity);
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Function function = scope.functions.get(key);
+            if (function != null) {
+                return function;
+            }
         }
+        throw new RuntimeException("The function " + key + " is not defined in this scope.");
+    }
+
+    /**
+     * Returns the version of the functions in scope of this scope, which
+     * changes whenever a function is defined in this scope or a parent, so an
+     * {@link InlineCache} entry looked up from it is valid while the version
+     * is the same.
+     */
+    int getVersion() {
+        return version.value;
+    }
+
+    /**
+     * Returns the nearest of this scope and its parents which defines any
+     * functions, or the outermost if none do, which has the same functions
+     * in scope as this one. It is only found again once the version changes.
+     */
+    Scope getFunctionScope() {
+        if (functionScope == null || (!immutable && functionScopeVersion != version.value)) {
+            Scope scope = this;
+            while (scope.functions.isEmpty() && scope.parent != null) {
+                scope = scope.parent;
+            }
+            functionScope = scope;
+            functionScopeVersion = version.value;
+        }
+        return functionScope;
     }
 
     @Override
@@ -81,4 +182,14 @@ public final class Scope {
                 '}';
     }
 
+    /**
+     * The version of the functions of a scope and its mutable parents, which
+     * are defined in by one thread, see {@link Scope}.
+     */
+    private static final class Version {
+
+        private int value = 0;
+
+    }
+
 }
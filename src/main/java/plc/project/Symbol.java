@@ -0,0 +1,325 @@
+package plc.project;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A canonical identifier, of which there is only ever one for each name at a
+ * time, so symbols are compared by identity and their names are the same
+ * string instance wherever they are used. The lexers intern identifiers as
+ * they are lexed, looking them up by the characters of the input so an
+ * identifier which was seen before doesn't create a string.
+ *
+ * Functions in a {@link Scope} are keyed by the {@link Key} for their name
+ * and arity, which each symbol creates once per arity, with its hash code
+ * computed ahead of time, so looking up a function doesn't create a key.
+ *
+ * Symbols are held weakly and removed once nothing else refers to them, so
+ * interning every identifier typed in an editor doesn't keep them forever.
+ * The table is split into stripes by hash, which are read without locking
+ * and locked only to add a symbol, so threads lexing and analyzing in
+ * parallel don't wait for each other. The locks aren't monitors, so a virtual
+ * thread adding a symbol doesn't pin its carrier.
+ */
+public final class Symbol {
+
+    private static final int STRIPE_BITS = 4;
+    private static final Stripe[] STRIPES = new Stripe[1 << STRIPE_BITS];
+    private static final AtomicInteger COUNT = new AtomicInteger();
+    private static final VarHandle KEYS;
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new Stripe();
+        }
+        try {
+            KEYS = MethodHandles.lookup().findVarHandle(Symbol.class, "keys", Key[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String name;
+    private final int hash;
+    private final int id;
+    private volatile Key[] keys = new Key[0];
+
+    private Symbol(String name, int hash, int id) {
+        this.name = name;
+        this.hash = hash;
+        this.id = id;
+    }
+
+    public static Symbol of(String name) {
+        // The same as the hash of the characters, but cached by the string
+        return intern(name, 0, name.length(), name.hashCode());
+    }
+
+    /**
+     * Returns the symbol for the characters of the input from {@code start}
+     * to {@code end}, creating the name only if it is new.
+     */
+    public static Symbol of(CharSequence input, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + input.charAt(i);
+        }
+        return intern(input, start, end, hash);
+    }
+
+    /**
+     * Returns the symbol for the characters of the buffer from {@code start}
+     * to {@code end}, for lexers reading into a char array.
+     */
+    public static Symbol of(char[] buffer, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        return intern(buffer, start, end, hash);
+    }
+
+    /**
+     * Returns the symbol for the characters, which are either a
+     * {@link CharSequence} or a {@code char[]}.
+     */
+    private static Symbol intern(Object chars, int start, int end, int hash) {
+        Stripe stripe = STRIPES[spread(hash) >>> (Integer.SIZE - STRIPE_BITS)];
+        Symbol symbol = stripe.find(chars, start, end, hash);
+        return symbol != null ? symbol : stripe.add(chars, start, end, hash);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean matches(Object chars, int start, int end) {
+        return chars instanceof char[] ? matches((char[]) chars, start, end) : matches((CharSequence) chars, start, end);
+    }
+
+    private boolean matches(CharSequence input, int start, int end) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != input.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(char[] buffer, int start, int end) {
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != buffer[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of symbols created before this one, which is unique
+     * to each symbol, including those created again after being removed.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the key of the functions with this name and the arity.
+     */
+    public Key function(int arity) {
+        while (true) {
+            Key[] keys = this.keys;
+            if (arity < keys.length && keys[arity] != null) {
+                return keys[arity];
+            }
+            // Published as a new array, so readers never see one being changed,
+            // and only if no other thread published one meanwhile
+            Key[] created = Arrays.copyOf(keys, Math.max(keys.length, arity + 1));
+            created[arity] = new Key(this, arity);
+            if (KEYS.compareAndSet(this, keys, created)) {
+                return created[arity];
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * The name and arity of a function, of which there is only one for each
+     * pair, so keys are compared by identity.
+     */
+    public static final class Key {
+
+        private final Symbol symbol;
+        private final int arity;
+        private final int hash;
+
+        private Key(Symbol symbol, int arity) {
+            this.symbol = symbol;
+            this.arity = arity;
+            this.hash = 31 * symbol.hash + arity;
+        }
+
+        public Symbol getSymbol() {
+            return symbol;
+        }
+
+        public int getArity() {
+            return arity;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return symbol.name + "/" + arity;
+        }
+
+    }
+
+
+    /**
+     * A part of the table, with chains of weakly held symbols by hash. The
+     * chains are never changed once published, but replaced, so they can be
+     * read without the lock, and chains holding symbols which were removed
+     * are replaced when their references are next polled from the queue.
+     */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReferenceQueue<Symbol> queue = new ReferenceQueue<>();
+        private volatile AtomicReferenceArray<Entry> buckets = new AtomicReferenceArray<>(64);
+        private int size = 0;
+
+        private Symbol find(Object chars, int start, int end, int hash) {
+            AtomicReferenceArray<Entry> buckets = this.buckets;
+            for (Entry entry = buckets.get(spread(hash) & (buckets.length() - 1)); entry != null; entry = entry.next) {
+                if (entry.hash == hash) {
+                    Symbol symbol = entry.get();
+                    if (symbol != null && symbol.matches(chars, start, end)) {
+                        return symbol;
+                    }
+                }
+            }
+            return null;
+        }
+
+        private Symbol add(Object chars, int start, int end, int hash) {
+            lock.lock();
+            try {
+                expunge();
+                // Another thread may have added it before the lock was taken
+                Symbol symbol = find(chars, start, end, hash);
+                if (symbol != null) {
+                    return symbol;
+                }
+                String name = chars instanceof char[]
+                        ? new String((char[]) chars, start, end - start)
+                        : ((CharSequence) chars).subSequence(start, end).toString();
+                symbol = new Symbol(name, hash, COUNT.getAndIncrement());
+                AtomicReferenceArray<Entry> buckets = this.buckets;
+                int i = spread(hash) & (buckets.length() - 1);
+                buckets.set(i, new Entry(symbol, buckets.get(i), queue));
+                size++;
+                // Grow at three quarters full, keeping chains short
+                if (4 * size > 3 * buckets.length()) {
+                    resize(2 * buckets.length());
+                }
+                return symbol;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Replaces the chains holding symbols which were removed, without
+         * them, which is done with the lock held.
+         */
+        private void expunge() {
+            AtomicReferenceArray<Entry> buckets = this.buckets;
+            for (Entry stale = (Entry) queue.poll(); stale != null; stale = (Entry) queue.poll()) {
+                int i = spread(stale.hash) & (buckets.length() - 1);
+                int removed = 0;
+                Entry chain = null;
+                for (Entry entry = buckets.get(i); entry != null; entry = entry.next) {
+                    Symbol symbol = entry.get();
+                    if (symbol == null) {
+                        removed++;
+                    } else {
+                        chain = new Entry(symbol, chain, queue);
+                    }
+                }
+                // The entry may have been replaced already, by a resize or an
+                // earlier stale entry of the same chain
+                if (removed > 0) {
+                    buckets.set(i, chain);
+                    size -= removed;
+                }
+            }
+        }
+
+        private void resize(int capacity) {
+            AtomicReferenceArray<Entry> old = this.buckets;
+            AtomicReferenceArray<Entry> buckets = new AtomicReferenceArray<>(capacity);
+            int size = 0;
+            for (int i = 0; i < old.length(); i++) {
+                for (Entry entry = old.get(i); entry != null; entry = entry.next) {
+                    Symbol symbol = entry.get();
+                    if (symbol != null) {
+                        int j = spread(entry.hash) & (capacity - 1);
+                        buckets.set(j, new Entry(symbol, buckets.get(j), queue));
+                        size++;
+                    }
+                }
+            }
+            this.size = size;
+            this.buckets = buckets;
+        }
+
+    }
+
+    /**
+     * A weakly held symbol in a chain of a {@link Stripe}, with its hash so
+     * the chain can be searched and the entry removed once the symbol is.
+     */
+    private static final class Entry extends WeakReference<Symbol> {
+
+        private final int hash;
+        private final Entry next;
+
+        private Entry(Symbol symbol, Entry next, ReferenceQueue<Symbol> queue) {
+            super(symbol, queue);
+            this.hash = symbol.hash;
+            this.next = next;
+        }
+
+    }
+
+}
@@ -0,0 +1,410 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * A regex-free scanner producing exactly the same {@link Token} stream (and
+ * the same {@link ParseException}s) as {@link Lexer#lex()}.
+ *
+ * Where the {@link Lexer} matches each character against a regex with
+ * {@link Lexer#peek(String...)}, this lexer classifies characters with a
+ * precomputed lookup table. Each regex character class used by the lexer has
+ * a bit in {@link #CLASSES}; ASCII characters are looked up directly and every
+ * other character falls back to {@link #NON_ASCII}, since only the negated
+ * classes (such as {@code [^"\n\r]}) match outside of ASCII.
+ *
+ * The lexer can also pull characters from a {@link Reader} (or a channel or
+ * buffer, see {@link #of(ReadableByteChannel)} and {@link #of(ByteBuffer)}),
+ * producing tokens one at a time as an {@link Iterator}. Characters before the
+ * start of the current token are discarded whenever the buffer is refilled, so
+ * the buffer only ever grows to fit the longest token in the input.
+ */
+public final class TableLexer implements Iterator<Token> {
+
+    static final int WHITESPACE = 1;        // [\s\u0008]
+    static final int IDENTIFIER_START = 2;  // [A-Za-z_]
+    static final int IDENTIFIER_PART = 4;   // [A-Za-z0-9_-]
+    static final int DIGIT = 8;             // [0-9]
+    static final int SIGN = 16;             // [+-]
+    static final int ESCAPE = 32;           // [bnrt'"\\]
+    static final int CHARACTER_BODY = 64;   // [^'\n\r]
+    static final int CHARACTER_NEXT = 128;  // [^'\n\r\\]
+    static final int STRING_BODY = 256;     // [^"\n\r]
+    static final int COMPARISON = 512;      // [<>!=], the first half of <=, >=, != and ==
+
+    private static final int NON_ASCII = CHARACTER_BODY | CHARACTER_NEXT | STRING_BODY;
+    private static final int[] CLASSES = new int[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            int classes = 0;
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r' || c == '\b') {
+                classes |= WHITESPACE;
+            }
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_') {
+                classes |= IDENTIFIER_START | IDENTIFIER_PART;
+            }
+            if (c >= '0' && c <= '9') {
+                classes |= DIGIT | IDENTIFIER_PART;
+            }
+            if (c == '-') {
+                classes |= IDENTIFIER_PART;
+            }
+            if (c == '+' || c == '-') {
+                classes |= SIGN;
+            }
+            if ("bnrt'\"\\".indexOf(c) >= 0) {
+                classes |= ESCAPE;
+            }
+            if (c != '\'' && c != '\n' && c != '\r') {
+                classes |= CHARACTER_BODY;
+                if (c != '\\') {
+                    classes |= CHARACTER_NEXT;
+                }
+            }
+            if (c != '"' && c != '\n' && c != '\r') {
+                classes |= STRING_BODY;
+            }
+            if ("<>!=".indexOf(c) >= 0) {
+                classes |= COMPARISON;
+            }
+            CLASSES[c] = classes;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private char[] buffer;
+    private int limit;
+    private int offset = 0;
+    private int index = 0;
+    private int start = 0;
+
+    public TableLexer(String input) {
+        this.reader = null;
+        this.buffer = input.toCharArray();
+        this.limit = buffer.length;
+    }
+
+    public TableLexer(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[BUFFER_SIZE];
+        this.limit = 0;
+    }
+
+    /**
+     * Creates a lexer reading UTF-8 encoded characters from a channel.
+     */
+    public static TableLexer of(ReadableByteChannel channel) {
+        return new TableLexer(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a lexer reading UTF-8 encoded characters from a buffer, such as
+     * a {@link java.nio.MappedByteBuffer}. The buffer's position is advanced
+     * as it is read.
+     */
+    public static TableLexer of(ByteBuffer buffer) {
+        return of(new ReadableByteChannel() {
+
+            @Override
+            public int read(ByteBuffer destination) {
+                if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(buffer.remaining(), destination.remaining());
+                destination.put(buffer.slice().limit(count));
+                buffer.position(buffer.position() + count);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {}
+
+        });
+    }
+
+    /**
+     * Returns true if the character {@code c} is in any of the given classes.
+     */
+    static boolean is(char c, int classes) {
+        return ((c < 128 ? CLASSES[c] : NON_ASCII) & classes) != 0;
+    }
+
+    /**
+     * Lexes the entire input, skipping whitespace, as in {@link Lexer#lex()}.
+     */
+    public List<Token> lex() {
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(lexToken());
+        }
+        return tokens;
+    }
+
+    /**
+     * Skips whitespace and returns true if there is another token.
+     */
+    @Override
+    public boolean hasNext() {
+        while (peek(WHITESPACE)) {
+            index++;
+            start = index;
+        }
+        return has(0);
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return lexToken();
+    }
+
+    /**
+     * Returns a spliterator over the remaining tokens, which like the iterator
+     * lexes each token only as it is requested.
+     */
+    public Spliterator<Token> spliterator() {
+        return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    /**
+     * Lexes the next token, which must start at the current character.
+     */
+    public Token lexToken() {
+        return emit(scanToken());
+    }
+
+    public Token lexIdentifier() {
+        return emit(scanIdentifier());
+    }
+
+    public Token lexNumber() {
+        return emit(scanNumber());
+    }
+
+    public Token lexCharacter() {
+        return emit(scanCharacter());
+    }
+
+    public Token lexString() {
+        return emit(scanString());
+    }
+
+    public void lexEscape() {
+        if (!match('\\')) {
+            throw new ParseException("Expected escape sequence after backslash", offset + index);
+        }
+        if (!peek(ESCAPE)) {
+            throw new ParseException("Invalid escape sequence", offset + index);
+        }
+        index++;
+    }
+
+    public Token lexOperator() {
+        return emit(scanOperator());
+    }
+
+    /**
+     * Lexes the next token into the buffer without creating a {@link Token}.
+     */
+    void lexInto(TokenBuffer tokens) {
+        Token.Type type = scanToken();
+        tokens.add(type, offset + start, index - start);
+        start = index;
+    }
+
+    /**
+     * Scans the next token and returns its type, without creating a token.
+     */
+    private Token.Type scanToken() {
+        if (peek(IDENTIFIER_START)) {
+            return scanIdentifier();
+        } else if (peek(SIGN, DIGIT) || peek(DIGIT)) {
+            return scanNumber();
+        } else if (peek('"')) {
+            return scanString();
+        } else if (peek('\'')) {
+            return scanCharacter();
+        } else {
+            return scanOperator();
+        }
+    }
+
+    private Token.Type scanIdentifier() {
+        if (!peek(IDENTIFIER_START)) {
+            throw new ParseException("Invalid start of identifier", offset + index);
+        }
+        while (peek(IDENTIFIER_PART)) {
+            index++;
+        }
+        return Token.Type.IDENTIFIER;
+    }
+
+    private Token.Type scanNumber() {
+        if (peek(SIGN)) {
+            index++;
+        }
+        while (peek(DIGIT)) {
+            index++;
+        }
+        if (peek('.') && has(1) && is(get(1), DIGIT)) {
+            index++;
+            while (peek(DIGIT)) {
+                index++;
+            }
+            return Token.Type.DECIMAL;
+        }
+        return Token.Type.INTEGER;
+    }
+
+    private Token.Type scanCharacter() {
+        if (!match('\'')) {
+            throw new ParseException("Expected opening single quote for character literal", offset + index);
+        }
+        if (peek('\\')) {
+            lexEscape();
+        } else if (peek(CHARACTER_BODY)) {
+            index++;
+        } else {
+            throw new ParseException("Invalid character in character literal", offset + index);
+        }
+        // Mirrors the lexer, which accepts one extra character before the closing quote
+        if (peek(CHARACTER_NEXT)) {
+            index++;
+            if (!peek('\'')) {
+                throw new ParseException("Character literal contains more than one character", offset + index);
+            }
+        } else if (peek('\\')) {
+            throw new ParseException("Character literal contains more than one character", offset + index);
+        }
+        if (!match('\'')) {
+            throw new ParseException("Expected closing single quote for character literal", offset + index);
+        }
+        return Token.Type.CHARACTER;
+    }
+
+    private Token.Type scanString() {
+        if (!match('"')) {
+            throw new ParseException("Expected opening double quote for string literal", offset + index);
+        }
+        while (peek(STRING_BODY)) {
+            if (peek('\\')) {
+                lexEscape();
+            } else {
+                index++;
+            }
+        }
+        if (!match('"')) {
+            throw new ParseException("Expected closing double quote for string literal", offset + index);
+        }
+        return Token.Type.STRING;
+    }
+
+    private Token.Type scanOperator() {
+        if (peek(COMPARISON) && has(1) && get(1) == '=') {
+            index += 2;
+        } else {
+            index++;
+        }
+        return Token.Type.OPERATOR;
+    }
+
+    private boolean has(int offset) {
+        return index + offset < limit || fill(index + offset);
+    }
+
+    private char get(int offset) {
+        return buffer[index + offset];
+    }
+
+    /**
+     * Reads from the reader until the buffer contains the character at
+     * {@code position}, first discarding everything before the current token.
+     */
+    private boolean fill(int position) {
+        if (reader == null) {
+            return false;
+        }
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, limit - start);
+            offset += start;
+            position -= start;
+            index -= start;
+            limit -= start;
+            start = 0;
+        }
+        if (position >= buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(2 * buffer.length, position + 1));
+        }
+        try {
+            while (limit <= position) {
+                int read = reader.read(buffer, limit, buffer.length - limit);
+                if (read < 0) {
+                    return false;
+                }
+                limit += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the capacity of the character buffer, which is bounded by the
+     * longest token rather than the size of the input.
+     */
+    int getBufferCapacity() {
+        return buffer.length;
+    }
+
+    private boolean peek(int classes) {
+        return has(0) && is(get(0), classes);
+    }
+
+    private boolean peek(int first, int second) {
+        return has(1) && is(get(0), first) && is(get(1), second);
+    }
+
+    private boolean peek(char c) {
+        return has(0) && get(0) == c;
+    }
+
+    private boolean match(char c) {
+        if (peek(c)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private Token emit(Token.Type type) {
+        String literal = type == Token.Type.IDENTIFIER ? Symbol.of(buffer, start, index).getName() : new String(buffer, start, index - start);
+        Token token = new Token(type, literal, offset + start);
+        start = index;
+        return token;
+    }
+
+}
@@ -0,0 +1,147 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * A compact alternative to a {@code List<Token>}, storing the type, start
+ * index and length of each token in primitive arrays instead of allocating a
+ * {@link Token} and literal string per token. Literals are only created when
+ * they are requested with {@link #getLiteral(int)}.
+ *
+ * The parser reads a buffer through {@link #cursor()}, which compares literals
+ * directly against the source so matching keywords and operators such as
+ * {@code LET} or {@code ;} does not create any strings.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final String source;
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int size = 0;
+
+    private TokenBuffer(String source) {
+        this.source = source;
+    }
+
+    /**
+     * Lexes the input with a {@link TableLexer}, which produces the same
+     * tokens as {@link Lexer#lex()}.
+     */
+    public static TokenBuffer lex(String input) {
+        TokenBuffer tokens = new TokenBuffer(input);
+        TableLexer lexer = new TableLexer(input);
+        while (lexer.hasNext()) {
+            lexer.lexInto(tokens);
+        }
+        return tokens;
+    }
+
+    void add(Token.Type type, int start, int length) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, 2 * size);
+            starts = Arrays.copyOf(starts, 2 * size);
+            lengths = Arrays.copyOf(lengths, 2 * size);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Token.Type getType(int token) {
+        return TYPES[types[token]];
+    }
+
+    public int getIndex(int token) {
+        return starts[token];
+    }
+
+    public int getLength(int token) {
+        return lengths[token];
+    }
+
+    /**
+     * Returns the literal of the token, which for identifiers is the name of
+     * their {@link Symbol}.
+     */
+    public String getLiteral(int token) {
+        if (getType(token) == Token.Type.IDENTIFIER) {
+            return Symbol.of(source, starts[token], starts[token] + lengths[token]).getName();
+        }
+        return source.substring(starts[token], starts[token] + lengths[token]);
+    }
+
+    /**
+     * Returns true if the literal of the token is equal to {@code literal},
+     * without creating the literal.
+     */
+    public boolean matches(int token, String literal) {
+        return lengths[token] == literal.length() && source.startsWith(literal, starts[token]);
+    }
+
+    /**
+     * Creates the {@link Token} object for a token.
+     */
+    public Token get(int token) {
+        return new Token(getType(token), getLiteral(token), getIndex(token));
+    }
+
+    /**
+     * Returns a new cursor over the tokens for use by the {@link Parser}.
+     */
+    Parser.Tokens cursor() {
+        return new Parser.Tokens() {
+
+            private int index = 0;
+
+            @Override
+            public boolean has(int offset) {
+                return index + offset < size;
+            }
+
+            @Override
+            public Token.Type getType(int offset) {
+                return TokenBuffer.this.getType(check(index + offset));
+            }
+
+            @Override
+            public String getLiteral(int offset) {
+                return TokenBuffer.this.getLiteral(check(index + offset));
+            }
+
+            @Override
+            public boolean matches(int offset, String literal) {
+                return TokenBuffer.this.matches(check(index + offset), literal);
+            }
+
+            @Override
+            public int getIndex(int offset) {
+                return TokenBuffer.this.getIndex(check(index + offset));
+            }
+
+            @Override
+            public void advance() {
+                index++;
+            }
+
+        };
+    }
+
+    /**
+     * Checks a token is within the buffer, as the arrays may be larger.
+     */
+    private int check(int token) {
+        if (token < 0 || token >= size) {
+            throw new IndexOutOfBoundsException("Index " + token + " out of bounds for length " + size);
+        }
+        return token;
+    }
+
+}
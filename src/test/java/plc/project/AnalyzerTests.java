@@ -1,6 +1,7 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -8,7 +9,9 @@ import org.junit.jupiter.params.provider.MethodSource;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -475,6 +478,67 @@ public final class AnalyzerTests {
     }
 
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testParallel(String test, String input, boolean success) {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Ast.Source sequential = new Parser(new Lexer(input).lex()).parseSource();
+            Ast.Source parallel = new Parser(new Lexer(input).lex()).parseSource();
+            if (success) {
+                new Analyzer(new Scope(null), pool).visit(parallel);
+                new Analyzer(new Scope(null)).visit(sequential);
+                Assertions.assertEquals(sequential, parallel);
+            } else {
+                RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(sequential));
+                RuntimeException actual = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null), pool).visit(parallel));
+                Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallel() {
+        StringBuilder methods = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            methods.append("DEF method").append(i).append("(x: Integer): Integer DO\n")
+                    .append("    LET y: Decimal = 1.5;\n    LET z = \"").append(i).append("\";\n")
+                    .append("    IF x > ").append(i).append(" DO\n        print(z);\n    END\n")
+                    .append("    RETURN x + ").append(i > 0 ? "method" + (i - 1) + "(x)" : "0").append(";\nEND\n");
+        }
+        String main = "DEF main(): Integer DO\n    RETURN method199(1);\nEND";
+        return Stream.of(
+                Arguments.of("Methods", "LET a: Integer = 1;\nLET b: String = \"b\";\n" + methods + main, true),
+                Arguments.of("First Error", methods + "DEF f(): Integer DO\n    RETURN \"f\";\nEND\n" +
+                        "DEF g(): Integer DO\n    RETURN undefined;\nEND\n" + main, false),
+                Arguments.of("Forward Call", "DEF f(): Integer DO\n    RETURN g();\nEND\n" +
+                        "DEF g(): Integer DO\n    RETURN 1;\nEND\n" + main + "\n" + methods, false),
+                Arguments.of("Redefinition", methods + "DEF f(): Integer DO\n    RETURN 1;\nEND\n" +
+                        "DEF f(): Integer DO\n    RETURN 2;\nEND\n" + main, false),
+                Arguments.of("Body Before Signature", methods + "DEF f(): Integer DO\n    RETURN \"f\";\nEND\n" +
+                        "DEF g(x: Unknown): Integer DO\n    RETURN 1;\nEND\n" + main, false)
+        );
+    }
+
+    @Test
+    public void testParallelForwardCall() {
+        String input = "DEF f(): Integer DO\n    RETURN g();\nEND\n" +
+                "DEF g(): Integer DO\n    RETURN 1;\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN f();\nEND";
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Scope parent = new Scope(null);
+            Environment.Function g = parent.defineFunction("g", "g", List.of(), Environment.Type.INTEGER, args -> Environment.NIL);
+            Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+            new Analyzer(parent, pool).visit(ast);
+            Ast.Expr.Function call = (Ast.Expr.Function) ((Ast.Stmt.Return) ast.getMethods().get(0).getStatements().get(0)).getValue();
+            Assertions.assertSame(g, call.getFunction());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
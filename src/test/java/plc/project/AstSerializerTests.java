@@ -0,0 +1,122 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Tests that serialized ASTs are read back the same, including what the
+ * {@link Analyzer} and {@link Resolver} attach, and the {@link AstCache}.
+ */
+final class AstSerializerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testRoundTrip(String test, String input) {
+        Ast.Source expected = analyze(input);
+        new Resolver().visit(expected);
+        Ast.Source actual = AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(expected)));
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(generate(expected), generate(actual));
+        for (int i = 0; i < expected.getFields().size(); i++) {
+            Assertions.assertEquals(expected.getFields().get(i).getSlot(), actual.getFields().get(i).getSlot());
+        }
+        for (int i = 0; i < expected.getMethods().size(); i++) {
+            Assertions.assertEquals(expected.getMethods().get(i).getFrameSize(), actual.getMethods().get(i).getFrameSize());
+        }
+    }
+
+    private static Stream<Arguments> testRoundTrip() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO\n    RETURN 0;\nEND"),
+                Arguments.of("Fields",
+                        "LET x: Integer = 1;\nLET y: Decimal = 2.50;\nLET z: String;\n" +
+                        "DEF main(): Integer DO\n    z = \"caf\u00e9\";\n    RETURN x;\nEND"),
+                Arguments.of("Literals",
+                        "DEF main(): Integer DO\n    LET a: Any = NIL;\n    a = TRUE;\n    a = FALSE;\n    a = 'c';\n" +
+                        "    a = 2147483647;\n    a = 0.000001;\n    a = \"\";\n    RETURN 0;\nEND"),
+                Arguments.of("Statements",
+                        "DEF f(n: Integer, list: IntegerIterable): Integer DO\n    LET total = 0;\n" +
+                        "    FOR i IN list DO\n        total = total + i;\n    END\n" +
+                        "    WHILE total > n DO\n        total = total - (n + 1);\n    END\n" +
+                        "    IF total == 0 AND n != 0 DO\n        print(total);\n    ELSE\n        RETURN 1;\n    END\n" +
+                        "    RETURN total;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN 0;\nEND"),
+                Arguments.of("Members",
+                        "DEF main(): Integer DO\n    print(\"abc\".slice(1, 2));\n    print(1.compare(2));\n" +
+                        "    RETURN \"abc\".length;\nEND"),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN fib(15);\nEND")
+        );
+    }
+
+    @Test
+    void testShared() {
+        Ast.Source ast = AstSerializer.deserialize(ByteBuffer.wrap(AstSerializer.serialize(analyze(
+                "LET x: Integer = 1;\n" +
+                "DEF f(): Integer DO\n    RETURN x;\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN f();\nEND"))));
+        Ast.Expr.Access access = (Ast.Expr.Access) ((Ast.Stmt.Return) ast.getMethods().get(0).getStatements().get(0)).getValue();
+        Ast.Expr.Function call = (Ast.Expr.Function) ((Ast.Stmt.Return) ast.getMethods().get(1).getStatements().get(0)).getValue();
+        Assertions.assertSame(ast.getFields().get(0).getVariable(), access.getVariable());
+        Assertions.assertSame(ast.getMethods().get(0).getFunction(), call.getFunction());
+        Assertions.assertSame(Environment.Type.INTEGER, access.getType());
+        Assertions.assertEquals(1, BytecodeGenerator.run(BytecodeGenerator.compile(ast)));
+    }
+
+    @Test
+    void testInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AstSerializer.deserialize(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+        byte[] bytes = AstSerializer.serialize(analyze("DEF main(): Integer DO\n    RETURN 0;\nEND"));
+        Assertions.assertThrows(RuntimeException.class, () -> AstSerializer.deserialize(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+    }
+
+    @Test
+    void testCache() throws IOException {
+        Path directory = Files.createTempDirectory("ast");
+        try {
+            String input = "LET x: Integer = 1;\nDEF main(): Integer DO\n    RETURN x + 1;\nEND";
+            Ast.Source expected = analyze(input);
+            Assertions.assertEquals(expected, new AstCache(directory).load(input));
+            Path file = directory.resolve(InMemoryCompiler.hash(input) + ".ast");
+            Assertions.assertTrue(Files.exists(file));
+            Assertions.assertEquals(expected, new AstCache(directory).load(input));
+            Files.write(file, new byte[] {0});
+            Assertions.assertEquals(expected, new AstCache(directory).load(input));
+            Assertions.assertArrayEquals(AstSerializer.serialize(expected), Files.readAllBytes(file));
+            Assertions.assertThrows(ParseException.class, () -> new AstCache(directory).load("DEF"));
+        } finally {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
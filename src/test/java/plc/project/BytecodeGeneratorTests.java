@@ -0,0 +1,146 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Tests that a source compiled by the {@link BytecodeGenerator} gives the
+ * same results as the {@link Interpreter} where their semantics agree, and
+ * the Java semantics of the generated source where they don't.
+ */
+final class BytecodeGeneratorTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        StringBuilder expectedOutput = new StringBuilder();
+        Object expected = capture(expectedOutput, () -> ((BigInteger) new Interpreter(new Scope(null)).visit(parse(input)).getValue()).intValue());
+        StringBuilder actualOutput = new StringBuilder();
+        Class<?> main = BytecodeGenerator.compile(analyze(input));
+        Assertions.assertEquals(expected, capture(actualOutput, () -> BytecodeGenerator.run(main)));
+        Assertions.assertEquals(expectedOutput.toString(), actualOutput.toString());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO\n    RETURN 0;\nEND"),
+                Arguments.of("Print", "DEF main(): Integer DO\n    print(\"Hello, World!\");\n    RETURN 0;\nEND"),
+                Arguments.of("Fields",
+                        "LET x: Integer = 1;\nLET y: Integer = x + 1;\nLET z: Integer;\n" +
+                        "DEF main(): Integer DO\n    z = x + y;\n    print(z);\n    RETURN x * y;\nEND"),
+                Arguments.of("Static Scope",
+                        "LET x: Integer = 1;\nLET y: Integer = 2;\nLET z: Integer = 3;\n" +
+                        "DEF f(z: Integer): Integer DO\n    RETURN x + y + z;\nEND\n" +
+                        "DEF main(): Integer DO\n    LET y = 4;\n    RETURN f(5);\nEND"),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN fib(15);\nEND"),
+                Arguments.of("Early Return",
+                        "DEF find(target: Integer): Integer DO\n    LET i = 1;\n    LET n = 0;\n    WHILE i < 5 DO\n        n = 0;\n" +
+                        "        WHILE n < 10 DO\n            IF i * n == target DO\n                RETURN n;\n            END\n" +
+                        "            n = n + 1;\n        END\n        print(i);\n        i = i + 1;\n    END\n    RETURN 0 - 1;\nEND\n" +
+                        "DEF main(): Integer DO\n    print(find(12));\n    RETURN find(100);\nEND"),
+                Arguments.of("Else",
+                        "DEF sign(x: Integer): String DO\n    IF x < 0 DO\n        RETURN \"negative\";\n" +
+                        "    ELSE\n        IF x == 0 DO\n            RETURN \"zero\";\n        END\n    END\n    RETURN \"positive\";\nEND\n" +
+                        "DEF main(): Integer DO\n    print(sign(0 - 1));\n    print(sign(0));\n    print(sign(1));\n    RETURN 0;\nEND"),
+                Arguments.of("Logical",
+                        "DEF main(): Integer DO\n    LET x = 1;\n    print(TRUE OR FALSE);\n    print(FALSE AND TRUE);\n" +
+                        "    print(x != 1 OR x >= 1);\n    print(x <= 0 AND TRUE);\n    RETURN 0;\nEND"),
+                Arguments.of("Literals",
+                        "DEF main(): Integer DO\n    print(1.5 + 2.25);\n    print(2.5 * 2.0 - 1.25);\n    print('c');\n" +
+                        "    print('c' == 'c');\n    print(\"a\" + 1);\n    print(1.5 < 2.5);\n    RETURN 0;\nEND"),
+                Arguments.of("Any",
+                        "LET a: Any = 1;\nLET c: Comparable = \"c\";\n" +
+                        "DEF main(): Integer DO\n    print(a);\n    a = \"a\";\n    print(a);\n    print(c == \"c\");\n    RETURN 0;\nEND")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testJavaSemantics(String test, String input, Object expected) {
+        StringBuilder output = new StringBuilder();
+        Class<?> main = BytecodeGenerator.compile(analyze(input));
+        Assertions.assertEquals(expected, capture(output, () -> BytecodeGenerator.run(main)) + ":" + output.toString().trim());
+    }
+
+    private static Stream<Arguments> testJavaSemantics() {
+        return Stream.of(
+                Arguments.of("Overflow", "DEF main(): Integer DO\n    RETURN 2147483647 + 1;\nEND", "-2147483648:"),
+                Arguments.of("Decimal Division", "DEF main(): Integer DO\n    print(1.0 / 4.0);\n    RETURN 0;\nEND", "0:0.25"),
+                Arguments.of("String Comparison", "DEF main(): Integer DO\n    print(\"a\" < \"b\");\n    RETURN 0;\nEND", "0:true"),
+                Arguments.of("String Methods",
+                        "DEF main(): Integer DO\n    print(\"abc\".slice(1, 2));\n    RETURN \"abc\".length;\nEND", "3:b"),
+                Arguments.of("Division By Zero", "DEF main(): Integer DO\n    RETURN 1 / 0;\nEND", ArithmeticException.class + ":")
+        );
+    }
+
+    @Test
+    void testFor() throws ReflectiveOperationException {
+        Class<?> main = BytecodeGenerator.compile(analyze(
+                "DEF sum(list: IntegerIterable): Integer DO\n    LET total = 0;\n    FOR i IN list DO\n" +
+                "        total = total + i;\n    END\n    RETURN total;\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN 0;\nEND"));
+        Object instance = main.getConstructor().newInstance();
+        Assertions.assertEquals(10, main.getMethod("sum", Iterable.class).invoke(instance, Arrays.asList(1, 2, 3, 4)));
+    }
+
+    @Test
+    void testUndefinedFunction() {
+        Scope scope = new Scope(null);
+        scope.defineFunction("f", "f", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL);
+        Ast.Source ast = new Parser(new Lexer("DEF main(): Integer DO\n    RETURN f();\nEND").lex()).parseSource();
+        new Analyzer(scope).visit(ast);
+        Assertions.assertThrows(RuntimeException.class, () -> BytecodeGenerator.compile(ast));
+    }
+
+    @Test
+    void testMissingReturn() {
+        String g = "DEF g(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN n;\n    ELSE\n        RETURN 0;\n    END\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN g(1);\nEND";
+        Ast.Source ast = analyze("DEF f(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN n;\n    END\n    print(n);\nEND\n" + g);
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> BytecodeGenerator.compile(ast));
+        Assertions.assertEquals("The method f/1 is missing a return statement.", exception.getMessage());
+        Assertions.assertEquals(1, BytecodeGenerator.run(BytecodeGenerator.compile(analyze(g))));
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = parse(input);
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    /**
+     * Runs the program, capturing what it prints and returning the result of
+     * main or the class of the exception.
+     */
+    private static Object capture(StringBuilder output, Supplier<Object> program) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            return program.get();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        } finally {
+            System.setOut(out);
+            output.append(bytes);
+        }
+    }
+
+}
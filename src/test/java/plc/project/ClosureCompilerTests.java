@@ -0,0 +1,111 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tests that a source compiled by the {@link ClosureCompiler} gives the same
+ * results as the {@link Interpreter}, including the errors it throws.
+ */
+final class ClosureCompilerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        List<Object> expectedLog = new ArrayList<>();
+        Object expected = run(expectedLog, scope -> new Interpreter(scope).visit(parse(input)));
+        List<Object> actualLog = new ArrayList<>();
+        ClosureCompiler.Program program = new ClosureCompiler().compile(parse(input));
+        Assertions.assertEquals(expected, run(actualLog, program::run));
+        Assertions.assertEquals(expectedLog, actualLog);
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO\n    RETURN 0;\nEND"),
+                Arguments.of("No Return", "LET x: Integer = 1;\nDEF main() DO\n    log(x);\nEND"),
+                Arguments.of("Fields",
+                        "LET x: Integer = 1;\nLET y: Integer = x + 1;\nLET z: Integer;\n" +
+                        "DEF main(): Integer DO\n    z = x + y;\n    log(z);\n    RETURN x * y;\nEND"),
+                Arguments.of("Static Scope",
+                        "LET x: Integer = 1;\nLET y: Integer = 2;\nLET z: Integer = 3;\n" +
+                        "DEF f(z: Integer): Integer DO\n    RETURN x + y + z;\nEND\n" +
+                        "DEF main(): Integer DO\n    LET y = 4;\n    RETURN f(5);\nEND"),
+                Arguments.of("Recursion",
+                        "DEF main(): Integer DO\n    RETURN fib(15);\nEND\n" +
+                        "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\nEND"),
+                Arguments.of("Loops",
+                        "DEF main(): Integer DO\n    LET total = 0;\n    FOR i IN list DO\n        total = total + i;\n    END\n" +
+                        "    WHILE total > 0 DO\n        total = total - 3;\n        log(total);\n    END\n    RETURN total;\nEND"),
+                Arguments.of("Early Return",
+                        "DEF find(target: Integer): Integer DO\n    FOR i IN list DO\n        LET n = 0;\n" +
+                        "        WHILE n < 10 DO\n            IF i * n == target DO\n                RETURN n;\n            END\n" +
+                        "            n = n + 1;\n        END\n        log(i);\n    END\n    RETURN 0 - 1;\nEND\n" +
+                        "DEF main(): Integer DO\n    log(find(12));\n    RETURN find(100);\nEND"),
+                Arguments.of("Else",
+                        "DEF sign(x: Integer): String DO\n    IF x < 0 DO\n        RETURN \"negative\";\n" +
+                        "    ELSE\n        IF x == 0 DO\n            RETURN \"zero\";\n        END\n    END\n    RETURN \"positive\";\nEND\n" +
+                        "DEF main(): String DO\n    log(sign(0 - 1));\n    log(sign(0));\n    RETURN sign(1);\nEND"),
+                Arguments.of("Logical",
+                        "DEF main(): Boolean DO\n    LET x = 1;\n    log(TRUE OR undefined);\n    log(FALSE AND undefined);\n" +
+                        "    log(x != 1 OR x >= 1);\n    RETURN x <= 0 AND TRUE;\nEND"),
+                Arguments.of("Literals",
+                        "DEF main(): String DO\n    log(1.5 + 2.25);\n    log(1.0 / 3.0);\n    log('c' == 'c');\n" +
+                        "    log(\"a\" + 1);\n    log(NIL);\n    RETURN \"done\\n\";\nEND"),
+                Arguments.of("Overflow",
+                        "DEF main(): Integer DO\n    LET x = 2147483647;\n    LET y = x * x * x * x * x;\n" +
+                        "    log(y / x);\n    RETURN y - y + 1;\nEND"),
+                Arguments.of("Division By Zero", "DEF main(): Integer DO\n    RETURN 1 / 0;\nEND"),
+                Arguments.of("Undefined Variable", "DEF main(): Integer DO\n    RETURN undefined;\nEND"),
+                Arguments.of("Undefined Function", "DEF main(): Integer DO\n    RETURN undefined(1);\nEND"),
+                Arguments.of("Mixed Comparison", "DEF main(): Boolean DO\n    RETURN 1 < 1.0;\nEND"),
+                Arguments.of("Condition Type", "DEF main(): Integer DO\n    IF 1 DO\n        RETURN 1;\n    END\n    RETURN 0;\nEND")
+        );
+    }
+
+    @Test
+    void testRunTwice() {
+        ClosureCompiler.Program program = new ClosureCompiler().compile(parse(
+                "LET count: Integer = 0;\nDEF main(): Integer DO\n    count = count + 1;\n    RETURN count;\nEND"));
+        Assertions.assertEquals(BigInteger.ONE, program.run(new Scope(null)).getValue());
+        Assertions.assertEquals(BigInteger.ONE, program.run(new Scope(null)).getValue());
+    }
+
+    private static Ast.Source parse(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        new Resolver().visit(ast);
+        return ast;
+    }
+
+    /**
+     * Runs the source with a {@code log} function and {@code list} variable
+     * defined, returning the value of main or the class of the exception.
+     */
+    private static Object run(List<Object> log, java.util.function.Function<Scope, Environment.PlcObject> function) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("log", 1, args -> {
+            log.add(args.get(0).getValue().toString());
+            return Environment.NIL;
+        });
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        try {
+            return function.apply(scope).getValue().toString();
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+}
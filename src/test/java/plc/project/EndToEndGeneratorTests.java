@@ -41,6 +41,118 @@ public class EndToEndGeneratorTests {
                                 "",
                                 "}"
                         )
+                ),
+                Arguments.of("Tail Call",
+                        // DEF sum(n: Integer, acc: Integer): Integer DO
+                        //     IF n == 0 DO
+                        //         RETURN acc;
+                        //     END
+                        //     RETURN sum(n - 1, acc + n);
+                        // END
+                        // DEF count(n: Integer, acc: Integer): Integer DO
+                        //     WHILE n > 0 DO
+                        //         RETURN count(n - 1, acc);
+                        //     END
+                        //     RETURN acc;
+                        // END
+                        // DEF main(): Integer DO
+                        //     RETURN sum(3, 0) + count(3, 0);
+                        // END
+                        "DEF sum(n: Integer, acc: Integer): Integer DO\n    IF n == 0 DO\n        RETURN acc;\n    END\n    RETURN sum(n - 1, acc + n);\nEND\n" +
+                        "DEF count(n: Integer, acc: Integer): Integer DO\n    WHILE n > 0 DO\n        RETURN count(n - 1, acc);\n    END\n    RETURN acc;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN sum(3, 0) + count(3, 0);\nEND",
+                        String.join(System.lineSeparator(),
+                                "public class Main {",
+                                "",
+                                "    public static void main(String[] args) {",
+                                "        System.exit(new Main().main());",
+                                "    }",
+                                "",
+                                "    int sum(int n, int acc) {",
+                                "        tail: while (true) {",
+                                "            if (n == 0) {",
+                                "                return acc;",
+                                "            }",
+                                "            int next$n = n - 1;",
+                                "            int next$acc = acc + n;",
+                                "            n = next$n;",
+                                "            acc = next$acc;",
+                                "            continue tail;",
+                                "        }",
+                                "    }",
+                                "",
+                                "    int count(int n, int acc) {",
+                                "        tail: while (true) {",
+                                "            while (n > 0) {",
+                                "                n = n - 1;",
+                                "                continue tail;",
+                                "            }",
+                                "            return acc;",
+                                "        }",
+                                "    }",
+                                "",
+                                "    int main() {",
+                                "        return sum(3, 0) + count(3, 0);",
+                                "    }",
+                                "",
+                                "}"
+                        )
+                ),
+                Arguments.of("Tail Call Fall Through",
+                        // DEF f(n: Integer): Integer DO
+                        //     IF n > 0 DO
+                        //         RETURN f(n - 1);
+                        //     END
+                        //     print(n);
+                        // END
+                        // DEF g(n: Integer): Integer DO
+                        //     IF n > 0 DO
+                        //         RETURN g(n - 1);
+                        //     ELSE
+                        //         RETURN n;
+                        //     END
+                        // END
+                        // DEF main(): Integer DO
+                        //     RETURN g(3);
+                        // END
+                        "DEF f(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN f(n - 1);\n    END\n    print(n);\nEND\n" +
+                        "DEF g(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN g(n - 1);\n    ELSE\n        RETURN n;\n    END\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN g(3);\nEND",
+                        String.join(System.lineSeparator(),
+                                "public class Main {",
+                                "",
+                                "    public static void main(String[] args) {",
+                                "        System.exit(new Main().main());",
+                                "    }",
+                                "",
+                                "    int f(int n) {",
+                                "        tail: while (true) {",
+                                "            if (n > 0) {",
+                                "                n = n - 1;",
+                                "                continue tail;",
+                                "            }",
+                                "            System.out.println(n);",
+                                "            break tail;",
+                                "        }",
+                                "    }",
+                                "",
+                                "    int g(int n) {",
+                                "        tail: while (true) {",
+                                "            if (n > 0) {",
+                                "                n = n - 1;",
+                                "                continue tail;",
+                                "            } else {",
+                                "                return n;",
+                                "            }",
+                                "        }",
+                                "    }",
+                                "",
+                                "    int main() {",
+                                "        return g(3);",
+                                "    }",
+                                "",
+                                "}"
+                        )
                 )
         );
     }
@@ -0,0 +1,149 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+final class EnvironmentTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testCreate(String test, Object value, boolean shared) {
+        Environment.PlcObject object = Environment.create(value);
+        Assertions.assertEquals(value, object.getValue());
+        Assertions.assertEquals(shared, object == Environment.create(value));
+        Assertions.assertSame(object.getType(), Environment.create(value).getType());
+    }
+
+    private static Stream<Arguments> testCreate() {
+        return Stream.of(
+                Arguments.of("True", true, true),
+                Arguments.of("False", false, true),
+                Arguments.of("Integer", BigInteger.TEN, true),
+                Arguments.of("Negative Integer", BigInteger.valueOf(-128), true),
+                Arguments.of("Large Integer", BigInteger.valueOf(1024), false),
+                Arguments.of("Character", 'c', true),
+                Arguments.of("Unicode Character", '\u00E9', false),
+                Arguments.of("Decimal", new BigDecimal("1.0"), false),
+                Arguments.of("String", "string", false)
+        );
+    }
+
+    @Test
+    void testCreateInteger() {
+        Assertions.assertSame(Environment.create(BigInteger.ONE), Environment.createInteger(1));
+        Assertions.assertEquals(BigInteger.valueOf(Long.MAX_VALUE), Environment.createInteger(Long.MAX_VALUE).getValue());
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testBody(String test, Environment.Function.Body body, int arity) {
+        Environment.Function function = new Environment.Function("f", arity, body);
+        Environment.PlcObject[] arguments = {Environment.create("a"), Environment.create("b"), Environment.create("c")};
+        String expected = "abc".substring(0, arity);
+        Environment.PlcObject[] array = Arrays.copyOf(arguments, arity);
+        Assertions.assertEquals(expected, function.invoke(array).getValue());
+        Assertions.assertEquals(expected, function.invoke(Arrays.asList(array)).getValue());
+        Environment.PlcObject result;
+        switch (arity) {
+            case 0:
+                result = function.invoke0();
+                break;
+            case 1:
+                result = function.invoke1(arguments[0]);
+                break;
+            case 2:
+                result = function.invoke2(arguments[0], arguments[1]);
+                break;
+            default:
+                result = function.invoke3(arguments[0], arguments[1], arguments[2]);
+        }
+        Assertions.assertEquals(expected, result.getValue());
+    }
+
+    private static Stream<Arguments> testBody() {
+        return Stream.of(
+                Arguments.of("Arity 0", Environment.Function.Body.of(() -> Environment.create("")), 0),
+                Arguments.of("Arity 1", Environment.Function.Body.of(a -> a), 1),
+                Arguments.of("Arity 2", Environment.Function.Body.of((a, b) -> concat(a, b)), 2),
+                Arguments.of("Arity 3", Environment.Function.Body.of((a, b, c) -> concat(a, b, c)), 3),
+                Arguments.of("Varargs", Environment.Function.Body.varargs(EnvironmentTests::concat), 3),
+                Arguments.of("Varargs Empty", Environment.Function.Body.varargs(EnvironmentTests::concat), 0),
+                Arguments.of("List", Environment.Function.Body.list(args -> concat(args.toArray(new Environment.PlcObject[0]))), 2)
+        );
+    }
+
+    @Test
+    void testVarargsShared() {
+        Environment.PlcObject[][] received = new Environment.PlcObject[1][];
+        Environment.Function function = new Environment.Function("f", 2, Environment.Function.Body.varargs(args -> {
+            received[0] = args;
+            return Environment.NIL;
+        }));
+        Environment.PlcObject[] arguments = {Environment.NIL, Environment.NIL};
+        function.invoke(arguments);
+        Assertions.assertSame(arguments, received[0]);
+    }
+
+    private static Environment.PlcObject concat(Environment.PlcObject... arguments) {
+        StringBuilder builder = new StringBuilder();
+        for (Environment.PlcObject argument : arguments) {
+            builder.append(argument.getValue());
+        }
+        return Environment.create(builder.toString());
+    }
+
+    @Test
+    void testImmutableScope() {
+        Scope scope = Environment.create("string").getType().getScope();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> scope.defineVariable("x", Environment.NIL));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> scope.defineFunction("f", 0, args -> Environment.NIL));
+    }
+
+    @Test
+    void testConcurrentRegistration() throws InterruptedException {
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger registered = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int thread = i;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 100; j++) {
+                    Environment.registerType(new Environment.Type("Concurrent" + thread + "_" + j, "Object", new Scope(null)));
+                    try {
+                        Environment.registerType(new Environment.Type("Concurrent" + j, "Object", new Scope(null)));
+                        registered.incrementAndGet();
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assertions.assertEquals(100, registered.get());
+        for (int i = 0; i < threads; i++) {
+            Assertions.assertEquals("Concurrent" + i + "_99", Environment.getType("Concurrent" + i + "_99").getName());
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ExecutionServiceTests {
+
+    @Test
+    void testConcurrentExecutions() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Scope prelude = new Scope(null);
+        prelude.defineFunction("count", 0, args -> Environment.createInteger(calls.incrementAndGet()));
+        prelude.defineVariable("offset", Environment.create(BigInteger.TEN));
+        Ast.Source ast = parse("LET total: Integer = 0;\nDEF main(): Integer DO\n    LET i = 0;\n    WHILE i < 10 DO\n" +
+                "        total = total + i;\n        count();\n        i = i + 1;\n    END\n    RETURN total + offset;\nEND");
+        List<CompletableFuture<Environment.PlcObject>> futures = new ArrayList<>();
+        try (ExecutionService service = new ExecutionService(prelude)) {
+            for (int i = 0; i < 2000; i++) {
+                futures.add(service.submit(ast));
+            }
+            for (CompletableFuture<Environment.PlcObject> future : futures) {
+                Assertions.assertEquals(BigInteger.valueOf(55), future.get().getValue());
+            }
+            ExecutionService.Metrics metrics = service.getMetrics();
+            Assertions.assertEquals(2000, metrics.getSubmitted());
+            Assertions.assertEquals(2000, metrics.getCompleted());
+            Assertions.assertEquals(0, metrics.getFailed());
+            Assertions.assertEquals(0, metrics.getRunning());
+            Assertions.assertTrue(metrics.getThroughput() > 0);
+            Assertions.assertTrue(metrics.getLatencyPercentile(50).compareTo(metrics.getLatencyPercentile(99)) <= 0);
+            Assertions.assertTrue(metrics.getLatencyPercentile(99).compareTo(metrics.getMaxLatency()) <= 0);
+        }
+        Assertions.assertEquals(20000, calls.get());
+    }
+
+    @Test
+    void testFailure() {
+        try (ExecutionService service = new ExecutionService(new Scope(null), Executors.newFixedThreadPool(2))) {
+            CompletableFuture<Environment.PlcObject> future = service.submit(parse("DEF main(): Integer DO\n    RETURN 1 / 0;\nEND"));
+            ExecutionException exception = Assertions.assertThrows(ExecutionException.class, future::get);
+            Assertions.assertTrue(exception.getCause() instanceof ArithmeticException);
+            Assertions.assertEquals(1, service.getMetrics().getFailed());
+        }
+    }
+
+    @Test
+    void testPreludeImmutable() throws Exception {
+        Scope prelude = new Scope(null);
+        try (ExecutionService service = new ExecutionService(prelude)) {
+            // Fields are defined in the scope of the execution, not the prelude
+            Assertions.assertEquals(BigInteger.ONE, service.submit(parse("LET x: Integer = 1;\nDEF main(): Integer DO\n    RETURN x;\nEND")).get().getValue());
+            Assertions.assertEquals(BigInteger.TWO, service.submit(parse("LET x: Integer = 2;\nDEF main(): Integer DO\n    RETURN x;\nEND")).get().getValue());
+        }
+        Assertions.assertThrows(RuntimeException.class, () -> prelude.lookupVariable("x"));
+    }
+
+    @Test
+    void testClosed() {
+        ExecutionService service = new ExecutionService(new Scope(null));
+        service.close();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> service.submit(parse("DEF main(): Integer DO\n    RETURN 0;\nEND")));
+        Assertions.assertEquals(0, service.getMetrics().getSubmitted());
+        Assertions.assertEquals(0, service.getMetrics().getFailed());
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+}
@@ -1,6 +1,7 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -11,6 +12,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.Collections;
@@ -1166,6 +1168,29 @@ public class GeneratorTests {
         );
     }
 
+    @Test
+    void testParallel() {
+        StringBuilder input = new StringBuilder("LET count: Integer = 0;\n");
+        for (int i = 0; i < 200; i++) {
+            input.append("DEF method").append(i).append("(x: Integer): Integer DO\n")
+                    .append("    WHILE x < ").append(i).append(" DO\n        x = x + 1;\n    END\n")
+                    .append("    RETURN x;\nEND\n");
+        }
+        input.append("DEF main(): Integer DO\n    print(method199(0));\n    RETURN 0;\nEND");
+        Ast.Source ast = new Parser(new Lexer(input.toString()).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter sequential = new StringWriter();
+        new Generator(new PrintWriter(sequential)).visit(ast);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            StringWriter parallel = new StringWriter();
+            new Generator(new PrintWriter(parallel), pool).visit(ast);
+            Assertions.assertEquals(sequential.toString(), parallel.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     /**
      * Helper function for tests, using a StringWriter as the output stream.
      */
@@ -0,0 +1,125 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+/**
+ * Tests compiling the {@link Generator}'s output in memory, and the cache of
+ * compiled classes.
+ */
+final class InMemoryCompilerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testCompile(String test, String input, int expected) {
+        Assertions.assertEquals(expected, BytecodeGenerator.run(new InMemoryCompiler().compile(input)));
+    }
+
+    private static Stream<Arguments> testCompile() {
+        return Stream.of(
+                Arguments.of("Main", "DEF main(): Integer DO\n    RETURN 0;\nEND", 0),
+                Arguments.of("Fields",
+                        "LET x: Integer = 1;\nLET y: Integer = x + 1;\n" +
+                        "DEF main(): Integer DO\n    RETURN x * y + 40;\nEND", 42),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN fib(15);\nEND", 610),
+                Arguments.of("Loop",
+                        "DEF main(): Integer DO\n    LET i = 0;\n    LET sum = 0;\n    WHILE i < 10 DO\n" +
+                        "        sum = sum + i;\n        i = i + 1;\n    END\n    RETURN sum;\nEND", 45)
+        );
+    }
+
+    @Test
+    void testCached() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        String input = "DEF main(): Integer DO\n    RETURN 1;\nEND";
+        Class<?> main = compiler.compile(input);
+        Assertions.assertSame(main, compiler.compile(new String(input.toCharArray())));
+        Assertions.assertNotSame(main, compiler.compile(input.replace('1', '2')));
+        compiler.clear();
+        Assertions.assertNotSame(main, compiler.compile(input));
+    }
+
+    @Test
+    void testCapacity() {
+        InMemoryCompiler compiler = new InMemoryCompiler(2);
+        String input = "DEF main(): Integer DO\n    RETURN 1;\nEND";
+        Class<?> main = compiler.compile(input);
+        Class<?> second = compiler.compile(input.replace('1', '2'));
+        Assertions.assertSame(main, compiler.compile(input));
+        // Evicts the second, as the first was used since
+        compiler.compile(input.replace('1', '3'));
+        Assertions.assertEquals(2, compiler.size());
+        Assertions.assertSame(main, compiler.compile(input));
+        Assertions.assertNotSame(second, compiler.compile(input.replace('1', '2')));
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        String input = "DEF main(): Integer DO\n    RETURN 5;\nEND";
+        Class<?>[] classes = new Class<?>[4];
+        Thread[] threads = new Thread[classes.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> classes[index] = compiler.compile(input));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Class<?> type : classes) {
+            Assertions.assertSame(classes[0], type);
+        }
+        Assertions.assertEquals(1, compiler.size());
+    }
+
+    @Test
+    void testSeparateLoaders() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        Class<?> first = compiler.compile("DEF main(): Integer DO\n    RETURN 1;\nEND");
+        Class<?> second = compiler.compile("DEF main(): Integer DO\n    RETURN 2;\nEND");
+        Assertions.assertEquals("Main", first.getName());
+        Assertions.assertEquals("Main", second.getName());
+        Assertions.assertEquals(1, BytecodeGenerator.run(first));
+        Assertions.assertEquals(2, BytecodeGenerator.run(second));
+    }
+
+    @Test
+    void testAnalysisError() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        String input = "DEF main(): Integer DO\n    RETURN \"string\";\nEND";
+        Assertions.assertThrows(RuntimeException.class, () -> compiler.compile(input));
+        Assertions.assertThrows(RuntimeException.class, () -> compiler.compile(input));
+        Assertions.assertEquals(0, compiler.size());
+    }
+
+    @Test
+    void testTailCallFallThrough() {
+        String input = "DEF f(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN f(n - 1);\n    END\n    print(n);\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN f(3);\nEND";
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new InMemoryCompiler().compile(input));
+        Assertions.assertTrue(exception.getMessage().contains("missing return statement"), exception.getMessage());
+    }
+
+    @Test
+    void testJavaError() {
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                () -> new InMemoryCompiler().compileJava("Main", "public class Main { int main() { return \"\"; } }"));
+        Assertions.assertTrue(exception.getMessage().startsWith("The generated source for Main failed to compile:"));
+    }
+
+    @Test
+    void testHash() {
+        Assertions.assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", InMemoryCompiler.hash(""));
+        Assertions.assertNotEquals(InMemoryCompiler.hash("a"), InMemoryCompiler.hash("b"));
+    }
+
+}
@@ -0,0 +1,121 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Tests that the {@link IncrementalParser} gives the same tokens and AST after
+ * each edit as lexing and parsing the whole edited text.
+ */
+final class IncrementalParserTests {
+
+    private static final String SOURCE = "LET x: Integer = 1;\nLET y: Decimal;\n\n" +
+            "DEF f(n: Integer): Integer DO\n    LET m = n + x;\n    RETURN m * 2;\nEND\n\n" +
+            "DEF g(): String DO\n    RETURN \"g\";\nEND\n\n" +
+            "DEF main(): Integer DO\n    print(f(1.5));\n    RETURN 0;\nEND\n";
+
+    @ParameterizedTest
+    @MethodSource
+    void testEdit(String test, int offset, int removed, String inserted) {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        test(parser, offset, removed, inserted);
+    }
+
+    private static Stream<Arguments> testEdit() {
+        return Stream.of(
+                Arguments.of("Field Value", SOURCE.indexOf("1;"), 1, "42"),
+                Arguments.of("Method Body", SOURCE.indexOf("m * 2"), 5, "m - n"),
+                Arguments.of("Rename Method", SOURCE.indexOf("g()"), 1, "h"),
+                Arguments.of("Extend Token", SOURCE.indexOf("1.5") + 3, 0, "25"),
+                Arguments.of("Split Token", SOURCE.indexOf("1.5") + 1, 0, " "),
+                Arguments.of("Decimal Lookahead", SOURCE.indexOf("1.5") + 2, 1, "x"),
+                Arguments.of("Merge Keyword", SOURCE.indexOf("END\n\nDEF g") + 3, 2, ""),
+                Arguments.of("Insert Method", SOURCE.indexOf("DEF g"), 0, "DEF h() DO\nEND\n"),
+                Arguments.of("Remove Method", SOURCE.indexOf("DEF g"), SOURCE.indexOf("DEF main") - SOURCE.indexOf("DEF g"), ""),
+                Arguments.of("Insert Field", SOURCE.indexOf("LET y"), 0, "LET z: Boolean = TRUE;\n"),
+                Arguments.of("Remove DEF", SOURCE.indexOf("DEF g"), 3, ""),
+                Arguments.of("Field After Method", SOURCE.indexOf("DEF main"), 0, "LET z: Integer;\n"),
+                Arguments.of("Leading", 0, 0, "  "),
+                Arguments.of("Leading Error", 0, 0, "x "),
+                Arguments.of("Trailing", SOURCE.length(), 0, "DEF h() DO\nEND"),
+                Arguments.of("Trailing Error", SOURCE.length(), 0, "x"),
+                Arguments.of("Unterminated String", SOURCE.indexOf("\"g\"") + 2, 1, ""),
+                Arguments.of("Remove All", 0, SOURCE.length(), "")
+        );
+    }
+
+    @Test
+    void testRecovery() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        int offset = SOURCE.indexOf("RETURN m");
+        test(parser, offset, 0, "(");
+        Assertions.assertNull(parser.getSource());
+        test(parser, offset, 1, "");
+        Assertions.assertEquals(full(SOURCE), parser.getSource());
+    }
+
+    @Test
+    void testReuse() {
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        Ast.Source before = parser.getSource();
+        Ast.Source after = parser.edit(SOURCE.indexOf("m * 2"), 1, "n");
+        Assertions.assertSame(before.getFields().get(0), after.getFields().get(0));
+        Assertions.assertNotSame(before.getMethods().get(0), after.getMethods().get(0));
+        Assertions.assertSame(before.getMethods().get(1), after.getMethods().get(1));
+        Assertions.assertSame(before.getMethods().get(2), after.getMethods().get(2));
+    }
+
+    /**
+     * Applies random edits of fragments of the source, checking each against
+     * a full parse. Edits which don't parse are undone, so each edit is made
+     * to a source which parses.
+     */
+    @Test
+    void testRandomEdits() {
+        Random random = new Random(0);
+        String[] fragments = {"", " ", "\n", "x", "1", ".", "5", "\"", "'", "=", ";", "(", ")", "LET", "DEF", "END", "DO",
+                "LET z = 1;", "DEF h() DO\nEND\n", "RETURN 1;", "\"s\"", "'c'"};
+        IncrementalParser parser = new IncrementalParser(SOURCE);
+        for (int i = 0; i < 2000; i++) {
+            String text = parser.getText();
+            if (text.length() > 2 * SOURCE.length()) {
+                parser = new IncrementalParser(SOURCE);
+                text = SOURCE;
+            }
+            int offset = random.nextInt(text.length() + 1);
+            int removed = random.nextInt(Math.min(4, text.length() - offset) + 1);
+            String inserted = fragments[random.nextInt(fragments.length)];
+            test(parser, offset, removed, inserted);
+            if (parser.getSource() == null || random.nextInt(4) == 0) {
+                test(parser, offset, inserted.length(), text.substring(offset, offset + removed));
+            }
+        }
+    }
+
+    private static void test(IncrementalParser parser, int offset, int removed, String inserted) {
+        String text = parser.getText();
+        String edited = text.substring(0, offset) + inserted + text.substring(offset + removed);
+        Ast.Source expected;
+        try {
+            expected = full(edited);
+        } catch (ParseException e) {
+            ParseException exception = Assertions.assertThrows(ParseException.class, () -> parser.edit(offset, removed, inserted));
+            Assertions.assertEquals(e.getIndex(), exception.getIndex());
+            Assertions.assertEquals(edited, parser.getText());
+            return;
+        }
+        Assertions.assertEquals(expected, parser.edit(offset, removed, inserted), edited);
+        Assertions.assertEquals(new Lexer(edited).lex(), parser.getTokens(), edited);
+    }
+
+    private static Ast.Source full(String text) {
+        return new Parser(new Lexer(text).lex()).parseSource();
+    }
+
+}
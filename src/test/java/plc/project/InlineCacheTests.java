@@ -0,0 +1,156 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the {@link InlineCache} on its own and at the call sites of the
+ * {@link Interpreter}.
+ */
+final class InlineCacheTests {
+
+    @Test
+    void testFunction() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 1, args -> Environment.NIL);
+        Environment.Function expected = parent.lookupFunction("f", 1);
+        InlineCache cache = new InlineCache(Symbol.of("f"), 1, true);
+        // Scopes without functions, as for each call of a method, share the entry
+        Assertions.assertSame(expected, cache.lookupFunction(new Scope(new Scope(parent))));
+        Assertions.assertSame(expected, cache.lookupFunction(new Scope(parent)));
+        Assertions.assertSame(expected, cache.lookupFunction(parent));
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(1, cache.getMisses());
+        Assertions.assertEquals(2, cache.getHits());
+    }
+
+    @Test
+    void testInvalidation() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 1, args -> Environment.NIL);
+        Scope child = new Scope(parent);
+        InlineCache cache = new InlineCache(Symbol.of("f"), 1, true);
+        Assertions.assertSame(parent.lookupFunction("f", 1), cache.lookupFunction(child));
+        // The child shares the version of the parent, so this replaces both entries
+        child.defineFunction("f", 1, args -> Environment.NIL);
+        Assertions.assertSame(child.lookupFunction("f", 1), cache.lookupFunction(child));
+        Assertions.assertSame(parent.lookupFunction("f", 1), cache.lookupFunction(new Scope(parent)));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(0, cache.getHits());
+        // Defining in an unrelated scope keeps the entries, and in the parent replaces them
+        new Scope(null).defineFunction("f", 1, args -> Environment.NIL);
+        Assertions.assertSame(parent.lookupFunction("f", 1), cache.lookupFunction(parent));
+        Assertions.assertEquals(1, cache.getHits());
+        parent.defineFunction("f", 2, args -> Environment.NIL);
+        Assertions.assertSame(parent.lookupFunction("f", 1), cache.lookupFunction(parent));
+        Assertions.assertSame(child.lookupFunction("f", 1), cache.lookupFunction(child));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(5, cache.getMisses());
+    }
+
+    @Test
+    void testFrozen() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("f", 1, args -> Environment.NIL);
+        Scope frozen = parent.freeze();
+        Scope first = new Scope(frozen);
+        Scope second = new Scope(frozen);
+        InlineCache cache = new InlineCache(Symbol.of("f"), 1, true);
+        Assertions.assertSame(frozen.lookupFunction("f", 1), cache.lookupFunction(first));
+        // Children of a frozen scope have versions of their own
+        second.defineFunction("f", 1, args -> Environment.NIL);
+        Assertions.assertSame(frozen.lookupFunction("f", 1), cache.lookupFunction(first));
+        Assertions.assertSame(second.lookupFunction("f", 1), cache.lookupFunction(second));
+        Assertions.assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    void testStatsDisabled() {
+        Scope scope = new Scope(null);
+        scope.defineFunction("f", 1, args -> Environment.NIL);
+        InlineCache cache = new InlineCache(Symbol.of("f"), 1);
+        Assertions.assertSame(scope.lookupFunction("f", 1), cache.lookupFunction(scope));
+        Assertions.assertSame(scope.lookupFunction("f", 1), cache.lookupFunction(scope));
+        Assertions.assertFalse(cache.hasStats());
+        Assertions.assertEquals(1, cache.size());
+        Assertions.assertEquals(0, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    void testPolymorphic() {
+        List<Environment.Type> types = new ArrayList<>();
+        for (int i = 0; i <= InlineCache.LIMIT; i++) {
+            Scope scope = new Scope(null);
+            scope.defineFunction("m", 2, args -> Environment.NIL);
+            types.add(new Environment.Type("Type" + i, "Type" + i, scope));
+        }
+        InlineCache cache = new InlineCache(Symbol.of("m"), 1, true);
+        for (int i = 0; i < InlineCache.LIMIT; i++) {
+            for (int j = 0; j <= i; j++) {
+                Assertions.assertSame(types.get(j).getMethod("m", 1), cache.lookupMethod(types.get(j)));
+            }
+        }
+        Assertions.assertEquals(InlineCache.LIMIT, cache.size());
+        Assertions.assertEquals(InlineCache.LIMIT, cache.getMisses());
+        Environment.Type last = types.get(InlineCache.LIMIT);
+        Assertions.assertSame(last.getMethod("m", 1), cache.lookupMethod(last));
+        Assertions.assertTrue(cache.isMegamorphic());
+        Assertions.assertSame(types.get(0).getMethod("m", 1), cache.lookupMethod(types.get(0)));
+        Assertions.assertEquals(InlineCache.LIMIT + 2, cache.getMisses());
+    }
+
+    @Test
+    void testUndefined() {
+        InlineCache cache = new InlineCache(Symbol.of("undefined"), 0);
+        Assertions.assertThrows(RuntimeException.class, () -> cache.lookupFunction(new Scope(null)));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testInterpreter() {
+        String input = "DEF call(o: Any): Any DO\n    RETURN o.name();\nEND\n" +
+                "DEF main(): Integer DO\n    LET i = 0;\n    LET s = \"\";\n" +
+                "    WHILE i < 10 DO\n        s = s + call(a) + call(b);\n        i = i + 1;\n    END\n    RETURN s;\nEND";
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        Ast.Expr.Function methodCall = (Ast.Expr.Function) ((Ast.Stmt.Return) ast.getMethods().get(0).getStatements().get(0)).getValue();
+        Ast.Stmt.Assignment assignment = (Ast.Stmt.Assignment) ((Ast.Stmt.While) ast.getMethods().get(1).getStatements().get(2)).getStatements().get(0);
+        Ast.Expr.Function functionCall = (Ast.Expr.Function) ((Ast.Expr.Binary) assignment.getValue()).getRight();
+        Assertions.assertNotEquals(methodCall.getSite(), functionCall.getSite());
+        // Runs with inline caches twice, as each interpreter has its own
+        for (boolean inlineCaches : new boolean[] {false, true, true}) {
+            Scope scope = new Scope(null);
+            scope.defineVariable("a", object("a"));
+            scope.defineVariable("b", object("b"));
+            Interpreter interpreter = new Interpreter(scope, true, 0, inlineCaches, true);
+            Environment.PlcObject result = interpreter.visit(ast);
+            Assertions.assertEquals("ab".repeat(10), result.getValue());
+            InlineCache method = interpreter.getCache(methodCall);
+            InlineCache function = interpreter.getCache(functionCall);
+            if (inlineCaches) {
+                Assertions.assertEquals(2, method.size());
+                Assertions.assertEquals(18, method.getHits());
+                Assertions.assertEquals(1, function.size());
+                Assertions.assertEquals(9, function.getHits());
+                Assertions.assertEquals(0.9, function.getHitRate());
+            } else {
+                Assertions.assertNull(method);
+                Assertions.assertNull(function);
+            }
+        }
+    }
+
+    /**
+     * Returns an object of a new type with a method {@code name()} returning
+     * the value of the object.
+     */
+    private static Environment.PlcObject object(String value) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("name", 1, args -> Environment.create(args.get(0).getValue()));
+        return new Environment.PlcObject(new Environment.Type(value, value, scope), scope, value);
+    }
+
+}
@@ -356,6 +356,43 @@ final class InterpreterTests {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testSmallIntegers(String test, String operator, BigInteger left, BigInteger right) {
+        Ast.Expr.Binary ast = new Ast.Expr.Binary(operator, new Ast.Expr.Literal(left), new Ast.Expr.Literal(right));
+        Object expected = new Interpreter(new Scope(null), false).visit(ast).getValue();
+        Environment.PlcObject result = new Interpreter(new Scope(null), true).visit(ast);
+        Assertions.assertEquals(expected, result.getValue());
+        if (expected instanceof BigInteger) {
+            Assertions.assertEquals(((BigInteger) expected).bitLength() < Long.SIZE, result.isSmallInteger());
+        }
+    }
+
+    private static Stream<Arguments> testSmallIntegers() {
+        BigInteger max = BigInteger.valueOf(Long.MAX_VALUE);
+        BigInteger min = BigInteger.valueOf(Long.MIN_VALUE);
+        return Stream.of(
+                Arguments.of("Addition", "+", BigInteger.valueOf(-7), BigInteger.TEN),
+                Arguments.of("Addition Overflow", "+", max, BigInteger.ONE),
+                Arguments.of("Subtraction Overflow", "-", min, BigInteger.ONE),
+                Arguments.of("Multiplication", "*", BigInteger.valueOf(-3), BigInteger.valueOf(1L << 40)),
+                Arguments.of("Multiplication Overflow", "*", BigInteger.valueOf(1L << 32), BigInteger.valueOf(-(1L << 32))),
+                Arguments.of("Multiplication Minimum", "*", BigInteger.valueOf(1L << 62), BigInteger.valueOf(-2)),
+                Arguments.of("Division Truncation", "/", BigInteger.valueOf(-7), BigInteger.valueOf(2)),
+                Arguments.of("Division Overflow", "/", min, BigInteger.ONE.negate()),
+                Arguments.of("Large Operand", "+", max.add(BigInteger.ONE), BigInteger.ONE),
+                Arguments.of("Comparison", "<=", min, max),
+                Arguments.of("Equal", "==", max, max),
+                Arguments.of("Not Equal", "!=", BigInteger.ONE, BigInteger.TEN)
+        );
+    }
+
+    @Test
+    void testSmallIntegerDivisionByZero() {
+        Ast.Expr.Binary ast = new Ast.Expr.Binary("/", new Ast.Expr.Literal(BigInteger.ONE), new Ast.Expr.Literal(BigInteger.ZERO));
+        Assertions.assertThrows(ArithmeticException.class, () -> new Interpreter(new Scope(null)).visit(ast));
+    }
+
     @ParameterizedTest
     @MethodSource
     void testAccessExpression(String test, Ast ast, Object expected) {
@@ -524,6 +561,131 @@ final class InterpreterTests {
         test(source, expected, new Scope(null));
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testBlockScope(String test, String input, Object expected) {
+        Scope scope = new Scope(null);
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Scope interpreted = test(new Parser(new Lexer(input).lex()).parseSource(), expected, scope);
+        // Every scope entered is left, including those of methods returning from within a block
+        Assertions.assertEquals(BigInteger.ONE, interpreted.lookupVariable("field").getValue().getValue());
+    }
+
+    private static Stream<Arguments> testBlockScope() {
+        return Stream.of(
+                Arguments.of("While Declaration",
+                        "LET field: Integer = 1;\nDEF main(): Integer DO\n    LET i = 0;\n    LET sum = 0;\n" +
+                        "    WHILE i < 3 DO\n        LET square = i * i;\n        sum = sum + square;\n        i = i + 1;\n    END\n" +
+                        "    RETURN sum;\nEND",
+                        BigInteger.valueOf(5)),
+                Arguments.of("For Without Declaration",
+                        "LET field: Integer = 1;\nDEF main(): Integer DO\n    LET sum = 0;\n" +
+                        "    FOR i IN list DO\n        sum = sum + i;\n    END\n    RETURN sum;\nEND",
+                        BigInteger.valueOf(10)),
+                Arguments.of("For Declaration",
+                        "LET field: Integer = 1;\nDEF main(): Integer DO\n    LET sum = 0;\n" +
+                        "    FOR i IN list DO\n        LET double = i + i;\n        sum = sum + double;\n    END\n    RETURN sum;\nEND",
+                        BigInteger.valueOf(20)),
+                Arguments.of("If Without Declaration",
+                        "LET field: Integer = 1;\nDEF main(): Integer DO\n    LET x = 1;\n" +
+                        "    IF x > 0 DO\n        x = x + 1;\n    ELSE\n        x = 0;\n    END\n    RETURN x;\nEND",
+                        BigInteger.valueOf(2)),
+                Arguments.of("Return Call From Block",
+                        "LET field: Integer = 1;\nDEF zero(): Integer DO\n    RETURN 0;\nEND\n" +
+                        "DEF count(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN count(n - 1) + field;\n    END\n" +
+                        "    FOR i IN list DO\n        RETURN zero();\n    END\n    RETURN n;\nEND\n" +
+                        "DEF main(): Integer DO\n    LET n = 3;\n    WHILE n > 0 DO\n        RETURN count(n);\n    END\n    RETURN 0;\nEND",
+                        BigInteger.valueOf(3))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testArity(String test, int arity) {
+        // The arguments 1 to arity are combined into the digits of the result
+        String parameters = IntStream.range(0, arity).mapToObj(i -> "p" + i + ": Integer").collect(Collectors.joining(", "));
+        String digits = "0";
+        for (int i = 0; i < arity; i++) {
+            digits = (i == 0 ? digits : "(" + digits + ")") + " * 10 + p" + i;
+        }
+        String arguments = IntStream.rangeClosed(1, arity).mapToObj(Integer::toString).collect(Collectors.joining(", "));
+        BigInteger expected = new BigInteger("0" + arguments.replace(", ", ""));
+        String input = "DEF f(" + parameters + "): Integer DO\n    RETURN " + digits + ";\nEND\n" +
+                "DEF main(): Integer DO\n    RETURN f(" + arguments + ");\nEND";
+        for (boolean resolved : new boolean[] {false, true}) {
+            Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+            if (resolved) {
+                new Analyzer(new Scope(null)).visit(ast);
+                new Resolver().visit(ast);
+            }
+            test(ast, expected, new Scope(null));
+        }
+        Scope object = new Scope(null);
+        object.defineFunction("digits", arity + 1, Environment.Function.Body.varargs(args -> {
+            Assertions.assertEquals("object", args[0].getValue());
+            return Environment.create(new BigInteger("0" + Arrays.stream(args, 1, args.length)
+                    .map(arg -> arg.getValue().toString())
+                    .collect(Collectors.joining())));
+        }));
+        Scope scope = new Scope(null);
+        scope.defineVariable("object", new Environment.PlcObject(object, "object"));
+        List<Ast.Expr> literals = IntStream.rangeClosed(1, arity)
+                .mapToObj(i -> (Ast.Expr) new Ast.Expr.Literal(BigInteger.valueOf(i)))
+                .collect(Collectors.toList());
+        test(new Ast.Expr.Function(Optional.of(new Ast.Expr.Access(Optional.empty(), "object")), "digits", literals), expected, scope);
+    }
+
+    private static Stream<Arguments> testArity() {
+        return IntStream.rangeClosed(0, 5).mapToObj(arity -> Arguments.of("Arity " + arity, arity));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testTailCall(String test, String input, Object expected) {
+        for (boolean resolved : new boolean[] {false, true}) {
+            Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+            if (resolved) {
+                new Analyzer(new Scope(null)).visit(ast);
+                new Resolver().visit(ast);
+            }
+            test(ast, expected, new Scope(null));
+        }
+    }
+
+    private static Stream<Arguments> testTailCall() {
+        // Deep enough to overflow the stack if each call were nested
+        return Stream.of(
+                Arguments.of("Countdown",
+                        "DEF count(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN count(n - 1);\n    END\n    RETURN n;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN count(100000);\nEND",
+                        BigInteger.ZERO),
+                Arguments.of("Accumulator",
+                        "DEF sum(n: Integer, acc: Integer): Integer DO\n    IF n == 0 DO\n        RETURN acc;\n    END\n    RETURN sum(n - 1, acc + n);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN sum(100000, 0);\nEND",
+                        BigInteger.valueOf(5000050000L)),
+                Arguments.of("Arguments Using Parameters",
+                        "DEF fib(n: Integer, a: Integer, b: Integer): Integer DO\n    WHILE n > 0 DO\n        RETURN fib(n - 1, b, a + b);\n    END\n    RETURN a;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN fib(90, 0, 1);\nEND",
+                        new BigInteger("2880067194370816120")),
+                Arguments.of("Block Locals",
+                        "DEF walk(n: Integer, acc: Integer): Integer DO\n    LET x = n;\n    WHILE x > 0 DO\n        LET y = x * 2;\n" +
+                        "        IF n > 0 DO\n            RETURN walk(n - 1, acc + y);\n        END\n        x = 0;\n    END\n    RETURN acc;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN walk(10000, 0);\nEND",
+                        BigInteger.valueOf(100010000)),
+                Arguments.of("Not Tail",
+                        "DEF depth(n: Integer): Integer DO\n    IF n > 0 DO\n        RETURN 1 + depth(n - 1);\n    END\n    RETURN 0;\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN depth(100);\nEND",
+                        BigInteger.valueOf(100)),
+                Arguments.of("Other Arity",
+                        "DEF f(n: Integer): Integer DO\n    RETURN n;\nEND\n" +
+                        "DEF f(n: Integer, m: Integer): Integer DO\n    RETURN f(n + m);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN f(1, 2);\nEND",
+                        BigInteger.valueOf(3))
+        );
+    }
+
     private static Scope test(Ast ast, Object expected, Scope scope) {
         Interpreter interpreter = new Interpreter(scope);
         if (expected != null) {
@@ -0,0 +1,103 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests the {@link Memoizer} on its own and wrapping the pure methods of the
+ * {@link Interpreter}.
+ */
+final class MemoizerTests {
+
+    private static final String FIB =
+            "LET calls: Integer = 0;\n" +
+            "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n    RETURN fib(n - 1) + fib(n - 2);\nEND\n" +
+            "DEF count(n: Integer): Integer DO\n    calls = calls + 1;\n    RETURN n;\nEND\n" +
+            "DEF main(): Integer DO\n    print(count(1) + count(1));\n    RETURN fib(30) + calls;\nEND";
+
+    @Test
+    void testLeastRecentlyUsed() {
+        int[] calls = {0};
+        Memoizer memoizer = new Memoizer(args -> {
+            calls[0]++;
+            return args.get(0);
+        }, 2);
+        for (int i : new int[] {1, 2, 1, 3, 1, 2}) {
+            Assertions.assertEquals(BigInteger.valueOf(i), memoizer.apply(Arrays.asList(Environment.create(BigInteger.valueOf(i)))).getValue());
+        }
+        // 2 is evicted by 3 as 1 was used more recently, then 3 by 2
+        Assertions.assertEquals(4, calls[0]);
+        Assertions.assertEquals(2, memoizer.getHits());
+        Assertions.assertEquals(4, memoizer.getMisses());
+        Assertions.assertEquals(2, memoizer.size());
+    }
+
+    @Test
+    void testKeys() {
+        Memoizer memoizer = new Memoizer(args -> Environment.NIL, 16);
+        List<Environment.PlcObject> objects = Arrays.asList(
+                Environment.createInteger(1L << 40),
+                Environment.create(BigInteger.ONE.shiftLeft(40)),
+                Environment.create(BigInteger.ONE.shiftLeft(80)),
+                Environment.create(new java.math.BigDecimal("1.0")),
+                Environment.create(new java.math.BigDecimal("1.00")),
+                Environment.create("a"),
+                Environment.create('a'),
+                Environment.create(true),
+                Environment.NIL
+        );
+        for (Environment.PlcObject object : objects) {
+            memoizer.apply(Arrays.asList(object, object));
+        }
+        Assertions.assertEquals(1, memoizer.getHits());
+        Assertions.assertEquals(8, memoizer.size());
+        memoizer.apply(Arrays.asList(Environment.create(Arrays.asList()), Environment.NIL));
+        memoizer.apply(Collections.emptyList());
+        memoizer.apply(Collections.emptyList());
+        Assertions.assertEquals(2, memoizer.getHits());
+        Assertions.assertEquals(9, memoizer.size());
+    }
+
+    @Test
+    void testInterpreter() {
+        for (boolean resolved : new boolean[] {false, true}) {
+            Ast.Source ast = new Parser(new Lexer(FIB).lex()).parseSource();
+            new Analyzer(new Scope(null)).visit(ast);
+            if (resolved) {
+                new Resolver().visit(ast);
+            }
+            Interpreter interpreter = new Interpreter(new Scope(null), true, 64);
+            // fib(30) plus the 2 calls counted, as count is impure and runs each time
+            Assertions.assertEquals(BigInteger.valueOf(832042), interpret(interpreter, ast));
+            Memoizer fib = interpreter.getMemoizers().get("fib/1");
+            Assertions.assertEquals(31, fib.getMisses());
+            Assertions.assertEquals(28, fib.getHits());
+            Assertions.assertEquals(Arrays.asList("fib/1"), Arrays.asList(interpreter.getMemoizers().keySet().toArray()));
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        Assertions.assertEquals(BigInteger.valueOf(832042), interpret(interpreter, new Parser(new Lexer(FIB).lex()).parseSource()));
+        Assertions.assertTrue(interpreter.getMemoizers().isEmpty());
+    }
+
+    private static Object interpret(Interpreter interpreter, Ast.Source ast) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        try {
+            return interpreter.visit(ast).getValue();
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Tests the {@link Optimizer} by comparing the optimized AST of each method
+ * body with the analyzed AST of the expected body, and that optimized sources
+ * give the same results in the {@link Interpreter}, including with invariant
+ * expressions hoisted out of loops, and that the Java generated from them
+ * gives the same results.
+ */
+final class OptimizerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testExpression(String test, String input, String expected) {
+        Assertions.assertEquals(analyze(body(expected)), new Optimizer().visit(analyze(body(input))));
+    }
+
+    private static Stream<Arguments> testExpression() {
+        return Stream.of(
+                Arguments.of("Arithmetic", "1 + 2 * 3", "7"),
+                Arguments.of("Group", "(1 + 2) * 3", "9"),
+                Arguments.of("Integer Division", "7 / 2", "3"),
+                Arguments.of("Integer Overflow", "2147483647 + 1", "2147483647 + 1"),
+                Arguments.of("Integer Minimum", "0 - 2147483647 - 1", "-2147483648"),
+                Arguments.of("Division By Zero", "1 / 0", "1 / 0"),
+                Arguments.of("Decimal", "1.5 * 2.0 - 0.25", "1.5 * 2.0 - 0.25"),
+                Arguments.of("Decimal Division", "1.0 / 3.0", "1.0 / 3.0"),
+                Arguments.of("Decimal Division By Zero", "1.0 / 0.0", "1.0 / 0.0"),
+                Arguments.of("Concatenation", "\"a\" + \"b\" + 1 + 'c' + TRUE", "\"ab1ctrue\""),
+                Arguments.of("Decimal Concatenation", "\"a\" + 1.50", "\"a\" + 1.50"),
+                Arguments.of("Comparison", "1 < 2 AND 2.5 >= 3.0", "FALSE"),
+                Arguments.of("String Comparison", "\"a\" < \"b\"", "\"a\" < \"b\""),
+                Arguments.of("Equality", "1 == 1 AND 'a' != 'b' AND \"a\" == \"a\"", "TRUE"),
+                Arguments.of("Decimal Equality", "1.0 == 1.00", "1.0 == 1.00"),
+                Arguments.of("Or True", "TRUE OR x > 1", "TRUE"),
+                Arguments.of("Or False", "FALSE OR x > 1", "x > 1"),
+                Arguments.of("And True", "x > 1 AND 1 < 2", "x > 1"),
+                Arguments.of("And False", "x > 1 AND FALSE", "FALSE"),
+                Arguments.of("And False Side Effect", "f() AND FALSE", "f() AND FALSE"),
+                Arguments.of("And False Division", "x / 0 > 1 AND FALSE", "x / 0 > 1 AND FALSE"),
+                Arguments.of("Operand Groups", "x + (x * x) - (x - x)", "x + x * x - (x - x)"),
+                Arguments.of("Left Group", "(x - x) - x", "x - x - x"),
+                Arguments.of("Needed Group", "(x + 1) * 2", "(x + 1) * 2"),
+                Arguments.of("Folded Group", "x * (1 + 2)", "x * 3"),
+                Arguments.of("Top Group", "(x + 1)", "x + 1"),
+                Arguments.of("Receiver Group", "(x + 1).compare(2) == 0", "(x + 1).compare(2) == 0"),
+                Arguments.of("Or In And", "(x > 1 OR x < 0) AND x != 5", "(x > 1 OR x < 0) AND x != 5"),
+                Arguments.of("And In Or", "(x > 1 AND x < 5) OR x == 0", "(x > 1 AND x < 5) OR x == 0"),
+                Arguments.of("Or In Or", "(x > 1 OR x < 0) OR x == 5", "x > 1 OR x < 0 OR x == 5"),
+                Arguments.of("Argument", "g(1 + 1) == 1", "g(2) == 1")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testDeadCode(String test, String input, String expected, int eliminated) {
+        Optimizer optimizer = new Optimizer();
+        Assertions.assertEquals(analyze(method(expected)), optimizer.visit(analyze(method(input))));
+        Assertions.assertEquals(eliminated, optimizer.getEliminated());
+    }
+
+    private static Stream<Arguments> testDeadCode() {
+        return Stream.of(
+                Arguments.of("After Return", "RETURN x;\n    x = 1;\n    print(x + 1);", "RETURN x;", 8),
+                Arguments.of("If True", "IF TRUE DO\n    x = 1;\nELSE\n    x = 2;\nEND\nRETURN x;", "x = 1;\nRETURN x;", 5),
+                Arguments.of("If False", "IF 1 > 2 DO\n    x = 1;\nEND\nRETURN x;", "RETURN x;", 5),
+                Arguments.of("If Return", "IF TRUE DO\n    RETURN 1;\nEND\nRETURN x;", "RETURN 1;", 4),
+                Arguments.of("If Declaration",
+                        "IF TRUE DO\n    LET y = 1;\n    x = y;\nELSE\n    x = 2;\nEND\nRETURN x;",
+                        "IF TRUE DO\n    LET y = 1;\n    x = y;\nEND\nRETURN x;", 3),
+                Arguments.of("If Variable", "IF x > 1 DO\n    x = 1;\nEND\nRETURN x;", "IF x > 1 DO\n    x = 1;\nEND\nRETURN x;", 0),
+                Arguments.of("While False", "WHILE FALSE AND x > 1 DO\n    x = x + 1;\nEND\nRETURN x;", "RETURN x;", 7),
+                Arguments.of("Nested",
+                        "WHILE x > 1 DO\n    IF FALSE DO\n        x = 0;\n    ELSE\n        RETURN x;\n        x = 2;\n    END\nEND\nRETURN x;",
+                        "WHILE x > 1 DO\n    RETURN x;\nEND\nRETURN x;", 8)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testHoist(String test, String input, int hoisted) {
+        Ast.Source ast = analyze(input);
+        String expected = interpret(ast);
+        Optimizer optimizer = new Optimizer(true);
+        Ast.Source optimized = optimizer.visit(ast);
+        Assertions.assertEquals(hoisted, optimizer.getHoisted());
+        Assertions.assertEquals(expected, interpret(optimized));
+        new Resolver().visit(optimized);
+        Assertions.assertEquals(expected, interpret(optimized));
+    }
+
+    private static Stream<Arguments> testHoist() {
+        return Stream.of(
+                Arguments.of("Condition", loop("i < n * 2", "i = i + 1;"), 1),
+                Arguments.of("Body", loop("i < 10", "sum = sum + (n * n - 1) + i * 2;\ni = i + 1;"), 1),
+                Arguments.of("Field", loop("i < n + field", "i = i + 1;"), 1),
+                Arguments.of("Nested",
+                        loop("i < 5", "LET j = 0;\nWHILE j < i * n DO\n    sum = sum + n * 3 + i;\n    j = j + 1;\nEND\ni = i + 1;"), 2),
+                Arguments.of("Assigned", loop("i < n * 2", "n = n - 1;\ni = i + 1;"), 0),
+                Arguments.of("Declared", loop("i < 10", "LET m = n;\nsum = sum + m * 2;\ni = i + 1;"), 0),
+                Arguments.of("Division", loop("i < n / 2", "i = i + 1;"), 0),
+                Arguments.of("Call Field", loop("i * 2 < n + field", "f();\ni = i + 1;"), 0),
+                Arguments.of("Call Local", loop("i < n * 2", "f();\ni = i + 1;"), 1),
+                Arguments.of("Uninitialized", loop("i < unset * 2", "i = i + 1;"), 0),
+                Arguments.of("Any", loop("i < 10", "print(any + \"!\");\ni = i + 1;"), 0),
+                Arguments.of("Never", loop("FALSE AND i < n * 2", "sum = n * 2;"), 0),
+                Arguments.of("Dead Branch", loop("i < 10", "IF FALSE DO\n    sum = n * 2;\nEND\ni = i + 1;"), 0)
+        );
+    }
+
+    @Test
+    void testHoistResolved() {
+        Ast.Source ast = analyze(loop("i < n * 2", "i = i + 1;"));
+        new Resolver().visit(ast);
+        Optimizer optimizer = new Optimizer(true);
+        Assertions.assertSame(ast, optimizer.visit(ast));
+        Assertions.assertEquals(0, optimizer.getHoisted());
+    }
+
+    @Test
+    void testUnchanged() {
+        Ast.Source ast = analyze(body("x + 1 > g(x)"));
+        Assertions.assertSame(ast, new Optimizer().visit(ast));
+    }
+
+    @Test
+    void testShared() {
+        Ast.Source ast = analyze("LET y: Integer = 1 + 1;\n" + body("x > 1") + "\nDEF main(): Integer DO\n    RETURN 0;\nEND");
+        Ast.Source optimized = new Optimizer().visit(ast);
+        Assertions.assertNotSame(ast.getFields().get(0), optimized.getFields().get(0));
+        Assertions.assertSame(ast.getFields().get(0).getVariable(), optimized.getFields().get(0).getVariable());
+        Assertions.assertSame(ast.getMethods().get(0), optimized.getMethods().get(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testInterpret(String test, String input) {
+        Ast.Source ast = analyze(input);
+        Assertions.assertEquals(interpret(ast), interpret(new Optimizer().visit(ast)));
+    }
+
+    private static Stream<Arguments> testInterpret() {
+        return Stream.of(
+                Arguments.of("Arithmetic",
+                        "DEF main(): Integer DO\n    LET x = 2;\n    print(x * (3 + 4) - (10 / 3));\n" +
+                        "    print(1.0 / 3.0 + 0.5);\n    print(\"n\" + (1 + 2) + 'c');\n    RETURN (x + 1) * 2;\nEND"),
+                Arguments.of("Logical",
+                        "LET calls: Integer = 0;\n" +
+                        "DEF f(): Boolean DO\n    calls = calls + 1;\n    RETURN TRUE;\nEND\n" +
+                        "DEF main(): Integer DO\n    print(f() OR TRUE);\n    print(FALSE AND f());\n    print(f() AND 1 < 2);\n" +
+                        "    RETURN calls;\nEND"),
+                Arguments.of("Loop",
+                        "DEF main(): Integer DO\n    LET i = 0;\n    LET sum = 0;\n    WHILE i < 10 * 10 AND TRUE DO\n" +
+                        "        sum = sum + i * (2 - 1);\n        i = i + 1;\n    END\n    RETURN sum;\nEND")
+        );
+    }
+
+    /**
+     * Tests that the Java generated from the optimized source prints and
+     * returns the same as that generated from the source, as the generated
+     * Java evaluates Decimals as doubles and AND before OR.
+     */
+    @ParameterizedTest
+    @MethodSource
+    void testGenerate(String test, String input) {
+        Ast.Source ast = analyze(input);
+        Assertions.assertEquals(run(ast), run(new Optimizer().visit(ast)));
+    }
+
+    private static Stream<Arguments> testGenerate() {
+        return Stream.of(
+                Arguments.of("Logical",
+                        "DEF main(): Integer DO\n    LET x: Boolean = TRUE;\n    LET y: Boolean = FALSE;\n" +
+                        "    print((x OR y) AND y);\n    print((y AND x) OR y);\n    print(x AND (y OR y));\n    RETURN 0;\nEND"),
+                Arguments.of("Decimal",
+                        "DEF main(): Integer DO\n    print(1.0 / 3.0);\n    print(0.1 + 0.2);\n" +
+                        "    print(1.5 * 2.0 - 0.25);\n    print(2.5 >= 3.0);\n    RETURN 0;\nEND")
+        );
+    }
+
+    private static String body(String expression) {
+        return "DEF f(): Boolean DO\n    RETURN TRUE;\nEND\n" +
+                "DEF g(x: Integer): Integer DO\n    RETURN x;\nEND\n" +
+                "DEF test(x: Integer): Any DO\n    RETURN " + expression + ";\nEND";
+    }
+
+    private static String method(String statements) {
+        return "DEF test(x: Integer): Integer DO\n    " + statements.replace("\n", "\n    ") + "\nEND";
+    }
+
+    /**
+     * Returns a source with a loop in main, after declaring locals {@code n},
+     * {@code i}, {@code sum}, {@code unset} and {@code any}.
+     */
+    private static String loop(String condition, String statements) {
+        return "LET field: Integer = 3;\n" +
+                "DEF f(): Integer DO\n    field = field + 1;\n    RETURN field;\nEND\n" +
+                "DEF main(): Integer DO\n    LET n: Integer = 4;\n    LET i = 0;\n    LET sum = 0;\n" +
+                "    LET unset: Integer;\n    unset = 2;\n    LET any: Any = 1;\n" +
+                "    WHILE " + condition + " DO\n        " + statements.replace("\n", "\n        ") + "\n    END\n" +
+                "    print(sum);\n    RETURN i;\nEND";
+    }
+
+    private static Ast.Source analyze(String input) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        Scope scope = new Scope(null);
+        scope.defineFunction("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+        return ast;
+    }
+
+    /**
+     * Returns the result and output of running the Java generated from the
+     * source.
+     */
+    private static String run(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        Class<?> main = new InMemoryCompiler().compileJava("Main", writer.toString());
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            return BytecodeGenerator.run(main) + ":" + bytes;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String interpret(Ast.Source ast) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            return new Interpreter(new Scope(null)).visit(ast).getValue() + ":" + bytes;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+}
@@ -2,6 +2,7 @@ package plc.project;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.math.BigInteger;
@@ -22,12 +23,30 @@ import java.math.BigDecimal;
  */
 public final class Parser {
 
-    private final TokenStream tokens;
+    private final Tokens tokens;
+    private int sites = 0;
 
     public Parser(List<Token> tokens) {
         this.tokens = new TokenStream(tokens);
     }
 
+    /**
+     * Creates a parser which pulls tokens from the iterator only as they are
+     * needed, such as from a {@link TableLexer}, so the full token list is
+     * never held in memory.
+     */
+    public Parser(Iterator<Token> tokens) {
+        this.tokens = new TokenStream(tokens);
+    }
+
+    /**
+     * Creates a parser over a {@link TokenBuffer}, which only creates the
+     * literals of tokens the parser needs for the AST.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = tokens.cursor();
+    }
+
     /**
      * Parses the {@code source} rule.
      */
@@ -47,7 +66,7 @@ public final class Parser {
         }
 
         if (tokens.has(0)) {
-            throw new ParseException("Unexpected tokens after parsing fields and methods.", tokens.get(0).getIndex());
+            throw new ParseException("Unexpected tokens after parsing fields and methods.", tokens.getIndex(0));
         }
 
         return new Ast.Source(fields, methods);
@@ -61,20 +80,20 @@ public final class Parser {
         // Match the 'LET' keyword
         match("LET");
         if (!match(Token.Type.IDENTIFIER)) {
-            throw new ParseException("Expected identifier after 'LET'.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected identifier after 'LET'.", tokens.getIndex(-1));
         }
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
 
         // Match the type if present (indicated by ':')
         Optional<String> type = Optional.empty();
         if (match(":")) {
             if (!match(Token.Type.IDENTIFIER)) {
-                throw new ParseException("Expected type after ':'.", tokens.get(-1).getIndex());
+                throw new ParseException("Expected type after ':'.", tokens.getIndex(-1));
             }
-            type = Optional.of(tokens.get(-1).getLiteral());
+            type = Optional.of(tokens.getLiteral(-1));
         } else {
             // Throw ParseException if the type is required and missing
-            throw new ParseException("Type name is required for field declaration.", tokens.get(-1).getIndex());
+            throw new ParseException("Type name is required for field declaration.", tokens.getIndex(-1));
         }
         // Match the optional value assignment ('=' expr)
         Optional<Ast.Expr> value = Optional.empty();
@@ -83,7 +102,7 @@ public final class Parser {
         }
         // Ensure the field ends with a semicolon
         if (!match(";")) {
-            throw new ParseException("Expected semicolon after field declaration.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected semicolon after field declaration.", tokens.getIndex(-1));
         }
         // Return the field node with name, type, and optional value
         return new Ast.Field(name, type.get(), value);
@@ -98,12 +117,12 @@ public final class Parser {
     public Ast.Method parseMethod() throws ParseException {
         match("DEF");
         if (!match(Token.Type.IDENTIFIER)) {
-            throw new ParseException("Expected method name after 'DEF'.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected method name after 'DEF'.", tokens.getIndex(-1));
         }
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
 
         if (!match("(")) {
-            throw new ParseException("Expected '(' after method name.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected '(' after method name.", tokens.getIndex(-1));
         }
 
         List<String> parameters = new ArrayList<>();
@@ -112,35 +131,35 @@ public final class Parser {
         if (peek(Token.Type.IDENTIFIER)) {
             do {
                 if (!match(Token.Type.IDENTIFIER)) {
-                    throw new ParseException("Expected parameter name in method signature.", tokens.get(-1).getIndex());
+                    throw new ParseException("Expected parameter name in method signature.", tokens.getIndex(-1));
                 }
-                parameters.add(tokens.get(-1).getLiteral());
+                parameters.add(tokens.getLiteral(-1));
 
                 if (!match(":") || !match(Token.Type.IDENTIFIER)) {
-                    throw new ParseException("Expected type after parameter name.", tokens.get(-1).getIndex());
+                    throw new ParseException("Expected type after parameter name.", tokens.getIndex(-1));
                 }
-                parameterTypeNames.add(tokens.get(-1).getLiteral());
+                parameterTypeNames.add(tokens.getLiteral(-1));
             } while (match(","));
         }
 
         if (parameters.size() != parameterTypeNames.size()) {
-            throw new ParseException("Each parameter must have an associated type.", tokens.get(-1).getIndex());
+            throw new ParseException("Each parameter must have an associated type.", tokens.getIndex(-1));
         }
 
         if (!match(")")) {
-            throw new ParseException("Expected ')' after parameter list.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected ')' after parameter list.", tokens.getIndex(-1));
         }
 
         Optional<String> returnTypeName = Optional.empty();
         if (match(":")) {
             if (!match(Token.Type.IDENTIFIER)) {
-                throw new ParseException("Expected return type name after ':'.", tokens.get(-1).getIndex());
+                throw new ParseException("Expected return type name after ':'.", tokens.getIndex(-1));
             }
-            returnTypeName = Optional.of(tokens.get(-1).getLiteral());
+            returnTypeName = Optional.of(tokens.getLiteral(-1));
         }
 
         if (!match("DO")) {
-            throw new ParseException("Expected 'DO' after method signature.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'DO' after method signature.", tokens.getIndex(-1));
         }
 
         List<Ast.Stmt> statements = new ArrayList<>();
@@ -149,7 +168,7 @@ public final class Parser {
         }
 
         if (!match("END")) {
-            throw new ParseException("Expected 'END' to close method body.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'END' to close method body.", tokens.getIndex(-1));
         }
 
         return new Ast.Method(name, parameters, parameterTypeNames, returnTypeName, statements);
@@ -177,12 +196,12 @@ public final class Parser {
             if (match("=")) {
                 Ast.Stmt.Assignment assignment = new Ast.Stmt.Assignment(expr, parseExpression());
                 if (!match(";")) {
-                    throw new ParseException("Expected semicolon after assignment.", tokens.get(-1).getIndex());
+                    throw new ParseException("Expected semicolon after assignment.", tokens.getIndex(-1));
                 }
                 return assignment;
             }
             if (!match(";")) {
-                throw new ParseException("Expected semicolon after expression.", tokens.get(-1).getIndex());
+                throw new ParseException("Expected semicolon after expression.", tokens.getIndex(-1));
             }
             return new Ast.Stmt.Expression(expr);
         }
@@ -197,10 +216,10 @@ public final class Parser {
     public Ast.Stmt.Declaration parseDeclarationStatement() throws ParseException {
         match("LET"); // 'LET' keyword already matched in parseStatement()
         if (!match(Token.Type.IDENTIFIER)) {
-            int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+            int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
             throw new ParseException("Expected identifier after 'LET'.", errorIndex);
         }
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
 
         Optional<String> type = Optional.empty();
         Optional<Ast.Expr> value = Optional.empty();
@@ -208,10 +227,10 @@ public final class Parser {
         // Match type if ":" is present
         if (match(":")) {
             if (!match(Token.Type.IDENTIFIER)) {
-                int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                 throw new ParseException("Expected type identifier after ':'.", errorIndex);
             }
-            type = Optional.of(tokens.get(-1).getLiteral());
+            type = Optional.of(tokens.getLiteral(-1));
         }
 
         // Match initializer expression if "=" is present
@@ -221,7 +240,7 @@ public final class Parser {
 
         // Ensure that each declaration statement ends with a semicolon
         if (!match(";")) {
-            int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+            int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
             throw new ParseException("Expected ';' after declaration.", errorIndex);
         }
 
@@ -239,12 +258,12 @@ public final class Parser {
         Ast.Expr condition = parseExpression();
         if (!match("DO")) {
             // Check if the token is 'THEN' instead of 'DO' to match the test case
-            String actual = tokens.has(0) ? tokens.get(0).getLiteral() : "EOF";
+            String actual = tokens.has(0) ? tokens.getLiteral(0) : "EOF";
             if ("THEN".equals(actual)) {
-                int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                 throw new ParseException("Expected 'DO', but received 'THEN'.", errorIndex);
             } else {
-                int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                 throw new ParseException("Expected 'DO' after 'IF' condition.", errorIndex);
             }
         }
@@ -259,7 +278,7 @@ public final class Parser {
             }
         }
         if (!match("END")) {
-            throw new ParseException("Expected 'END' after if statement.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'END' after if statement.", tokens.getIndex(-1));
         }
         return new Ast.Stmt.If(condition, thenStatements, elseStatements);
     }
@@ -273,22 +292,22 @@ public final class Parser {
     public Ast.Stmt.For parseForStatement() throws ParseException {
         match("FOR"); // 'FOR' keyword already matched in parseStatement()
         if (!match(Token.Type.IDENTIFIER)) {
-            throw new ParseException("Expected identifier in for loop.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected identifier in for loop.", tokens.getIndex(-1));
         }
-        String name = tokens.get(-1).getLiteral();
+        String name = tokens.getLiteral(-1);
         if (!match("IN")) {
-            throw new ParseException("Expected 'IN' in for loop.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'IN' in for loop.", tokens.getIndex(-1));
         }
         Ast.Expr iterable = parseExpression();
         if (!match("DO")) {
-            throw new ParseException("Expected 'DO' after for loop expression.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'DO' after for loop expression.", tokens.getIndex(-1));
         }
         List<Ast.Stmt> body = new ArrayList<>();
         while (!peek("END")) {
             body.add(parseStatement());
         }
         if (!match("END")) {
-            throw new ParseException("Expected 'END' after for loop.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'END' after for loop.", tokens.getIndex(-1));
         }
         return new Ast.Stmt.For(name, iterable, body);
     }
@@ -302,14 +321,14 @@ public final class Parser {
         match("WHILE"); // 'WHILE' keyword already matched in parseStatement()
         Ast.Expr condition = parseExpression();
         if (!match("DO")) {
-            throw new ParseException("Expected 'DO' after while condition.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'DO' after while condition.", tokens.getIndex(-1));
         }
         List<Ast.Stmt> body = new ArrayList<>();
         while (!peek("END")) {
             body.add(parseStatement());
         }
         if (!match("END")) {
-            throw new ParseException("Expected 'END' after while loop.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected 'END' after while loop.", tokens.getIndex(-1));
         }
         return new Ast.Stmt.While(condition, body);
     }
@@ -323,7 +342,7 @@ public final class Parser {
         match("RETURN"); // 'RETURN' keyword already matched in parseStatement()
         Ast.Expr value = parseExpression();
         if (!match(";")) {
-            throw new ParseException("Expected ';' after return expression.", tokens.get(-1).getIndex());
+            throw new ParseException("Expected ';' after return expression.", tokens.getIndex(-1));
         }
         return new Ast.Stmt.Return(value);
     }
@@ -341,7 +360,7 @@ public final class Parser {
     public Ast.Expr parseLogicalExpression() throws ParseException {
         Ast.Expr expr = parseEqualityExpression();
         while (match("AND") || match("OR")) {
-            String operator = tokens.get(-1).getLiteral();
+            String operator = tokens.getLiteral(-1);
             Ast.Expr right = parseEqualityExpression();
             expr = new Ast.Expr.Binary(operator, expr, right);
         }
@@ -354,7 +373,7 @@ public final class Parser {
     public Ast.Expr parseEqualityExpression() throws ParseException {
         Ast.Expr expr = parseAdditiveExpression();
         while (match("<") || match(">") || match("<=") || match(">=") || match("!=") || match("==")) {
-            String operator = tokens.get(-1).getLiteral();
+            String operator = tokens.getLiteral(-1);
             Ast.Expr right = parseAdditiveExpression();
             expr = new Ast.Expr.Binary(operator, expr, right);
         }
@@ -367,7 +386,7 @@ public final class Parser {
     public Ast.Expr parseAdditiveExpression() throws ParseException {
         Ast.Expr expr = parseMultiplicativeExpression();
         while (match("+") || match("-")) {
-            String operator = tokens.get(-1).getLiteral();
+            String operator = tokens.getLiteral(-1);
             Ast.Expr right = parseMultiplicativeExpression();
             expr = new Ast.Expr.Binary(operator, expr, right);
         }
@@ -380,7 +399,7 @@ public final class Parser {
     public Ast.Expr parseMultiplicativeExpression() throws ParseException {
         Ast.Expr expr = parseSecondaryExpression();
         while (match("*") || match("/")) {
-            String operator = tokens.get(-1).getLiteral();
+            String operator = tokens.getLiteral(-1);
             Ast.Expr right = parseSecondaryExpression();
             expr = new Ast.Expr.Binary(operator, expr, right);
         }
@@ -394,7 +413,7 @@ public final class Parser {
         Ast.Expr expr = parsePrimaryExpression();
         while (match(".")) {
             if (match(Token.Type.IDENTIFIER)) {
-                String name = tokens.get(-1).getLiteral();
+                String name = tokens.getLiteral(-1);
                 if (match("(")) {
                     List<Ast.Expr> arguments = new ArrayList<>();
                     if (!peek(")")) {
@@ -403,15 +422,15 @@ public final class Parser {
                         } while (match(","));
                     }
                     if (!match(")")) {
-                        int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                        int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                         throw new ParseException("Expected closing parenthesis for function call.", errorIndex);
                     }
-                    expr = new Ast.Expr.Function(Optional.of(expr), name, arguments);
+                    expr = new Ast.Expr.Function(Optional.of(expr), name, arguments, sites++);
                 } else {
                     expr = new Ast.Expr.Access(Optional.of(expr), name);
                 }
             } else {
-                int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                 throw new ParseException("Expected identifier after '.'.", errorIndex);
             }
         }
@@ -432,12 +451,12 @@ public final class Parser {
         } else if (match("NIL")) {
             return new Ast.Expr.Literal(null);
         } else if (match(Token.Type.INTEGER)) {
-            return new Ast.Expr.Literal(new BigInteger(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigInteger(tokens.getLiteral(-1)));
         } else if (match(Token.Type.DECIMAL)) {
-            return new Ast.Expr.Literal(new BigDecimal(tokens.get(-1).getLiteral()));
+            return new Ast.Expr.Literal(new BigDecimal(tokens.getLiteral(-1)));
         } else if (match(Token.Type.CHARACTER)) {
             // Handle escape characters in string literals.
-            String str = tokens.get(-1).getLiteral().substring(1, tokens.get(-1).getLiteral().length() - 1);
+            String str = tokens.getLiteral(-1).substring(1, tokens.getLiteral(-1).length() - 1);
             if (str.charAt(0) == '\\')
                 str = str.replace("\\b", "\b").replace("\\n", "\n")
                         .replace("\\r", "\r").replace("\\t", "\t")
@@ -447,7 +466,7 @@ public final class Parser {
             return new Ast.Expr.Literal(ch);
         } else if (match(Token.Type.STRING)) {
             // Handle escape characters in string literals.
-            String str = tokens.get(-1).getLiteral().substring(1, tokens.get(-1).getLiteral().length() - 1);
+            String str = tokens.getLiteral(-1).substring(1, tokens.getLiteral(-1).length() - 1);
             str = str.replace("\\b", "\b").replace("\\n", "\n")
                     .replace("\\r", "\r").replace("\\t", "\t")
                     .replace("\\'", "'").replace("\\\"", "\"")
@@ -457,12 +476,12 @@ public final class Parser {
             // Grouping of expressions with parentheses
             Ast.Expr expression = parseExpression();
             if (!match(")")) {
-                int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                 throw new ParseException("Mismatched closing parenthesis, expected ')'.", errorIndex);
             }
             return new Ast.Expr.Group(expression);
         } else if (match(Token.Type.IDENTIFIER)) {
-            String name = tokens.get(-1).getLiteral();
+            String name = tokens.getLiteral(-1);
             if (match("(")) { // Check if this is a function call
                 List<Ast.Expr> arguments = new ArrayList<>();
                 if (!peek(")")) {
@@ -471,14 +490,14 @@ public final class Parser {
                     } while (match(","));
                 }
                 if (!match(")")) {
-                    int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+                    int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
                     throw new ParseException("Expected closing parenthesis for function call.", errorIndex);
                 }
-                return new Ast.Expr.Function(Optional.empty(), name, arguments);
+                return new Ast.Expr.Function(Optional.empty(), name, arguments, sites++);
             }
             return new Ast.Expr.Access(Optional.empty(), name); // Regular identifier access
         } else {
-            int errorIndex = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
+            int errorIndex = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
             throw new ParseException("Invalid expression.", errorIndex);
         }
     }
@@ -498,11 +517,11 @@ public final class Parser {
             if (!tokens.has(i)) {
                 return false;
             } else if (patterns[i] instanceof Token.Type) {
-                if (patterns[i] != tokens.get(i).getType()) {
+                if (patterns[i] != tokens.getType(i)) {
                     return false;
                 }
             } else if (patterns[i] instanceof String) {
-                if (!patterns[i].equals(tokens.get(i).getLiteral())) {
+                if (!tokens.matches(i, (String) patterns[i])) {
                     return false;
                 }
             } else {
@@ -528,19 +547,59 @@ public final class Parser {
     }
 
 
-    private static final class TokenStream {
+    /**
+     * The operations the parser needs from a sequence of tokens, relative to
+     * the current position. This is implemented by {@link TokenStream} over
+     * {@link Token} objects and by {@link TokenBuffer#cursor()}.
+     */
+    interface Tokens {
+
+        boolean has(int offset);
+
+        Token.Type getType(int offset);
+
+        String getLiteral(int offset);
+
+        /**
+         * Returns true if the literal of the token at the offset is equal to
+         * {@code literal}.
+         */
+        boolean matches(int offset, String literal);
+
+        int getIndex(int offset);
+
+        void advance();
+
+    }
+
+    private static final class TokenStream implements Tokens {
 
         private final List<Token> tokens;
+        private final Iterator<Token> source;
         private int index = 0;
 
         private TokenStream(List<Token> tokens) {
             this.tokens = tokens;
+            this.source = null;
+        }
+
+        /**
+         * Creates a token stream over an iterator, which buffers only the
+         * previous token and the tokens which have been peeked at.
+         */
+        private TokenStream(Iterator<Token> source) {
+            this.tokens = new ArrayList<>();
+            this.source = source;
         }
 
         /**
          * Returns true if there is a token at index + offset.
          */
+        @Override
         public boolean has(int offset) {
+            while (source != null && index + offset >= tokens.size() && source.hasNext()) {
+                tokens.add(source.next());
+            }
             return index + offset < tokens.size();
         }
 
@@ -548,14 +607,40 @@ public final class Parser {
          * Gets the token at index + offset.
          */
         public Token get(int offset) {
+            has(offset);
             return tokens.get(index + offset);
         }
 
+        @Override
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
+        }
+
+        @Override
+        public boolean matches(int offset, String literal) {
+            return literal.equals(get(offset).getLiteral());
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return get(offset).getIndex();
+        }
+
         /**
          * Advances to the next token, incrementing the index.
          */
+        @Override
         public void advance() {
             index++;
+            if (source != null && index > 1 && !tokens.isEmpty()) {
+                tokens.remove(0);
+                index--;
+            }
         }
 
     }
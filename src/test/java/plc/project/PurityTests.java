@@ -0,0 +1,64 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests the methods {@link Purity} finds to be pure in each source.
+ */
+final class PurityTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testAnalyze(String test, String input, List<String> expected) {
+        Ast.Source ast = new Parser(new Lexer(input).lex()).parseSource();
+        List<String> actual = ast.getMethods().stream()
+                .filter(Purity.analyze(ast)::contains)
+                .map(Ast.Method::getName)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testAnalyze() {
+        return Stream.of(
+                Arguments.of("Arithmetic", "DEF f(x: Any): Any DO\n    RETURN x * 2 + 1;\nEND", Arrays.asList("f")),
+                Arguments.of("Locals",
+                        "DEF f(x: Any): Any DO\n    LET y = x;\n    WHILE y > 0 DO\n        y = y - 1;\n    END\n    RETURN y;\nEND",
+                        Arrays.asList("f")),
+                Arguments.of("Field Assignment", "LET x: Any = 0;\nDEF f(): Any DO\n    x = 1;\nEND", Arrays.asList()),
+                Arguments.of("Constant Field", "LET x: Any = 1;\nDEF f(): Any DO\n    RETURN x;\nEND", Arrays.asList("f")),
+                Arguments.of("Assigned Field",
+                        "LET x: Any = 1;\nDEF f(): Any DO\n    RETURN x;\nEND\nDEF g(): Any DO\n    x = 2;\nEND",
+                        Arrays.asList()),
+                Arguments.of("Shadowed Field",
+                        "LET x: Any = 1;\nDEF f(x: Any): Any DO\n    x = x + 1;\n    RETURN x;\nEND\nDEF g(): Any DO\n    LET x = 2;\n    x = 3;\nEND",
+                        Arrays.asList("f", "g")),
+                Arguments.of("Out Of Scope",
+                        "LET x: Any = 1;\nDEF f(): Any DO\n    IF TRUE DO\n        LET x = 2;\n    END\n    x = 3;\nEND",
+                        Arrays.asList()),
+                Arguments.of("For Variable",
+                        "DEF f(list: IntegerIterable): Any DO\n    FOR i IN list DO\n        i = 1;\n    END\nEND",
+                        Arrays.asList("f")),
+                Arguments.of("Print", "DEF f(x: Any): Any DO\n    print(x);\nEND", Arrays.asList()),
+                Arguments.of("Receiver", "DEF f(x: Any): Any DO\n    RETURN x.compare(1);\nEND", Arrays.asList()),
+                Arguments.of("Object Field", "DEF f(x: Any): Any DO\n    x.y = 1;\nEND", Arrays.asList()),
+                Arguments.of("Calls",
+                        "DEF f(x: Any): Any DO\n    RETURN g(x);\nEND\nDEF g(x: Any): Any DO\n    RETURN h(x);\nEND\n" +
+                        "DEF h(x: Any): Any DO\n    print(x);\nEND\nDEF k(x: Any): Any DO\n    RETURN x;\nEND",
+                        Arrays.asList("k")),
+                Arguments.of("Arity", "DEF f(x: Any): Any DO\n    RETURN f(x, x);\nEND", Arrays.asList()),
+                Arguments.of("Recursion",
+                        "DEF even(n: Any): Any DO\n    IF n == 0 DO\n        RETURN TRUE;\n    END\n    RETURN odd(n - 1);\nEND\n" +
+                        "DEF odd(n: Any): Any DO\n    IF n == 0 DO\n        RETURN FALSE;\n    END\n    RETURN even(n - 1);\nEND",
+                        Arrays.asList("even", "odd"))
+        );
+    }
+
+}
@@ -0,0 +1,136 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tests the slots assigned by the {@link Resolver} and that the
+ * {@link Interpreter} gives the same results for resolved sources.
+ */
+final class ResolverTests {
+
+    @Test
+    void testSlots() {
+        Ast.Source ast = parse("LET x: Integer = 1;\n" +
+                "DEF f(a: Integer): Integer DO\n" +
+                "    LET b = a;\n" +
+                "    IF TRUE DO\n" +
+                "        LET c = b;\n" +
+                "    END\n" +
+                "    LET d = x;\n" +
+                "    RETURN d + y;\n" +
+                "END");
+        new Resolver().visit(ast);
+        Ast.Method method = ast.getMethods().get(0);
+        Ast.Stmt.Declaration b = (Ast.Stmt.Declaration) method.getStatements().get(0);
+        Ast.Stmt.Declaration c = (Ast.Stmt.Declaration) ((Ast.Stmt.If) method.getStatements().get(1)).getThenStatements().get(0);
+        Ast.Stmt.Declaration d = (Ast.Stmt.Declaration) method.getStatements().get(2);
+        Ast.Expr.Binary sum = (Ast.Expr.Binary) ((Ast.Stmt.Return) method.getStatements().get(3)).getValue();
+
+        Assertions.assertEquals(0, ast.getFields().get(0).getSlot());
+        Assertions.assertEquals(1, b.getSlot());
+        Assertions.assertEquals(2, c.getSlot());
+        Assertions.assertEquals(2, d.getSlot()); // reuses the slot of c, whose block has ended
+        Assertions.assertEquals(3, method.getFrameSize());
+        assertSlot((Ast.Expr.Access) b.getValue().get(), 0, 0);
+        assertSlot((Ast.Expr.Access) d.getValue().get(), 1, 0);
+        assertSlot((Ast.Expr.Access) sum.getLeft(), 0, 2);
+        assertSlot((Ast.Expr.Access) sum.getRight(), -1, -1);
+    }
+
+    @Test
+    void testRedefinedVariable() {
+        Ast.Source ast = parse("DEF main(): Integer DO\n    LET x = 1;\n    LET x = 2;\n    RETURN x;\nEND");
+        Assertions.assertThrows(RuntimeException.class, () -> new Resolver().visit(ast));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input, Object expected, List<Object> log) {
+        Assertions.assertEquals(log, interpret(parse(input), expected));
+        Ast.Source resolved = parse(input);
+        new Resolver().visit(resolved);
+        Assertions.assertEquals(log, interpret(resolved, expected));
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Static Scope",
+                        "LET x: Integer = 1;\nLET y: Integer = 2;\nLET z: Integer = 3;\n" +
+                        "DEF f(z: Integer): Integer DO\n    RETURN x + y + z;\nEND\n" +
+                        "DEF main(): Integer DO\n    LET y = 4;\n    RETURN f(5);\nEND",
+                        BigInteger.valueOf(8), List.of()
+                ),
+                Arguments.of("Recursion",
+                        "DEF fib(n: Integer): Integer DO\n    IF n < 2 DO\n        RETURN n;\n    END\n" +
+                        "    RETURN fib(n - 1) + fib(n - 2);\nEND\n" +
+                        "DEF main(): Integer DO\n    RETURN fib(10);\nEND",
+                        BigInteger.valueOf(55), List.of()
+                ),
+                Arguments.of("Shadowing",
+                        "DEF main(): Integer DO\n    LET x = 1;\n    LET y = 2;\n" +
+                        "    IF TRUE DO\n        LET x = 3;\n        y = 4;\n        log(x);\n        log(y);\n    END\n" +
+                        "    log(x);\n    log(y);\n    RETURN 0;\nEND",
+                        BigInteger.ZERO, List.of(BigInteger.valueOf(3), BigInteger.valueOf(4), BigInteger.ONE, BigInteger.valueOf(4))
+                ),
+                Arguments.of("Loops",
+                        "LET total: Integer = 0;\n" +
+                        "DEF main(): Integer DO\n    FOR i IN list DO\n        total = total + i;\n    END\n" +
+                        "    LET n = 0;\n    WHILE n < 3 DO\n        n = n + 1;\n        log(n);\n    END\n    RETURN total;\nEND",
+                        BigInteger.TEN, List.of(BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(3))
+                ),
+                Arguments.of("Field Assignment",
+                        "LET count: Integer = 0;\n" +
+                        "DEF increment(): Integer DO\n    count = count + 1;\n    RETURN count;\nEND\n" +
+                        "DEF main(): Integer DO\n    increment();\n    increment();\n    log(count);\n    RETURN increment();\nEND",
+                        BigInteger.valueOf(3), List.of(BigInteger.valueOf(2))
+                ),
+                Arguments.of("Early Return",
+                        "DEF find(target: Integer): Integer DO\n    FOR i IN list DO\n        LET n = 0;\n" +
+                        "        WHILE n < 10 DO\n            IF i * n == target DO\n                RETURN n;\n            END\n" +
+                        "            n = n + 1;\n        END\n        log(i);\n    END\n    log(target);\n    RETURN 0 - 1;\nEND\n" +
+                        "DEF main(): Integer DO\n    log(find(12));\n    RETURN find(100);\nEND",
+                        BigInteger.valueOf(-1), List.of(BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(6),
+                                BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(2), BigInteger.valueOf(3), BigInteger.valueOf(4), BigInteger.valueOf(100))
+                )
+        );
+    }
+
+    private static void assertSlot(Ast.Expr.Access ast, int depth, int slot) {
+        Assertions.assertEquals(depth, ast.getDepth());
+        Assertions.assertEquals(slot, ast.getSlot());
+    }
+
+    private static Ast.Source parse(String input) {
+        return new Parser(new Lexer(input).lex()).parseSource();
+    }
+
+    /**
+     * Interprets the source with a {@code log} function and {@code list}
+     * variable defined, returning the logged values.
+     */
+    private static List<Object> interpret(Ast.Source ast, Object expected) {
+        List<Object> log = new ArrayList<>();
+        Scope scope = new Scope(null);
+        scope.defineFunction("log", 1, args -> {
+            log.add(args.get(0).getValue());
+            return Environment.NIL;
+        });
+        scope.defineVariable("list", Environment.create(IntStream.range(0, 5)
+                .mapToObj(i -> Environment.create(BigInteger.valueOf(i)))
+                .collect(Collectors.toList())));
+        Assertions.assertEquals(expected, new Interpreter(scope).visit(ast).getValue());
+        return log;
+    }
+
+}
@@ -0,0 +1,101 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+final class ScopeTests {
+
+    @Test
+    void testFreeze() {
+        Scope parent = new Scope(null);
+        parent.defineVariable("x", Environment.create(BigInteger.ONE));
+        Scope scope = new Scope(parent);
+        scope.defineFunction("f", 0, args -> Environment.NIL);
+        Scope frozen = scope.freeze();
+        Assertions.assertTrue(frozen.isImmutable());
+        Assertions.assertTrue(frozen.getParent().isImmutable());
+        Assertions.assertSame(frozen, frozen.freeze());
+        Assertions.assertSame(parent.lookupVariable("x"), frozen.lookupVariable("x"));
+        Assertions.assertSame(scope.lookupFunction("f", 0), frozen.lookupFunction("f", 0));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.defineVariable("y", Environment.NIL));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> frozen.defineFunction("g", 0, args -> Environment.NIL));
+        // The original scope can still be defined in, without changing the copy
+        scope.defineVariable("y", Environment.NIL);
+        Assertions.assertThrows(RuntimeException.class, () -> frozen.lookupVariable("y"));
+        Assertions.assertFalse(scope.isImmutable());
+    }
+
+    @Test
+    void testChildOfFrozen() {
+        Scope frozen = new Scope(null).freeze();
+        Scope child = new Scope(frozen);
+        child.defineVariable("x", Environment.NIL);
+        Assertions.assertSame(Environment.NIL, child.lookupVariable("x").getValue());
+        Assertions.assertThrows(RuntimeException.class, () -> frozen.lookupVariable("x"));
+    }
+
+    /**
+     * Runs many interpreters at once against one frozen prelude, each in its
+     * own child scope, defining the same fields and calling the builtins.
+     */
+    @Test
+    void testSharedPrelude() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Scope prelude = new Scope(null);
+        prelude.defineFunction("twice", 1, args -> Environment.create(((BigInteger) args.get(0).getValue()).shiftLeft(1)));
+        prelude.defineFunction("count", 0, args -> Environment.createInteger(calls.incrementAndGet()));
+        prelude.defineVariable("offset", Environment.create(BigInteger.valueOf(100)));
+        Scope shared = prelude.freeze();
+        Ast.Source ast = new Parser(new Lexer("LET total: Integer = 0;\n" +
+                "DEF add(x: Integer): Integer DO\n    total = total + twice(x);\n    RETURN total;\nEND\n" +
+                "DEF main(): Integer DO\n    LET i = 0;\n    WHILE i < 50 DO\n        add(i);\n        count();\n" +
+                "        i = i + 1;\n    END\n    RETURN total + offset;\nEND").lex()).parseSource();
+        int threads = 16;
+        int runs = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<List<Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Object> results = new ArrayList<>();
+                    for (int run = 0; run < runs; run++) {
+                        results.add(new Interpreter(new Scope(shared)).visit(ast).getValue());
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            for (Future<List<Object>> future : futures) {
+                for (Object result : future.get()) {
+                    Assertions.assertEquals(BigInteger.valueOf(2550), result);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertEquals(threads * runs * 50, calls.get());
+    }
+
+    @Test
+    void testSharedVariable() throws InterruptedException {
+        Scope prelude = new Scope(null);
+        prelude.defineVariable("x", Environment.NIL);
+        Scope shared = prelude.freeze();
+        Thread thread = new Thread(() -> shared.lookupVariable("x").setValue(Environment.create("assigned")));
+        thread.start();
+        thread.join();
+        Assertions.assertEquals("assigned", prelude.lookupVariable("x").getValue().getValue());
+    }
+
+}
@@ -0,0 +1,130 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests that {@link Symbol}s and their keys are canonical however they are
+ * created, and that the lexers and {@link Scope} use them.
+ */
+final class SymbolTests {
+
+    @Test
+    void testCanonical() {
+        Symbol symbol = Symbol.of("symbolTestName");
+        Assertions.assertSame(symbol, Symbol.of(new String("symbolTestName")));
+        Assertions.assertSame(symbol, Symbol.of("LET symbolTestName = 1;", 4, 18));
+        Assertions.assertSame(symbol, Symbol.of("x symbolTestName".toCharArray(), 2, 16));
+        Assertions.assertNotSame(symbol, Symbol.of("symbolTestNam"));
+        Assertions.assertEquals("symbolTestName".hashCode(), symbol.hashCode());
+        Assertions.assertNotEquals(symbol.getId(), Symbol.of("symbolTestNam").getId());
+    }
+
+    @Test
+    void testKeys() {
+        Symbol symbol = Symbol.of("symbolTestKeys");
+        Assertions.assertSame(symbol.function(2), Symbol.of("symbolTestKeys").function(2));
+        Assertions.assertNotSame(symbol.function(1), symbol.function(2));
+        Assertions.assertSame(symbol.function(0), symbol.function(0));
+        Assertions.assertEquals("symbolTestKeys/2", symbol.function(2).toString());
+        Assertions.assertEquals(2, symbol.function(2).getArity());
+        Assertions.assertSame(symbol, symbol.function(2).getSymbol());
+    }
+
+    @Test
+    void testGrowth() {
+        List<Symbol> symbols = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            symbols.add(Symbol.of("symbolTestGrowth" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            Assertions.assertSame(symbols.get(i), Symbol.of("symbolTestGrowth" + i));
+        }
+    }
+
+    @Test
+    void testCollected() {
+        WeakReference<Symbol> reference = new WeakReference<>(Symbol.of("symbolTestCollected"));
+        for (int i = 0; i < 100 && reference.get() != null; i++) {
+            System.gc();
+        }
+        Assertions.assertNull(reference.get());
+        // Symbols added meanwhile remove it from its stripe
+        for (int i = 0; i < 100; i++) {
+            Symbol.of("symbolTestCollected" + i);
+        }
+        Symbol symbol = Symbol.of("symbolTestCollected");
+        Assertions.assertSame(symbol, Symbol.of("x symbolTestCollected".toCharArray(), 2, 21));
+    }
+
+    @Test
+    void testConcurrent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Symbol.Key>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    List<Symbol.Key> keys = new ArrayList<>();
+                    for (int i = 0; i < 1000; i++) {
+                        keys.add(Symbol.of("symbolTestConcurrent" + i).function(i % 4));
+                    }
+                    return keys;
+                }));
+            }
+            List<Symbol.Key> expected = futures.get(0).get();
+            for (Future<List<Symbol.Key>> future : futures) {
+                List<Symbol.Key> keys = future.get();
+                for (int i = 0; i < keys.size(); i++) {
+                    Assertions.assertSame(expected.get(i), keys.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testLexers() {
+        String input = "DEF symbolTestLexer(x: Integer): Integer DO\n    RETURN symbolTestLexer(x);\nEND";
+        // Held by the test, as symbols nothing refers to may be removed
+        Symbol symbol = Symbol.of("symbolTestLexer");
+        List<Token> tokens = new Lexer(input).lex();
+        Assertions.assertSame(symbol.getName(), tokens.get(1).getLiteral());
+        Assertions.assertSame(symbol.getName(), tokens.get(11).getLiteral());
+        Assertions.assertSame(symbol.getName(), new TableLexer(input).lex().get(11).getLiteral());
+        Assertions.assertSame(symbol.getName(), TokenBuffer.lex(input).getLiteral(11));
+    }
+
+    @Test
+    void testLookupAllocation() {
+        Scope parent = new Scope(null);
+        parent.defineFunction("symbolTestLookup", 1, args -> Environment.NIL);
+        Scope scope = new Scope(new Scope(parent));
+        Symbol symbol = Symbol.of("symbolTestLookup");
+        Environment.Function function = scope.lookupFunction(symbol, 1);
+        Assertions.assertSame(function, scope.lookupFunction("symbolTestLookup", 1));
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int i = 0; i < 10_000; i++) {
+            scope.lookupFunction(symbol, 1);
+        }
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 100_000; i++) {
+            Assertions.assertSame(function, scope.lookupFunction(symbol, 1));
+        }
+        // A key per lookup would be over a megabyte, this allows for the measurement itself
+        Assertions.assertTrue(threads.getThreadAllocatedBytes(id) - before < 10_000);
+    }
+
+}
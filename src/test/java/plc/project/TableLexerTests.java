@@ -0,0 +1,188 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Differential tests checking that {@link TableLexer} produces the same tokens
+ * and errors as {@link Lexer}.
+ */
+public class TableLexerTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testDifferential(String test, String input) {
+        test(input);
+    }
+
+    private static Stream<Arguments> testDifferential() {
+        return Stream.of(
+                Arguments.of("Identifier", "getName thelegend27 _ var__name var-name"),
+                Arguments.of("Integer", "1 000123 -999 +5 2147483648"),
+                Arguments.of("Decimal", "123.456 -1.0 1. .5 -.123 123.45.67"),
+                Arguments.of("Character", "'c' '\\n' '\\t' '\\\\' 'ab'"),
+                Arguments.of("Empty Character", "''"),
+                Arguments.of("Multiple Character", "'abc'"),
+                Arguments.of("Unterminated Character", "'"),
+                Arguments.of("Invalid Character Escape", "'\\x'"),
+                Arguments.of("Character Trailing Escape", "'a\\n'"),
+                Arguments.of("String", "\"\" \"abc\" \"Hello,\\nWorld\" \"He said 'hi'\""),
+                Arguments.of("Unterminated String", "\"unterminated"),
+                Arguments.of("Newline String", "\"new\nline\""),
+                Arguments.of("Invalid String Escape", "\"invalid\\escape\""),
+                Arguments.of("Operators", "( <= >= != == = < > ! + - * / ; . , $"),
+                Arguments.of("Whitespace", " \t\n\u000B\f\r\u0008 LET\u0008x\u0008=\u00085;"),
+                Arguments.of("Unicode", "\u00E9 \"\u00E9\u4E2D\" '\u4E2D' \u2028 x\u00E9"),
+                Arguments.of("Program", "LET i = -1;\nLET inc = 2;\nDEF foo() DO\n    WHILE i <= 1 DO\n"
+                        + "        IF i > 0 DO\n            print(\"bar\");\n        END\n"
+                        + "        i = i + inc;\n    END\nEND")
+        );
+    }
+
+    @Test
+    void testRandomInputs() {
+        String alphabet = "aZ_9-+.'\"\\nbt <=>!;( \t\n\r\u0008\u00E9";
+        Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(16);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            test(builder.toString());
+        }
+    }
+
+    @Test
+    void testLargeInput() {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 256 * 1024) {
+            builder.append("DEF method").append(builder.length()).append("(x: Integer): Integer DO\n")
+                    .append("    LET y: Decimal = -12.5;\n")
+                    .append("    print(\"value\\t\" + 'c');\n")
+                    .append("    WHILE x != 0 AND y >= 1.0 DO x = x - 1; END\n")
+                    .append("    RETURN x * 2;\n")
+                    .append("END\n");
+        }
+        String input = builder.toString();
+        Assertions.assertEquals(new Lexer(input).lex(), new TableLexer(input).lex());
+    }
+
+    @Test
+    void testChannel() {
+        String input = "LET x: String = \"\u00E9\u4E2D\";\nDEF main(): Integer DO RETURN 0; END";
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(new Lexer(input).lex(),
+                TableLexer.of(Channels.newChannel(new ByteArrayInputStream(bytes))).lex());
+    }
+
+    @Test
+    void testMappedFile() throws IOException {
+        String input = "DEF main(): Integer DO\n    print(\"Hello, World!\");\n    RETURN 0;\nEND";
+        Path path = Files.createTempFile("plc", ".plc");
+        try {
+            Files.writeString(path, input);
+            try (FileChannel channel = FileChannel.open(path)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                List<Token> tokens = new ArrayList<>();
+                TableLexer.of(buffer).forEachRemaining(tokens::add);
+                Assertions.assertEquals(new Lexer(input).lex(), tokens);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testBoundedBuffer() {
+        int size = 16 * 1024 * 1024;
+        Reader reader = new Reader() {
+
+            private final String statement = "x = x + 1; ";
+            private int position = 0;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= size) {
+                    return -1;
+                }
+                int count = Math.min(length, size - position);
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = statement.charAt((position + i) % statement.length());
+                }
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {}
+
+        };
+        TableLexer lexer = new TableLexer(reader);
+        long count = StreamSupport.stream(lexer.spliterator(), false).count();
+        Assertions.assertEquals(6L * size / 11 + 1, count);
+        Assertions.assertEquals(8192, lexer.getBufferCapacity());
+    }
+
+    @Test
+    void testParserIterator() {
+        String input = "LET x: Integer = 1;\nDEF main(): Integer DO\n    WHILE x < 10 DO x = x + 1; END\n"
+                + "    IF x == 10 DO print(\"done\"); ELSE print(x); END\n    RETURN x.compare(2);\nEND";
+        Assertions.assertEquals(new Parser(new Lexer(input).lex()).parseSource(),
+                new Parser(new TableLexer(new StringReader(input))).parseSource());
+    }
+
+    /**
+     * Asserts that both lexers produce the same tokens, or that both throw a
+     * {@link ParseException} with the same message and index. The table lexer
+     * is run both on the string and on a reader returning one character at a
+     * time, which refills the buffer on every character.
+     */
+    private static void test(String input) {
+        List<Token> expected;
+        try {
+            expected = new Lexer(input).lex();
+        } catch (ParseException e) {
+            ParseException actual = Assertions.assertThrows(ParseException.class, () -> new TableLexer(input).lex());
+            Assertions.assertEquals(e.getMessage(), actual.getMessage());
+            Assertions.assertEquals(e.getIndex(), actual.getIndex());
+            actual = Assertions.assertThrows(ParseException.class, () -> new TableLexer(slowReader(input)).lex());
+            Assertions.assertEquals(e.getIndex(), actual.getIndex());
+            return;
+        }
+        Assertions.assertEquals(expected, new TableLexer(input).lex());
+        Assertions.assertEquals(expected, new TableLexer(slowReader(input)).lex());
+    }
+
+    private static Reader slowReader(String input) {
+        return new FilterReader(new StringReader(input)) {
+
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 1));
+            }
+
+        };
+    }
+
+}
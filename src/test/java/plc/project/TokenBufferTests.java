@@ -0,0 +1,63 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests that a {@link TokenBuffer} holds the same tokens as {@link Lexer#lex()}
+ * and that the {@link Parser} produces the same AST from either.
+ */
+public class TokenBufferTests {
+
+    @ParameterizedTest
+    @MethodSource
+    void testSource(String test, String input) {
+        TokenBuffer buffer = TokenBuffer.lex(input);
+        List<Token> tokens = new ArrayList<>();
+        for (int i = 0; i < buffer.size(); i++) {
+            tokens.add(buffer.get(i));
+        }
+        Assertions.assertEquals(new Lexer(input).lex(), tokens);
+        Assertions.assertEquals(new Parser(new Lexer(input).lex()).parseSource(), new Parser(buffer).parseSource());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Empty", ""),
+                Arguments.of("Main", "DEF main(): Integer DO\n    RETURN 0;\nEND"),
+                Arguments.of("Literals", "LET c: Character = '\\n';\nLET s: String = \"a\\tb\";\nLET d: Decimal = -1.5;\n"
+                        + "DEF main(): Integer DO\n    print(s + c);\n    RETURN -1;\nEND"),
+                Arguments.of("Statements", "DEF main(): Integer DO\n    LET x = 0;\n    WHILE x <= 10 AND x != 5 DO x = x + 1; END\n"
+                        + "    FOR i IN range DO print(i); END\n    IF x == 5 DO print(x.compare(1)); ELSE print(\"no\"); END\n"
+                        + "    RETURN (x * 2) / 1;\nEND")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testParseException(String test, String input) {
+        ParseException expected = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(new Lexer(input).lex()).parseSource());
+        ParseException actual = Assertions.assertThrows(ParseException.class,
+                () -> new Parser(TokenBuffer.lex(input)).parseSource());
+        Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+        Assertions.assertEquals(expected.getIndex(), actual.getIndex());
+    }
+
+    private static Stream<Arguments> testParseException() {
+        return Stream.of(
+                Arguments.of("Missing Type", "LET x = 1;"),
+                Arguments.of("Missing Semicolon", "DEF main() DO\n    LET x = 1\nEND"),
+                Arguments.of("Then", "DEF main() DO\n    IF x THEN print(x); END\nEND"),
+                Arguments.of("Trailing Tokens", "DEF main() DO END ;")
+        );
+    }
+
+}